@@ -0,0 +1,59 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures the acceptor's side of each phase in isolation, with no learners attached.
+// Accepts cycle round a fixed window of slots so the acceptor's state stays the same size.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AcceptorBenchmark {
+    private static final int SLOT_WINDOW = 1024;
+
+    private AcceptorImpl<String> acceptor;
+    private Proposal<String> proposal;
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        acceptor = new AcceptorImpl<>(1, Collections.emptyList());
+        proposal = new Proposal<>(1, "value");
+        for (long slot = 0; slot < SLOT_WINDOW; slot++) {
+            acceptor.accept(slot, proposal);
+        }
+    }
+
+    @Benchmark
+    public PrepareResult<Promise<String>> prepare() {
+        return acceptor.prepare(counter++ % SLOT_WINDOW, proposal);
+    }
+
+    // Prepares from the end of the log, as a leader taking over an up-to-date log would.
+    @Benchmark
+    public PrepareResult<MultiPromise<String>> prepareFromTail() {
+        return acceptor.prepareFrom(SLOT_WINDOW, proposal);
+    }
+
+    @Benchmark
+    public boolean accept() {
+        return acceptor.accept(counter++ % SLOT_WINDOW, proposal);
+    }
+}
@@ -0,0 +1,60 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Several threads accepting into disjoint slots of one shared acceptor, as a pipelined leader
+// would. Compare against AcceptorBenchmark.accept to see how well the acceptor scales with cores.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class ConcurrentAcceptorBenchmark {
+    private static final int SLOTS_PER_THREAD = 1024;
+
+    private final AtomicInteger nextThread = new AtomicInteger();
+    private AcceptorImpl<String> acceptor;
+    private Proposal<String> proposal;
+
+    @State(Scope.Thread)
+    public static class SlotRange {
+        private long firstSlot;
+        private long counter;
+
+        @Setup
+        public void setUp(ConcurrentAcceptorBenchmark benchmark) {
+            firstSlot = (long) benchmark.nextThread.getAndIncrement() * SLOTS_PER_THREAD;
+        }
+
+        private long next() {
+            return firstSlot + (counter++ % SLOTS_PER_THREAD);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        acceptor = new AcceptorImpl<>(1, Collections.emptyList());
+        proposal = new Proposal<>(1, "value");
+    }
+
+    @Benchmark
+    public boolean accept(SlotRange slots) {
+        return acceptor.accept(slots.next(), proposal);
+    }
+}
@@ -0,0 +1,104 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.learner.AsyncLearner;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The cost of an accept as the number of learners grows, with learners taught directly on the
+// accepting thread or through an AsyncLearner each. Learners may be given a delay on every teach,
+// standing in for a remote learner or one whose lock is contended.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LearnerFanOutBenchmark {
+    private static final int SLOT_WINDOW = 1024;
+
+    @Param({"1", "8"})
+    public int numLearners;
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    @Param({"0", "20"})
+    public int learnerDelayMicros;
+
+    private final List<AsyncLearner<String>> asyncLearners = new ArrayList<>();
+    private AcceptorImpl<String> acceptor;
+    private Proposal<String> proposal;
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        List<Learner<String>> learners = new ArrayList<>();
+        for (int i = 0; i < numLearners; i++) {
+            Learner<String> learner = new SlowLearner<>(new LearnerImpl<>(1), learnerDelayMicros);
+            if (async) {
+                AsyncLearner<String> asyncLearner = new AsyncLearner<>(learner);
+                asyncLearners.add(asyncLearner);
+                learner = asyncLearner;
+            }
+            learners.add(learner);
+        }
+        acceptor = new AcceptorImpl<>(1, learners);
+        proposal = new Proposal<>(1, "value");
+    }
+
+    @TearDown
+    public void tearDown() {
+        asyncLearners.forEach(AsyncLearner::close);
+    }
+
+    @Benchmark
+    public boolean accept() {
+        return acceptor.accept(counter++ % SLOT_WINDOW, proposal);
+    }
+
+    private static class SlowLearner<V> implements Learner<V> {
+        private final Learner<V> learner;
+        private final long delayNanos;
+
+        private SlowLearner(Learner<V> learner, int delayMicros) {
+            this.learner = learner;
+            this.delayNanos = TimeUnit.MICROSECONDS.toNanos(delayMicros);
+        }
+
+        @Override
+        public CompletableFuture<V> valueFuture(long slot) {
+            return learner.valueFuture(slot);
+        }
+
+        @Override
+        public void teach(int acceptorId, long slot, Proposal<V> proposal) {
+            if (delayNanos > 0) {
+                LockSupport.parkNanos(delayNanos);
+            }
+            learner.teach(acceptorId, slot, proposal);
+        }
+
+        @Override
+        public void chosen(long slot, V value) {
+            learner.chosen(slot, value);
+        }
+    }
+}
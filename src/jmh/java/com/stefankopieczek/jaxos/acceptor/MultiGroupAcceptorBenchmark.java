@@ -0,0 +1,53 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Several threads each accepting into randomly chosen groups of a shared multi-group acceptor, as
+// a node hosting many key ranges would see. With one stripe every request takes the same lock.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class MultiGroupAcceptorBenchmark {
+    @Param({"10000"})
+    public int numGroups;
+
+    @Param({"1", "64"})
+    public int stripes;
+
+    private MultiGroupAcceptor<String> acceptor;
+    private Proposal<String> proposal;
+
+    @Setup
+    public void setUp() {
+        acceptor = new MultiGroupAcceptor<>(1, group -> Collections.emptyList(), stripes);
+        proposal = new Proposal<>(1, "value");
+        for (int group = 0; group < numGroups; group++) {
+            acceptor.prepareFrom(group, 0, proposal);
+        }
+    }
+
+    @Benchmark
+    public boolean accept() {
+        int group = ThreadLocalRandom.current().nextInt(numGroups);
+        return acceptor.accept(group, 0, proposal);
+    }
+}
@@ -0,0 +1,109 @@
+package com.stefankopieczek.jaxos.codec;
+
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Compares ProposalCodec against plain Java serialization of an equivalent object.
+// Proposal itself isn't Serializable, so the baseline serializes a mirror with the same fields.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProposalCodecBenchmark {
+    @Param({"16", "256", "4096"})
+    public int valueSize;
+
+    private ProposalCodec<String> codec;
+    private Proposal<String> proposal;
+    private ByteBuffer buffer;
+    private ByteBuffer encoded;
+    private SerializableProposal serializableProposal;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() throws IOException {
+        char[] chars = new char[valueSize];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+
+        codec = new ProposalCodec<>(new StringCodec());
+        proposal = new Proposal<>(12345, value);
+        buffer = ByteBuffer.allocate(codec.sizeOf(proposal));
+        encoded = ByteBuffer.allocate(codec.sizeOf(proposal));
+        codec.encode(proposal, encoded);
+        encoded.flip();
+
+        serializableProposal = new SerializableProposal(12345, value);
+        serialized = javaSerialize(serializableProposal);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeWithCodec() {
+        buffer.clear();
+        codec.encode(proposal, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public Proposal<String> decodeWithCodec() {
+        encoded.rewind();
+        return codec.decodeProposal(encoded);
+    }
+
+    @Benchmark
+    public int sizeWithCodec() {
+        return codec.sizeOf(proposal);
+    }
+
+    @Benchmark
+    public byte[] encodeWithJavaSerialization() throws IOException {
+        return javaSerialize(serializableProposal);
+    }
+
+    @Benchmark
+    public Object decodeWithJavaSerialization() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+
+    private static byte[] javaSerialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static class SerializableProposal implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int proposalNumber;
+        private final String value;
+
+        private SerializableProposal(int proposalNumber, String value) {
+            this.proposalNumber = proposalNumber;
+            this.value = value;
+        }
+    }
+}
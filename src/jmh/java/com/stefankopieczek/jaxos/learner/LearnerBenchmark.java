@@ -0,0 +1,103 @@
+package com.stefankopieczek.jaxos.learner;
+
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures how long a learner takes to reach consensus on a slot as the number of acceptors grows.
+// Each invocation teaches every acceptor's vote for one slot. We cycle round a fixed window of
+// slots with an ever-increasing proposal number, so every teach is news to the learner but its
+// memory use stays flat over a long run.
+//
+// teachOne reports a single vote per invocation using proposals made up front, so it measures
+// the learner alone; run with the GC profiler (as 'gradle jmh' does) to check that teaching a
+// slot the learner has already seen allocates nothing.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LearnerBenchmark {
+    private static final int SLOT_WINDOW = 1024;
+    private static final int ROUNDS = 1 << 14;
+
+    @Param({"3", "5", "7", "9"})
+    public int numAcceptors;
+
+    private LearnerImpl<String> learner;
+    private long counter;
+    private Proposal<String>[] proposals;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void makeProposals() {
+        proposals = (Proposal<String>[]) new Proposal<?>[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            proposals[round] = new Proposal<>(round + 1, "value");
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        learner = new LearnerImpl<>(numAcceptors);
+        counter = 0;
+    }
+
+    @Benchmark
+    public String teachUnanimous() {
+        long slot = counter % SLOT_WINDOW;
+        Proposal<String> proposal = new Proposal<>((int) (counter / SLOT_WINDOW) + 1, "value");
+        counter++;
+
+        for (int acceptorId = 0; acceptorId < numAcceptors; acceptorId++) {
+            learner.teach(acceptorId, slot, proposal);
+        }
+        return learner.getValue(slot);
+    }
+
+    // Just under half the acceptors vote for a losing proposal first, so the learner has to track
+    // two ballots before the majority arrives. The loser has the lower ballot, as it would if it
+    // had been pre-empted; two values can't share a ballot.
+    @Benchmark
+    public String teachSplitVote() {
+        long slot = counter % SLOT_WINDOW;
+        int proposalNumber = 2 * (int) (counter / SLOT_WINDOW) + 1;
+        Proposal<String> loser = new Proposal<>(proposalNumber, "loser");
+        Proposal<String> winner = new Proposal<>(proposalNumber + 1, "winner");
+        counter++;
+
+        int numLosers = (numAcceptors - 1) / 2;
+        for (int acceptorId = 0; acceptorId < numAcceptors; acceptorId++) {
+            learner.teach(acceptorId, slot, (acceptorId < numLosers) ? loser : winner);
+        }
+        return learner.getValue(slot);
+    }
+
+    @Benchmark
+    public void teachOne() {
+        long vote = counter++;
+        int acceptorId = (int) (vote % numAcceptors);
+        long slot = (vote / numAcceptors) % SLOT_WINDOW;
+        long round = vote / ((long) numAcceptors * SLOT_WINDOW);
+        if (round == ROUNDS) {
+            // Out of proposals; start again with a fresh learner. This happens rarely enough not
+            // to show up in the allocation rate.
+            setUp();
+            round = 0;
+            counter = 1;
+        }
+        learner.teach(acceptorId, slot, proposals[(int) round]);
+    }
+}
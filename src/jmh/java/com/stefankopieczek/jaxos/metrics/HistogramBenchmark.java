@@ -0,0 +1,42 @@
+package com.stefankopieczek.jaxos.metrics;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The cost of recording a measurement, which proposers and learners pay on every round. Run with
+// the GC profiler to check that recording allocates nothing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HistogramBenchmark {
+    private final PaxosMetrics metrics = new PaxosMetrics();
+    private long value = 0;
+
+    @Benchmark
+    public void record() {
+        metrics.record(Distribution.PREPARE_ROUND_LATENCY, (value++ * 7919) & 0xFFFFF);
+    }
+
+    @Benchmark
+    public void increment() {
+        metrics.increment(Counter.PREPARE_ROUNDS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        metrics.record(Distribution.PREPARE_ROUND_LATENCY, System.nanoTime() & 0xFFFFF);
+    }
+}
@@ -0,0 +1,59 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.learner.Learner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Commands decided per second by many client threads, with and without batching.
+// Unbatched, every command takes its own round; batched, commands submitted while a round is in
+// flight share the next one. Acceptors keep every slot, so memory grows over the run.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BatchingProposerBenchmark {
+    @Param({"1", "64"})
+    public int maxBatchSize;
+
+    private BatchingProposer<String> proposer;
+
+    @Setup
+    public void setUp() {
+        List<Learner<List<String>>> learners = Collections.emptyList();
+        List<Acceptor<List<String>>> acceptors = new ArrayList<>();
+        for (int id = 0; id < 3; id++) {
+            acceptors.add(new AcceptorImpl<>(id, learners));
+        }
+        proposer = BatchingProposer.start(new LeaderProposer<>(1, acceptors), maxBatchSize, 0, TimeUnit.MICROSECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        proposer.close();
+    }
+
+    @Benchmark
+    public long submit() {
+        return proposer.submit("command").join();
+    }
+}
@@ -0,0 +1,72 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Two proposers on separate threads competing for the same slots of a shared set of acceptors.
+// Each keeps pre-empting the other's promises, so this shows what contention costs compared to
+// the uncontended ProposerBenchmark, and how much randomized backoff wins back.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DuellingProposersBenchmark {
+    @Param({"3", "5"})
+    public int numAcceptors;
+
+    @Param({"0", "50"})
+    public int maxBackoffMicros;
+
+    private ProposerImpl<String> first;
+    private ProposerImpl<String> second;
+
+    @State(Scope.Thread)
+    public static class SlotCounter {
+        private long counter;
+
+        private long next() {
+            return counter++ % ProposerBenchmark.SLOT_WINDOW;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        List<Acceptor<String>> acceptors = ProposerBenchmark.createAcceptors(numAcceptors);
+        first = new ProposerImpl<>(1, acceptors, backoff());
+        second = new ProposerImpl<>(2, acceptors, backoff());
+    }
+
+    private Backoff backoff() {
+        return new Backoff(Math.min(1, maxBackoffMicros), maxBackoffMicros, TimeUnit.MICROSECONDS);
+    }
+
+    @Benchmark
+    @Group("duel")
+    @GroupThreads(1)
+    public void firstProposer(SlotCounter slots) {
+        first.propose(slots.next(), "first");
+    }
+
+    @Benchmark
+    @Group("duel")
+    @GroupThreads(1)
+    public void secondProposer(SlotCounter slots) {
+        second.propose(slots.next(), "second");
+    }
+}
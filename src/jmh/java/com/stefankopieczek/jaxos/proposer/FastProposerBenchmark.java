@@ -0,0 +1,48 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Uncontended proposals into fresh slots, through a FastProposer or a classic ProposerImpl. The
+// fast ballot is prepared once, so each value then costs one accept per acceptor rather than a
+// prepare and an accept. Fast quorums need at least four acceptors. Acceptors keep every slot,
+// since a fast ballot only covers slots nobody has accepted anything in, so memory grows over
+// the run.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FastProposerBenchmark {
+    @Param({"4", "5"})
+    public int numAcceptors;
+
+    @Param({"true", "false"})
+    public boolean fast;
+
+    private Proposer<String> proposer;
+    private long slot;
+
+    @Setup
+    public void setUp() {
+        proposer = fast
+                ? new FastProposer<>(1, ProposerBenchmark.createAcceptors(numAcceptors))
+                : new ProposerImpl<>(1, ProposerBenchmark.createAcceptors(numAcceptors));
+    }
+
+    @Benchmark
+    public void propose() {
+        proposer.propose(slot++, "value");
+    }
+}
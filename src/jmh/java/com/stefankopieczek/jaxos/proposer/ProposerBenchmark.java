@@ -0,0 +1,58 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.learner.Learner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Single-decree throughput: each invocation runs both phases of Paxos for one slot against
+// in-process acceptors. Slots cycle round a fixed window so the acceptors' state stays the same
+// size; re-proposing into a decided slot still runs the full protocol.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProposerBenchmark {
+    static final int SLOT_WINDOW = 1024;
+
+    @Param({"3", "5"})
+    public int numAcceptors;
+
+    private ProposerImpl<String> proposer;
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        proposer = new ProposerImpl<>(1, createAcceptors(numAcceptors));
+    }
+
+    @Benchmark
+    public void propose() {
+        proposer.propose(counter++ % SLOT_WINDOW, "value");
+    }
+
+    static List<Acceptor<String>> createAcceptors(int numAcceptors) {
+        List<Acceptor<String>> acceptors = new ArrayList<>();
+        List<Learner<String>> learners = Collections.emptyList();
+        for (int id = 0; id < numAcceptors; id++) {
+            acceptors.add(new AcceptorImpl<>(id, learners));
+        }
+        return acceptors;
+    }
+}
@@ -1,10 +1,27 @@
 package com.stefankopieczek.jaxos.acceptor;
 
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
 import com.stefankopieczek.jaxos.core.Promise;
 import com.stefankopieczek.jaxos.core.Proposal;
-import java.util.Optional;
+import com.stefankopieczek.jaxos.core.Slots;
 
 public interface Acceptor<V> {
-    public Optional<Promise<V>> prepare(Proposal<V> p);
-    public boolean accept(Proposal<V> p);
+    public default PrepareResult<Promise<V>> prepare(Proposal<V> p) {
+        return prepare(Slots.SINGLE_DECREE, p);
+    }
+
+    public default PrepareResult<Promise<V>> prepare(long slot, Proposal<V> p) {
+        return prepareFrom(slot, p).map(promise -> promise.getPromise(slot));
+    }
+
+    // Prepares every slot from firstSlot onwards in a single round, as used by a Multi-Paxos leader.
+    // If the acceptor has already promised a higher ballot, the rejection says which.
+    public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> p);
+
+    public default boolean accept(Proposal<V> p) {
+        return accept(Slots.SINGLE_DECREE, p);
+    }
+
+    public boolean accept(long slot, Proposal<V> p);
 }
@@ -1,51 +1,133 @@
 package com.stefankopieczek.jaxos.acceptor;
 
-import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
 import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.jfr.AcceptEvent;
+import com.stefankopieczek.jaxos.jfr.PromiseEvent;
 import com.stefankopieczek.jaxos.learner.Learner;
 import java.util.Collection;
-import java.util.Optional;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Acceptor which takes no locks, so requests for different slots proceed in parallel.
+// The promised ballot is only ever raised, by compare-and-set, and each slot's accepted proposal
+// is an immutable value that is swapped in the same way. Learners are taught outside of any
+// critical section, once an accept has taken effect.
 public class AcceptorImpl<V> implements Acceptor<V> {
     private final int id;
     private final Collection<Learner<V>> learners;
-    private int maxProposalNumber = -1;
-    private Proposal<V> acceptedProposal;
+    private final AtomicLong maxProposalNumber = new AtomicLong(Ballot.NONE);
+    private final ConcurrentNavigableMap<Long, Proposal<V>> acceptedProposals;
 
     public AcceptorImpl(int id, Collection<Learner<V>> learners) {
         this.id = id;
         this.learners = learners;
-        this.acceptedProposal = null;
+        this.acceptedProposals = new ConcurrentSkipListMap<>();
     }
 
     @Override
-    public synchronized Optional<Promise<V>> prepare(Proposal<V> proposal) {
-        if (proposal.getProposalNumber() < maxProposalNumber) {
-            return Optional.empty();
-        } else {
-            if (maxProposalNumber < proposal.getProposalNumber()) {
-                maxProposalNumber = proposal.getProposalNumber();
-            }
+    public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> proposal) {
+        PromiseEvent event = new PromiseEvent();
+        event.begin();
+        PrepareResult<MultiPromise<V>> result = promise(firstSlot, proposal);
+        event.commit(id, firstSlot, proposal.getProposalNumber(), result);
+        return result;
+    }
 
-            if (acceptedProposal != null) {
-                return Optional.of(Promise.withProposal(acceptedProposal));
-            } else {
-                return Optional.of(Promise.withoutProposal());
-            }
+    @Override
+    public boolean accept(long slot, Proposal<V> p) {
+        AcceptEvent event = new AcceptEvent();
+        event.begin();
+        boolean accepted = tryAccept(slot, p);
+        event.commit(id, slot, p.getProposalNumber(), accepted);
+        return accepted;
+    }
+
+    private PrepareResult<MultiPromise<V>> promise(long firstSlot, Proposal<V> proposal) {
+        long promised = raisePromise(proposal.getProposalNumber());
+        if (proposal.getProposalNumber() < promised) {
+            return PrepareResult.rejected(promised);
         }
+
+        // A single proposal number is promised across all slots, so one prepare from a leader
+        // covers every slot it will subsequently fill.
+        // Any accept that completes after the promise was raised will see it and back out, so
+        // everything accepted below our ballot is already in the map.
+        return PrepareResult.promised(new MultiPromise<>(firstSlot, snapshot(firstSlot)));
     }
 
-    @Override
-    public synchronized boolean accept(Proposal<V> p) {
-        if (p.getProposalNumber() < maxProposalNumber) {
+    private boolean tryAccept(long slot, Proposal<V> p) {
+        long ballot = p.getProposalNumber();
+        if (ballot < raisePromise(ballot)) {
             return false;
-        } else {
-            for (Learner learner : learners) {
-                learner.teach(id, p);
+        }
+
+        Proposal<V> previous;
+        do {
+            previous = acceptedProposals.get(slot);
+            if (previous != null && previous.getProposalNumber() > ballot) {
+                return false;
+            } else if (previous != null && conflicts(previous, p)) {
+                return false;
+            }
+        } while (!swap(slot, previous, p));
+
+        // A prepare may have raised the promise while we were swapping, and taken its snapshot
+        // before our proposal landed. In that case we can't count this as accepted, so restore
+        // what was there before if nothing else has replaced it since.
+        // A prepare that did see our proposal may report it, which is harmless: the value was
+        // genuinely proposed under that ballot.
+        if (ballot < maxProposalNumber.get()) {
+            swap(slot, p, previous);
+            return false;
+        }
+
+        for (Learner<V> learner : learners) {
+            learner.teach(id, slot, p);
+        }
+        return true;
+    }
+
+    // In a fast ballot, clients send values of their own, and we must accept only the first.
+    static <V> boolean conflicts(Proposal<V> accepted, Proposal<V> p) {
+        return Ballot.isFast(p.getProposalNumber()) && accepted.getProposalNumber() == p.getProposalNumber()
+                && !Objects.equals(accepted.getValue(), p.getValue());
+    }
+
+    // Raises the promised ballot to the given one if it is higher, returning the promise now in force.
+    private long raisePromise(long ballot) {
+        while (true) {
+            long promised = maxProposalNumber.get();
+            if (ballot <= promised || maxProposalNumber.compareAndSet(promised, ballot)) {
+                return Math.max(promised, ballot);
             }
+        }
+    }
 
-            acceptedProposal = p;
-            return true;
+    // Copies the accepted proposals from the given slot onwards. TreeMap's own copy constructor
+    // trusts the size of a sorted map not to change under it, so we copy entry by entry instead.
+    private NavigableMap<Long, Proposal<V>> snapshot(long firstSlot) {
+        NavigableMap<Long, Proposal<V>> snapshot = new TreeMap<>();
+        for (Map.Entry<Long, Proposal<V>> entry : acceptedProposals.tailMap(firstSlot, true).entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue());
+        }
+        return snapshot;
+    }
+
+    private boolean swap(long slot, Proposal<V> expected, Proposal<V> replacement) {
+        if (expected == null) {
+            return acceptedProposals.putIfAbsent(slot, replacement) == null;
+        } else if (replacement == null) {
+            return acceptedProposals.remove(slot, expected);
+        } else {
+            return acceptedProposals.replace(slot, expected, replacement);
         }
     }
 }
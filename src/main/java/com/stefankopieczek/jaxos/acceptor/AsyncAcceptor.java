@@ -0,0 +1,19 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.util.concurrent.CompletableFuture;
+
+// Non-blocking counterpart to Acceptor, so that a proposer can have requests outstanding to
+// every acceptor at once.
+public interface AsyncAcceptor<V> {
+    public default CompletableFuture<PrepareResult<Promise<V>>> prepare(long slot, Proposal<V> p) {
+        return prepareFrom(slot, p).thenApply(result -> result.map(promise -> promise.getPromise(slot)));
+    }
+
+    public CompletableFuture<PrepareResult<MultiPromise<V>>> prepareFrom(long firstSlot, Proposal<V> p);
+
+    public CompletableFuture<Boolean> accept(long slot, Proposal<V> p);
+}
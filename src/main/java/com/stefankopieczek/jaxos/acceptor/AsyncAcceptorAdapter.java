@@ -0,0 +1,28 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Exposes a blocking Acceptor as an AsyncAcceptor by running each request on the given executor.
+public class AsyncAcceptorAdapter<V> implements AsyncAcceptor<V> {
+    private final Acceptor<V> acceptor;
+    private final Executor executor;
+
+    public AsyncAcceptorAdapter(Acceptor<V> acceptor, Executor executor) {
+        this.acceptor = acceptor;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<PrepareResult<MultiPromise<V>>> prepareFrom(long firstSlot, Proposal<V> p) {
+        return CompletableFuture.supplyAsync(() -> acceptor.prepareFrom(firstSlot, p), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> accept(long slot, Proposal<V> p) {
+        return CompletableFuture.supplyAsync(() -> acceptor.accept(slot, p), executor);
+    }
+}
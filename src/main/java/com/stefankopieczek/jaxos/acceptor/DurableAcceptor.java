@@ -0,0 +1,257 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import com.stefankopieczek.jaxos.codec.ProposalCodec;
+import com.stefankopieczek.jaxos.codec.ValueCodec;
+import com.stefankopieczek.jaxos.codec.VarInts;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.jfr.AcceptEvent;
+import com.stefankopieczek.jaxos.jfr.PromiseEvent;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.storage.SnapshotFile;
+import com.stefankopieczek.jaxos.storage.WriteAheadLog;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Acceptor whose promises and accepts survive a restart.
+// Every change of state is recorded in a write-ahead log, and no reply is sent until the records
+// it depends on are on disk; otherwise a crash could make us forget a promise we had already made.
+// State is updated under the lock but the disk is waited on outside it, so concurrent requests
+// share a single fsync.
+//
+// Once the application knows that a prefix of the log has been decided, it can compact() the
+// acceptor. This forgets the accepted proposals in those slots and writes a snapshot of what
+// remains, after which every log segment older than the snapshot is deleted. Recovery then only
+// has to load the snapshot and replay the log written since.
+public class DurableAcceptor<V> implements Acceptor<V>, Closeable {
+    private static final byte PROMISE_RECORD = 1;
+    private static final byte ACCEPT_RECORD = 2;
+
+    private final int id;
+    private final Collection<Learner<V>> learners;
+    private final ProposalCodec<V> codec;
+    private final WriteAheadLog log;
+    private final SnapshotFile snapshotFile;
+    private final Lock lock = new ReentrantLock();
+    private final Lock snapshotLock = new ReentrantLock();
+    private long maxProposalNumber = Ballot.NONE;
+    private long firstRetainedSlot = 0;
+    private final NavigableMap<Long, Proposal<V>> acceptedProposals;
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(1024);
+    private long lastSnapshotOffset = 0;
+
+    public DurableAcceptor(int id, Collection<Learner<V>> learners, Path directory, ValueCodec<V> valueCodec)
+            throws IOException {
+        this(id, learners, directory, valueCodec, WriteAheadLog.DEFAULT_SEGMENT_SIZE);
+    }
+
+    public DurableAcceptor(int id, Collection<Learner<V>> learners, Path directory, ValueCodec<V> valueCodec,
+                           long segmentSize) throws IOException {
+        this.id = id;
+        this.learners = learners;
+        this.codec = new ProposalCodec<>(valueCodec);
+        this.acceptedProposals = new TreeMap<>();
+        this.log = new WriteAheadLog(directory, segmentSize);
+        this.snapshotFile = new SnapshotFile(directory.resolve("snapshot"));
+
+        Optional<ByteBuffer> snapshot = snapshotFile.read();
+        if (snapshot.isPresent()) {
+            restoreSnapshot(snapshot.get());
+        }
+        this.log.replay(lastSnapshotOffset, this::recover);
+    }
+
+    // Events span the wait for the disk, which is usually the larger part of a request.
+    @Override
+    public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> proposal) {
+        PromiseEvent event = new PromiseEvent();
+        event.begin();
+        PrepareResult<MultiPromise<V>> result = promise(firstSlot, proposal);
+        event.commit(id, firstSlot, proposal.getProposalNumber(), result);
+        return result;
+    }
+
+    @Override
+    public boolean accept(long slot, Proposal<V> p) {
+        AcceptEvent event = new AcceptEvent();
+        event.begin();
+        boolean accepted = tryAccept(slot, p);
+        event.commit(id, slot, p.getProposalNumber(), accepted);
+        return accepted;
+    }
+
+    private PrepareResult<MultiPromise<V>> promise(long firstSlot, Proposal<V> proposal) {
+        PrepareResult<MultiPromise<V>> result;
+        long sequence;
+        lock.lock();
+        try {
+            if (firstSlot < firstRetainedSlot) {
+                // We can no longer say what we accepted in those slots, so can't safely promise them.
+                // No higher ballot would change that, so we answer as if we were unreachable, and the
+                // proposer has to find its quorum among acceptors that still have the slots.
+                return PrepareResult.rejected(Ballot.NONE);
+            } else if (proposal.getProposalNumber() < maxProposalNumber) {
+                return PrepareResult.rejected(maxProposalNumber);
+            }
+
+            if (maxProposalNumber < proposal.getProposalNumber()) {
+                maxProposalNumber = proposal.getProposalNumber();
+                sequence = log.append(promiseRecord(maxProposalNumber));
+            } else {
+                // We've made this promise before, but it may not have reached the disk yet.
+                sequence = log.lastAppended();
+            }
+            result = PrepareResult.promised(new MultiPromise<>(firstSlot, acceptedProposals.tailMap(firstSlot, true)));
+        } finally {
+            lock.unlock();
+        }
+
+        log.awaitDurable(sequence);
+        return result;
+    }
+
+    private boolean tryAccept(long slot, Proposal<V> p) {
+        long sequence;
+        lock.lock();
+        try {
+            if (p.getProposalNumber() < maxProposalNumber || slot < firstRetainedSlot) {
+                return false;
+            }
+            Proposal<V> previous = acceptedProposals.get(slot);
+            if (previous != null && AcceptorImpl.conflicts(previous, p)) {
+                return false;
+            }
+
+            maxProposalNumber = p.getProposalNumber();
+            acceptedProposals.put(slot, p);
+            sequence = log.append(acceptRecord(slot, p));
+        } finally {
+            lock.unlock();
+        }
+
+        log.awaitDurable(sequence);
+        for (Learner<V> learner : learners) {
+            learner.teach(id, slot, p);
+        }
+        return true;
+    }
+
+    // Discards all state for slots before firstUndecidedSlot, which the caller must know to have
+    // been decided, and reclaims the log space they used.
+    public void compact(long firstUndecidedSlot) throws IOException {
+        ByteBuffer snapshot;
+        long sequence;
+        long offset;
+        lock.lock();
+        try {
+            if (firstUndecidedSlot > firstRetainedSlot) {
+                acceptedProposals.headMap(firstUndecidedSlot).clear();
+                firstRetainedSlot = firstUndecidedSlot;
+            }
+
+            offset = log.appendedOffset();
+            sequence = log.lastAppended();
+            snapshot = encodeSnapshot(offset);
+        } finally {
+            lock.unlock();
+        }
+
+        // The snapshot stands in for every record before its offset, so if we are to replay from
+        // that offset on recovery, those records must already be on disk.
+        log.awaitDurable(sequence);
+
+        snapshotLock.lock();
+        try {
+            if (offset >= lastSnapshotOffset) {
+                snapshotFile.write(snapshot);
+                lastSnapshotOffset = offset;
+                log.deleteBefore(offset);
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    public int getSegmentCount() throws IOException {
+        return log.getSegmentCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    // Snapshot layout: [varint log offset][varint max proposal number], followed by the retained
+    // accepted proposals laid out as a MultiPromise starting at the first retained slot.
+    private ByteBuffer encodeSnapshot(long offset) {
+        MultiPromise<V> retained = new MultiPromise<>(firstRetainedSlot, acceptedProposals);
+        ByteBuffer out = ByteBuffer.allocate(
+                VarInts.sizeOf(offset) + VarInts.sizeOf(maxProposalNumber) + codec.sizeOf(retained));
+        VarInts.write(offset, out);
+        VarInts.write(maxProposalNumber, out);
+        codec.encode(retained, out);
+        out.flip();
+        return out;
+    }
+
+    private void restoreSnapshot(ByteBuffer snapshot) {
+        lastSnapshotOffset = VarInts.read(snapshot);
+        maxProposalNumber = VarInts.read(snapshot);
+        MultiPromise<V> retained = codec.decodeMultiPromise(snapshot);
+        firstRetainedSlot = retained.getFirstSlot();
+        acceptedProposals.putAll(retained.getAcceptedProposals());
+    }
+
+    private void recover(ByteBuffer record) {
+        byte type = record.get();
+        if (type == PROMISE_RECORD) {
+            maxProposalNumber = Math.max(maxProposalNumber, VarInts.read(record));
+        } else if (type == ACCEPT_RECORD) {
+            long slot = VarInts.read(record);
+            Proposal<V> proposal = codec.decodeProposal(record);
+            maxProposalNumber = Math.max(maxProposalNumber, proposal.getProposalNumber());
+            if (slot >= firstRetainedSlot) {
+                acceptedProposals.put(slot, proposal);
+            }
+        } else {
+            throw new IllegalStateException("Unknown record type " + type + " in acceptor log");
+        }
+    }
+
+    private ByteBuffer promiseRecord(long proposalNumber) {
+        ByteBuffer out = recordBuffer(1 + VarInts.sizeOf(proposalNumber));
+        out.put(PROMISE_RECORD);
+        VarInts.write(proposalNumber, out);
+        out.flip();
+        return out;
+    }
+
+    private ByteBuffer acceptRecord(long slot, Proposal<V> proposal) {
+        ByteBuffer out = recordBuffer(1 + VarInts.sizeOf(slot) + codec.sizeOf(proposal));
+        out.put(ACCEPT_RECORD);
+        VarInts.write(slot, out);
+        codec.encode(proposal, out);
+        out.flip();
+        return out;
+    }
+
+    // Records are copied into the log as they are appended, so a single buffer can be reused for
+    // all of them.
+    private ByteBuffer recordBuffer(int size) {
+        if (recordBuffer.capacity() < size) {
+            recordBuffer = ByteBuffer.allocate(Math.max(size, recordBuffer.capacity() * 2));
+        }
+        recordBuffer.clear();
+        return recordBuffer;
+    }
+}
@@ -0,0 +1,99 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Acceptor which grants read leases. Each prepare or accept it honours gives the proposer that
+// sent it a lease, and until that runs out we refuse to prepare or accept for any other proposer.
+// A proposer that has heard from a quorum of leasing acceptors therefore knows that nobody else
+// can get a value chosen before its lease expires, and can serve reads without sending anything.
+//
+// Leases are timed from when we receive a request, which is after the proposer sent it. As long as
+// the clocks involved run at close to the same rate, a proposer that times its lease from when it
+// sent the request, less an allowance for drift, will always see it expire before we do; see
+// LeaderProposer. Only the rate matters, since each side measures an interval on its own clock.
+//
+// The lease is claimed before the request is passed on and handed back if the request fails, so
+// a lease is never granted by a promise that a request from another proposer could slip past.
+public class LeasingAcceptor<V> implements Acceptor<V> {
+    private final Acceptor<V> acceptor;
+    private final long leaseNanos;
+    private final AtomicReference<Lease> lease;
+
+    public LeasingAcceptor(Acceptor<V> acceptor, long lease, TimeUnit unit) {
+        this.acceptor = acceptor;
+        this.leaseNanos = unit.toNanos(lease);
+        this.lease = new AtomicReference<>(new Lease(0, Ballot.NONE, System.nanoTime()));
+    }
+
+    @Override
+    public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> p) {
+        Lease claimed = claim(p.getProposalNumber());
+        if (claimed == null) {
+            return PrepareResult.rejected(lease.get().ballot);
+        }
+
+        PrepareResult<MultiPromise<V>> result = acceptor.prepareFrom(firstSlot, p);
+        settle(claimed, result.isPromised());
+        return result;
+    }
+
+    @Override
+    public boolean accept(long slot, Proposal<V> p) {
+        Lease claimed = claim(p.getProposalNumber());
+        if (claimed == null) {
+            return false;
+        }
+
+        boolean accepted = acceptor.accept(slot, p);
+        settle(claimed, accepted);
+        return accepted;
+    }
+
+    // Grants or renews the lease for the ballot's proposer, returning the new lease, or null if
+    // another proposer holds it.
+    private Lease claim(long ballot) {
+        int proposerId = Ballot.proposerId(ballot);
+        while (true) {
+            Lease current = lease.get();
+            long now = System.nanoTime();
+            if (current.holder != proposerId && now - current.expiresNanos < 0) {
+                return null;
+            }
+
+            Lease claimed = new Lease(proposerId, ballot, now + leaseNanos);
+            claimed.replaced = current;
+            if (lease.compareAndSet(current, claimed)) {
+                return claimed;
+            }
+        }
+    }
+
+    // If the request failed, reinstates the lease it claimed over, unless that has been replaced
+    // again since.
+    private void settle(Lease claimed, boolean succeeded) {
+        if (!succeeded) {
+            lease.compareAndSet(claimed, claimed.replaced);
+        }
+        claimed.replaced = null;
+    }
+
+    private static final class Lease {
+        private final int holder;
+        private final long ballot;
+        private final long expiresNanos;
+
+        // Only used by the request that claimed this lease, until it settles.
+        private Lease replaced;
+
+        private Lease(int holder, long ballot, long expiresNanos) {
+            this.holder = holder;
+            this.ballot = ballot;
+            this.expiresNanos = expiresNanos;
+        }
+    }
+}
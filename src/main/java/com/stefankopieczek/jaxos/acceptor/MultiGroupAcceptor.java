@@ -0,0 +1,259 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.learner.Learner;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+// Acceptor for many independent consensus groups at once, such as one per key range, each with
+// its own promises and log of slots. Use group() to get an Acceptor for a single group.
+//
+// Groups are spread by id over a fixed number of stripes, each with its own lock, so requests for
+// groups in different stripes never contend. A stripe keeps its groups in an open-addressed table
+// keyed by the primitive group id, and a group keeps its accepted proposals in parallel arrays
+// sorted by slot, which it only allocates on its first accept. An idle group therefore costs about
+// fifty bytes: its own fields plus its share of the table.
+public class MultiGroupAcceptor<V> {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final int id;
+    private final IntFunction<? extends Collection<Learner<V>>> learners;
+    private final Stripe<V>[] stripes;
+    private final int stripeShift;
+
+    // Learners are looked up by group id on each accept, so groups may be taught separately.
+    public MultiGroupAcceptor(int id, IntFunction<? extends Collection<Learner<V>>> learners) {
+        this(id, learners, DEFAULT_STRIPES);
+    }
+
+    public MultiGroupAcceptor(int id, IntFunction<? extends Collection<Learner<V>>> learners, int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Need at least one stripe, not " + stripes);
+        }
+
+        int bits = 32 - Integer.numberOfLeadingZeros(stripes - 1);
+        this.id = id;
+        this.learners = learners;
+        this.stripes = Stripe.newStripes(1 << bits);
+        this.stripeShift = 32 - bits;
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+    }
+
+    public Acceptor<V> group(int group) {
+        return new Acceptor<V>() {
+            @Override
+            public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> p) {
+                return MultiGroupAcceptor.this.prepareFrom(group, firstSlot, p);
+            }
+
+            @Override
+            public boolean accept(long slot, Proposal<V> p) {
+                return MultiGroupAcceptor.this.accept(group, slot, p);
+            }
+        };
+    }
+
+    public PrepareResult<MultiPromise<V>> prepareFrom(int group, long firstSlot, Proposal<V> proposal) {
+        long ballot = proposal.getProposalNumber();
+        int hash = hash(group);
+        Stripe<V> stripe = stripeFor(hash);
+        stripe.lock.lock();
+        try {
+            Group<V> state = stripe.get(group, hash);
+            if (state == null) {
+                // A group we've never heard of has promised nothing, so we only need to remember it
+                // once we make it a promise.
+                state = stripe.add(group, hash);
+            } else if (ballot < state.promised) {
+                return PrepareResult.rejected(state.promised);
+            }
+
+            state.promised = ballot;
+            return PrepareResult.promised(new MultiPromise<>(firstSlot, state.acceptedFrom(firstSlot)));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public boolean accept(int group, long slot, Proposal<V> proposal) {
+        long ballot = proposal.getProposalNumber();
+        int hash = hash(group);
+        Stripe<V> stripe = stripeFor(hash);
+        stripe.lock.lock();
+        try {
+            Group<V> state = stripe.get(group, hash);
+            if (state == null) {
+                state = stripe.add(group, hash);
+            } else if (ballot < state.promised) {
+                return false;
+            } else {
+                // As in AcceptorImpl, a fast ballot may only ever carry one value per slot.
+                Proposal<V> previous = state.accepted(slot);
+                if (previous != null && AcceptorImpl.conflicts(previous, proposal)) {
+                    return false;
+                }
+            }
+
+            state.promised = ballot;
+            state.accept(slot, proposal);
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        for (Learner<V> learner : learners.apply(group)) {
+            learner.teach(id, slot, proposal);
+        }
+        return true;
+    }
+
+    // The number of groups that have been sent a prepare or accept which they didn't reject.
+    public int getGroupCount() {
+        int count = 0;
+        for (Stripe<V> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                count += stripe.size;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    // Multiplying by an odd constant permutes the ids, so consecutive ids still get distinct table
+    // positions from the low bits, while the well-mixed high bits pick the stripe.
+    private static int hash(int group) {
+        return group * 0x9E3779B9;
+    }
+
+    private Stripe<V> stripeFor(int hash) {
+        return (stripes.length == 1) ? stripes[0] : stripes[hash >>> stripeShift];
+    }
+
+    private static final class Stripe<V> {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final Lock lock = new ReentrantLock();
+        private int[] ids = new int[INITIAL_CAPACITY];
+        private Group<V>[] groups = newTable(INITIAL_CAPACITY);
+        private int size = 0;
+
+        private Group<V> get(int id, int hash) {
+            int mask = groups.length - 1;
+            for (int i = hash & mask; groups[i] != null; i = (i + 1) & mask) {
+                if (ids[i] == id) {
+                    return groups[i];
+                }
+            }
+            return null;
+        }
+
+        private Group<V> add(int id, int hash) {
+            // Keep the table at most three-quarters full, so probes stay short.
+            if ((size + 1) * 4 > groups.length * 3) {
+                resize(groups.length * 2);
+            }
+
+            Group<V> group = new Group<>();
+            insert(id, hash, group);
+            size += 1;
+            return group;
+        }
+
+        private void insert(int id, int hash, Group<V> group) {
+            int mask = groups.length - 1;
+            int i = hash & mask;
+            while (groups[i] != null) {
+                i = (i + 1) & mask;
+            }
+            ids[i] = id;
+            groups[i] = group;
+        }
+
+        private void resize(int capacity) {
+            int[] oldIds = ids;
+            Group<V>[] oldGroups = groups;
+            ids = new int[capacity];
+            groups = newTable(capacity);
+            for (int i = 0; i < oldGroups.length; i++) {
+                if (oldGroups[i] != null) {
+                    insert(oldIds[i], hash(oldIds[i]), oldGroups[i]);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Stripe<V>[] newStripes(int count) {
+            return (Stripe<V>[]) new Stripe<?>[count];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Group<V>[] newTable(int capacity) {
+            return (Group<V>[]) new Group<?>[capacity];
+        }
+    }
+
+    // Only touched under its stripe's lock.
+    private static final class Group<V> {
+        private long promised = Ballot.NONE;
+        private long[] slots;
+        private Proposal<V>[] proposals;
+        private int size = 0;
+
+        private void accept(long slot, Proposal<V> proposal) {
+            if (slots == null) {
+                slots = new long[2];
+                proposals = newProposals(2);
+            }
+
+            // Leaders fill slots in order, so the new slot almost always goes on the end.
+            int index = (size == 0 || slots[size - 1] < slot)
+                    ? -(size + 1)
+                    : Arrays.binarySearch(slots, 0, size, slot);
+            if (index >= 0) {
+                proposals[index] = proposal;
+                return;
+            }
+
+            index = -(index + 1);
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                proposals = Arrays.copyOf(proposals, size * 2);
+            }
+            System.arraycopy(slots, index, slots, index + 1, size - index);
+            System.arraycopy(proposals, index, proposals, index + 1, size - index);
+            slots[index] = slot;
+            proposals[index] = proposal;
+            size += 1;
+        }
+
+        private Proposal<V> accepted(long slot) {
+            int index = (size == 0) ? -1 : Arrays.binarySearch(slots, 0, size, slot);
+            return (index >= 0) ? proposals[index] : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Proposal<V>[] newProposals(int capacity) {
+            return (Proposal<V>[]) new Proposal<?>[capacity];
+        }
+
+        private NavigableMap<Long, Proposal<V>> acceptedFrom(long firstSlot) {
+            NavigableMap<Long, Proposal<V>> accepted = new TreeMap<>();
+            int index = (size == 0) ? 0 : Arrays.binarySearch(slots, 0, size, firstSlot);
+            for (int i = (index >= 0) ? index : -(index + 1); i < size; i++) {
+                accepted.put(slots[i], proposals[i]);
+            }
+            return accepted;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.stefankopieczek.jaxos.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Batches of commands, as proposed by a BatchingProposer.
+// Laid out as [varint count] followed by each command, length-prefixed as by ProposalCodec.
+public class BatchCodec<V> implements ValueCodec<List<V>> {
+    private final ProposalCodec<V> commandCodec;
+
+    public BatchCodec(ValueCodec<V> commandCodec) {
+        this.commandCodec = new ProposalCodec<>(commandCodec);
+    }
+
+    @Override
+    public int sizeOf(List<V> batch) {
+        int size = VarInts.sizeOf(batch.size());
+        for (V command : batch) {
+            size += commandCodec.sizeOfValue(command);
+        }
+        return size;
+    }
+
+    @Override
+    public void encode(List<V> batch, ByteBuffer out) {
+        VarInts.write(batch.size(), out);
+        for (V command : batch) {
+            commandCodec.encodeValue(command, out);
+        }
+    }
+
+    @Override
+    public List<V> decode(ByteBuffer in) {
+        int count = VarInts.readInt(in);
+        if (count < 0 || count > in.remaining()) {
+            // Every command takes at least one byte, so this can't be a real batch.
+            throw new IllegalArgumentException("Batch of " + count + " commands overruns buffer");
+        }
+
+        List<V> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            batch.add(commandCodec.decodeValue(in));
+        }
+        return batch;
+    }
+}
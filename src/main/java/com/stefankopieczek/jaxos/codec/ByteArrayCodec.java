@@ -0,0 +1,23 @@
+package com.stefankopieczek.jaxos.codec;
+
+import java.nio.ByteBuffer;
+
+// Opaque binary values, for applications that do their own serialization.
+public class ByteArrayCodec implements ValueCodec<byte[]> {
+    @Override
+    public int sizeOf(byte[] value) {
+        return value.length;
+    }
+
+    @Override
+    public void encode(byte[] value, ByteBuffer out) {
+        out.put(value);
+    }
+
+    @Override
+    public byte[] decode(ByteBuffer in) {
+        byte[] value = new byte[in.remaining()];
+        in.get(value);
+        return value;
+    }
+}
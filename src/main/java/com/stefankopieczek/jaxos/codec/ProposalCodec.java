@@ -0,0 +1,161 @@
+package com.stefankopieczek.jaxos.codec;
+
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compact binary encoding of the core Paxos types.
+//   Value:        varint (length + 1), then the value's bytes; a length of 0 denotes null.
+//   Ballot:       varint high 32 bits (the round), then varint low 32 bits (the proposer id and the
+//                 fast flag), each as an unsigned 32-bit int, so that every ballot round-trips.
+//   Proposal:     ballot, then the value.
+//   Promise:      flag byte (0 = no proposal, 1 = has proposal), then the proposal if present.
+//   MultiPromise: varint first slot, varint count, then for each accepted proposal the varint gap
+//                 from the previous slot (or from the first slot) followed by the proposal.
+// Encoders write straight into the caller's buffer, which can be reused between messages; the
+// sizeOf methods give the exact space required. Decoders read values in place from the buffer.
+public class ProposalCodec<V> {
+    private static final byte NO_PROPOSAL = 0;
+    private static final byte HAS_PROPOSAL = 1;
+
+    private final ValueCodec<V> valueCodec;
+
+    public ProposalCodec(ValueCodec<V> valueCodec) {
+        this.valueCodec = valueCodec;
+    }
+
+    public int sizeOfValue(V value) {
+        if (value == null) {
+            return 1;
+        }
+
+        int size = valueCodec.sizeOf(value);
+        return VarInts.sizeOf(size + 1L) + size;
+    }
+
+    public void encodeValue(V value, ByteBuffer out) {
+        if (value == null) {
+            VarInts.write(0L, out);
+        } else {
+            VarInts.write(valueCodec.sizeOf(value) + 1L, out);
+            valueCodec.encode(value, out);
+        }
+    }
+
+    public V decodeValue(ByteBuffer in) {
+        int length = VarInts.readInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+
+        // Restrict the buffer to just this value while the value codec reads it, then skip past
+        // the value whether or not the codec consumed all of it.
+        int end = in.position() + length;
+        int limit = in.limit();
+        if (end > limit) {
+            throw new IllegalArgumentException("Value of length " + length + " overruns buffer");
+        }
+
+        in.limit(end);
+        try {
+            return valueCodec.decode(in);
+        } finally {
+            in.limit(limit);
+            in.position(end);
+        }
+    }
+
+    // Encoding the halves separately keeps early rounds small, where a single varint of the whole
+    // ballot would take five bytes as soon as the round was non-zero. The low half is written as is
+    // rather than through Ballot.proposerId(), which drops the fast flag.
+    public int sizeOfBallot(long ballot) {
+        return VarInts.sizeOf(Ballot.round(ballot)) + VarInts.sizeOf((int) ballot);
+    }
+
+    public void encodeBallot(long ballot, ByteBuffer out) {
+        VarInts.write(Ballot.round(ballot), out);
+        VarInts.write((int) ballot, out);
+    }
+
+    public long decodeBallot(ByteBuffer in) {
+        int round = VarInts.readInt(in);
+        return Ballot.of(round, VarInts.readInt(in));
+    }
+
+    public int sizeOf(Proposal<V> proposal) {
+        return sizeOfBallot(proposal.getProposalNumber()) + sizeOfValue(proposal.getValue());
+    }
+
+    public void encode(Proposal<V> proposal, ByteBuffer out) {
+        encodeBallot(proposal.getProposalNumber(), out);
+        encodeValue(proposal.getValue(), out);
+    }
+
+    public Proposal<V> decodeProposal(ByteBuffer in) {
+        long proposalNumber = decodeBallot(in);
+        return new Proposal<>(proposalNumber, decodeValue(in));
+    }
+
+    public int sizeOf(Promise<V> promise) {
+        return 1 + (promise.hasProposal() ? sizeOf(promise.getProposal()) : 0);
+    }
+
+    public void encode(Promise<V> promise, ByteBuffer out) {
+        if (promise.hasProposal()) {
+            out.put(HAS_PROPOSAL);
+            encode(promise.getProposal(), out);
+        } else {
+            out.put(NO_PROPOSAL);
+        }
+    }
+
+    public Promise<V> decodePromise(ByteBuffer in) {
+        byte flag = in.get();
+        if (flag == HAS_PROPOSAL) {
+            return Promise.withProposal(decodeProposal(in));
+        } else if (flag == NO_PROPOSAL) {
+            return Promise.withoutProposal();
+        } else {
+            throw new IllegalArgumentException("Invalid promise flag " + flag);
+        }
+    }
+
+    public int sizeOf(MultiPromise<V> promise) {
+        Map<Long, Proposal<V>> accepted = promise.getAcceptedProposals();
+        int size = VarInts.sizeOf(promise.getFirstSlot()) + VarInts.sizeOf(accepted.size());
+        long previousSlot = promise.getFirstSlot();
+        for (Map.Entry<Long, Proposal<V>> entry : accepted.entrySet()) {
+            size += VarInts.sizeOf(entry.getKey() - previousSlot) + sizeOf(entry.getValue());
+            previousSlot = entry.getKey();
+        }
+        return size;
+    }
+
+    public void encode(MultiPromise<V> promise, ByteBuffer out) {
+        Map<Long, Proposal<V>> accepted = promise.getAcceptedProposals();
+        VarInts.write(promise.getFirstSlot(), out);
+        VarInts.write(accepted.size(), out);
+        long previousSlot = promise.getFirstSlot();
+        for (Map.Entry<Long, Proposal<V>> entry : accepted.entrySet()) {
+            VarInts.write(entry.getKey() - previousSlot, out);
+            encode(entry.getValue(), out);
+            previousSlot = entry.getKey();
+        }
+    }
+
+    public MultiPromise<V> decodeMultiPromise(ByteBuffer in) {
+        long firstSlot = VarInts.read(in);
+        int count = VarInts.readInt(in);
+        Map<Long, Proposal<V>> accepted = new TreeMap<>();
+        long slot = firstSlot;
+        for (int i = 0; i < count; i++) {
+            slot += VarInts.read(in);
+            accepted.put(slot, decodeProposal(in));
+        }
+        return new MultiPromise<>(firstSlot, accepted);
+    }
+}
@@ -0,0 +1,78 @@
+package com.stefankopieczek.jaxos.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// UTF-8 strings, encoded straight into the target buffer without an intermediate byte array.
+public class StringCodec implements ValueCodec<String> {
+    @Override
+    public int sizeOf(String value) {
+        int size = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void encode(String value, ByteBuffer out) {
+        int i = 0;
+        if (out.hasArray()) {
+            // Fast path: copy any leading ASCII straight into the backing array.
+            byte[] array = out.array();
+            int offset = out.arrayOffset() + out.position();
+            int limit = Math.min(value.length(), out.remaining());
+            while (i < limit && value.charAt(i) < 0x80) {
+                array[offset + i] = (byte) value.charAt(i);
+                i++;
+            }
+            out.position(out.position() + i);
+        }
+
+        for (; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                // Unpaired surrogates are encoded as-is, matching sizeOf().
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    @Override
+    public String decode(ByteBuffer in) {
+        if (in.hasArray()) {
+            // Decode in place from the backing array, avoiding a copy.
+            String value = new String(in.array(), in.arrayOffset() + in.position(), in.remaining(),
+                                      StandardCharsets.UTF_8);
+            in.position(in.limit());
+            return value;
+        } else {
+            return StandardCharsets.UTF_8.decode(in).toString();
+        }
+    }
+}
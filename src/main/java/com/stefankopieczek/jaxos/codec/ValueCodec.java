@@ -0,0 +1,17 @@
+package com.stefankopieczek.jaxos.codec;
+
+import java.nio.ByteBuffer;
+
+// Plug-in point for encoding the values being agreed upon.
+// Values are always length-prefixed by the enclosing codec, so implementations need not record
+// their own lengths.
+public interface ValueCodec<V> {
+    // The exact number of bytes that encode() will write for this value.
+    public int sizeOf(V value);
+
+    public void encode(V value, ByteBuffer out);
+
+    // Decodes a value from all of the bytes remaining in the buffer, whose limit has been set to the
+    // end of the value.
+    public V decode(ByteBuffer in);
+}
@@ -0,0 +1,57 @@
+package com.stefankopieczek.jaxos.codec;
+
+import java.nio.ByteBuffer;
+
+// LEB128-style variable-length integers: seven bits per byte, least significant group first,
+// with the high bit set on every byte except the last.
+// Small non-negative numbers, such as proposal numbers, slots and lengths, take a single byte.
+public final class VarInts {
+    private VarInts() {}
+
+    public static int sizeOf(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    public static void write(long value, ByteBuffer out) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static long read(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    public static int readInt(ByteBuffer in) {
+        long value = read(in);
+        if (value > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Varint " + value + " is too large for an int");
+        }
+        return (int) value;
+    }
+
+    // Proposal numbers are never negative in practice, so we encode ints as unsigned rather than
+    // paying for zig-zag encoding on every message.
+    public static int sizeOf(int value) {
+        return sizeOf(Integer.toUnsignedLong(value));
+    }
+
+    public static void write(int value, ByteBuffer out) {
+        write(Integer.toUnsignedLong(value), out);
+    }
+}
@@ -0,0 +1,45 @@
+package com.stefankopieczek.jaxos.core;
+
+// Proposal numbers are 64-bit ballots: the high 32 bits hold a round and the low 32 bits the id
+// of the proposer that issued it. Each proposer has ballots of its own in every round, so no two
+// proposers can ever use the same number, and a proposer which finds it has been outbid can pick
+// a ballot that outranks the winner in one step rather than counting up to it.
+//
+// The top bit of the proposer id marks a fast ballot, in which acceptors take values straight from
+// clients rather than from the proposer that prepared it (Fast Paxos). A fast ballot outranks the
+// classic ballots of its round, and different acceptors may accept different values in it.
+public final class Ballot {
+    // Lower than any ballot a proposer will issue. Acceptors start out having promised this.
+    public static final long NONE = -1;
+
+    private static final long FAST = 1L << 31;
+
+    private Ballot() {}
+
+    public static long of(int round, int proposerId) {
+        return ((long) round << 32) | (proposerId & 0xFFFFFFFFL);
+    }
+
+    // The given proposer's fast ballot in the given round. Proposer ids must be below 2^31.
+    public static long fast(int round, int proposerId) {
+        return of(round, proposerId) | FAST;
+    }
+
+    public static boolean isFast(long ballot) {
+        return ballot != NONE && (ballot & FAST) != 0;
+    }
+
+    public static int round(long ballot) {
+        return (int) (ballot >> 32);
+    }
+
+    public static int proposerId(long ballot) {
+        return (int) (ballot & ~FAST);
+    }
+
+    // The lowest of the given proposer's ballots which outranks the given ballot.
+    public static long after(long ballot, int proposerId) {
+        long sameRound = of(round(ballot), proposerId);
+        return (sameRound > ballot) ? sameRound : of(round(ballot) + 1, proposerId);
+    }
+}
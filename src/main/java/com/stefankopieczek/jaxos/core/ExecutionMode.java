@@ -0,0 +1,46 @@
+package com.stefankopieczek.jaxos.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// How the library's threads are created: those that serve requests in a PaxosServer, those that
+// a thrifty ProposerImpl or LeaderProposer sends requests on, and the background threads of
+// PipelinedProposer, BatchingProposer and AsyncLearner, each of which defaults to a platform thread. Virtual threads are cheap enough that every request can have one
+// of its own, so a server can have tens of thousands in flight without exhausting a pool. The
+// library guards its state with ReentrantLocks rather than monitors, so its own code never pins a
+// virtual thread to its carrier; application code it calls back into, such as codecs and decision
+// listeners, may still do so.
+public enum ExecutionMode {
+    PLATFORM {
+        @Override
+        public ThreadFactory threadFactory(String name) {
+            return runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+
+        @Override
+        public ExecutorService newExecutor(String name) {
+            return Executors.newCachedThreadPool(threadFactory(name));
+        }
+    },
+
+    VIRTUAL {
+        @Override
+        public ThreadFactory threadFactory(String name) {
+            return Thread.ofVirtual().name(name).factory();
+        }
+
+        @Override
+        public ExecutorService newExecutor(String name) {
+            return Executors.newThreadPerTaskExecutor(threadFactory(name));
+        }
+    };
+
+    public abstract ThreadFactory threadFactory(String name);
+
+    public abstract ExecutorService newExecutor(String name);
+}
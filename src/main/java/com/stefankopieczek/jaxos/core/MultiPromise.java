@@ -0,0 +1,39 @@
+package com.stefankopieczek.jaxos.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// A promise covering every slot from firstSlot onwards, as given in response to a Multi-Paxos
+// prepare. Carries the proposals the acceptor had already accepted in any of those slots.
+public final class MultiPromise<V> {
+    private final long firstSlot;
+    private final NavigableMap<Long, Proposal<V>> acceptedProposals;
+
+    public MultiPromise(long firstSlot, Map<Long, Proposal<V>> acceptedProposals) {
+        this.firstSlot = firstSlot;
+        this.acceptedProposals = Collections.unmodifiableNavigableMap(new TreeMap<>(acceptedProposals));
+    }
+
+    public long getFirstSlot() {
+        return firstSlot;
+    }
+
+    public NavigableMap<Long, Proposal<V>> getAcceptedProposals() {
+        return acceptedProposals;
+    }
+
+    public Promise<V> getPromise(long slot) {
+        if (slot < firstSlot) {
+            throw new IllegalArgumentException("Slot " + slot + " precedes the first promised slot " + firstSlot);
+        }
+
+        Proposal<V> proposal = acceptedProposals.get(slot);
+        if (proposal != null) {
+            return Promise.withProposal(proposal);
+        } else {
+            return Promise.withoutProposal();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.stefankopieczek.jaxos.core;
+
+import java.util.function.Function;
+
+// An acceptor's answer to a prepare request: either a promise, or a refusal which carries the
+// ballot the acceptor had already promised, so that the proposer can go straight past it.
+public final class PrepareResult<P> {
+    private final P promise;
+    private final long promisedBallot;
+
+    public static <P> PrepareResult<P> promised(P promise) {
+        return new PrepareResult<>(promise, Ballot.NONE);
+    }
+
+    // An acceptor that couldn't be reached at all is reported as rejecting with Ballot.NONE.
+    public static <P> PrepareResult<P> rejected(long promisedBallot) {
+        return new PrepareResult<>(null, promisedBallot);
+    }
+
+    private PrepareResult(P promise, long promisedBallot) {
+        this.promise = promise;
+        this.promisedBallot = promisedBallot;
+    }
+
+    public boolean isPromised() {
+        return promise != null;
+    }
+
+    public P getPromise() {
+        if (promise == null) {
+            throw new IllegalStateException("Prepare was rejected");
+        }
+        return promise;
+    }
+
+    // The ballot which the acceptor had promised when it rejected us, or Ballot.NONE if it
+    // promised us.
+    public long getPromisedBallot() {
+        return promisedBallot;
+    }
+
+    public <Q> PrepareResult<Q> map(Function<? super P, ? extends Q> mapper) {
+        return isPromised() ? PrepareResult.promised(mapper.apply(promise)) : PrepareResult.rejected(promisedBallot);
+    }
+
+    @Override
+    public String toString() {
+        return isPromised() ? "<Promised: " + promise + ">" : "<Rejected: promised #" + promisedBallot + ">";
+    }
+}
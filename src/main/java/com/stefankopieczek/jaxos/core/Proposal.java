@@ -1,15 +1,16 @@
 package com.stefankopieczek.jaxos.core;
 
+// The proposal number is a ballot; see Ballot.
 public final class Proposal<V> {
-    private final int proposalNumber;
+    private final long proposalNumber;
     private final V value;
 
-    public Proposal(int proposalNumber, V value) {
+    public Proposal(long proposalNumber, V value) {
         this.proposalNumber = proposalNumber;
         this.value = value;
     }
 
-    public int getProposalNumber() {
+    public long getProposalNumber() {
         return proposalNumber;
     }
 
@@ -0,0 +1,226 @@
+package com.stefankopieczek.jaxos.core;
+
+// Decides which sets of acceptors make a quorum for each phase. Paxos is safe as long as every
+// phase 1 quorum shares an acceptor with every phase 2 quorum, so the two needn't be the same
+// size (Flexible Paxos). A Multi-Paxos leader runs phase 1 rarely and phase 2 for every value, so
+// making phase 2 quorums small and phase 1 quorums large to compensate cuts the acks each value
+// waits for.
+//
+// Sets of acceptors are bitmasks, with bit i standing for acceptor i, so a system covers at most
+// 64 acceptors. Proposers number their acceptors from zero in the order they are given them, and
+// learners go by the ids acceptors teach them with. Majorities and thresholds only count how many
+// acceptors there are; for weighted and grid systems, which care which acceptors answer, give each
+// acceptor its position in the proposers' list as its id.
+//
+// Every system here is monotonic: adding acceptors to a quorum never stops it being one.
+//
+// In a fast ballot (see Ballot), a value is chosen only once a fast quorum has accepted it. Any
+// two fast quorums and any phase 1 quorum must share an acceptor, so that a proposer recovering a
+// fast ballot can tell which single value, if any, might have been chosen in it. With majorities
+// that makes a fast quorum about three quarters of the acceptors.
+public interface QuorumSystem {
+    public int getAcceptorCount();
+
+    public boolean isPrepareQuorum(long acceptors);
+
+    public boolean isAcceptQuorum(long acceptors);
+
+    public boolean isFastQuorum(long acceptors);
+
+    // Any more than half of the acceptors, for both phases; classic Paxos.
+    public static QuorumSystem majority(int numAcceptors) {
+        int quorum = (numAcceptors / 2) + 1;
+        return new Threshold(numAcceptors, quorum, quorum);
+    }
+
+    // Any prepareQuorum acceptors for phase 1 and any acceptQuorum for phase 2. Together they must
+    // number more than all the acceptors, so that any two quorums from different phases overlap.
+    public static QuorumSystem flexible(int numAcceptors, int prepareQuorum, int acceptQuorum) {
+        return new Threshold(numAcceptors, prepareQuorum, acceptQuorum);
+    }
+
+    // Acceptor i has weights[i] votes, and each phase needs more than half of all the votes.
+    public static QuorumSystem weighted(int... weights) {
+        long total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        long quorum = (total / 2) + 1;
+        return new Weighted(weights, quorum, quorum);
+    }
+
+    // Acceptor i has weights[i] votes; phase 1 needs prepareWeight of them and phase 2 needs
+    // acceptWeight. Together they must come to more than all the votes there are.
+    public static QuorumSystem weighted(int[] weights, long prepareWeight, long acceptWeight) {
+        return new Weighted(weights, prepareWeight, acceptWeight);
+    }
+
+    // Acceptors laid out in a grid, filling each row in turn. Phase 2 needs every acceptor in some
+    // row, and phase 1 needs one acceptor from every row, which must include one from the row that
+    // accepted. A wide, shallow grid therefore gives small phase 2 quorums.
+    public static QuorumSystem grid(int rows, int columns) {
+        return new Grid(rows, columns);
+    }
+
+    private static void checkAcceptorCount(int numAcceptors) {
+        if (numAcceptors < 1 || numAcceptors > Long.SIZE) {
+            throw new IllegalArgumentException("Quorum systems cover 1 to 64 acceptors, not " + numAcceptors);
+        }
+    }
+
+    final class Threshold implements QuorumSystem {
+        private final int numAcceptors;
+        private final int prepareQuorum;
+        private final int acceptQuorum;
+        private final int fastQuorum;
+
+        private Threshold(int numAcceptors, int prepareQuorum, int acceptQuorum) {
+            checkAcceptorCount(numAcceptors);
+            if (prepareQuorum < 1 || acceptQuorum < 1 || prepareQuorum > numAcceptors || acceptQuorum > numAcceptors) {
+                throw new IllegalArgumentException("Quorums must be between 1 and " + numAcceptors + " acceptors");
+            } else if (prepareQuorum + acceptQuorum <= numAcceptors) {
+                throw new IllegalArgumentException("Phase 1 and phase 2 quorums of " + prepareQuorum + " and "
+                        + acceptQuorum + " needn't overlap among " + numAcceptors + " acceptors");
+            }
+
+            this.numAcceptors = numAcceptors;
+            this.prepareQuorum = prepareQuorum;
+            this.acceptQuorum = acceptQuorum;
+            this.fastQuorum = (2 * numAcceptors - prepareQuorum) / 2 + 1;
+        }
+
+        @Override
+        public int getAcceptorCount() {
+            return numAcceptors;
+        }
+
+        @Override
+        public boolean isPrepareQuorum(long acceptors) {
+            return Long.bitCount(acceptors) >= prepareQuorum;
+        }
+
+        @Override
+        public boolean isAcceptQuorum(long acceptors) {
+            return Long.bitCount(acceptors) >= acceptQuorum;
+        }
+
+        @Override
+        public boolean isFastQuorum(long acceptors) {
+            return Long.bitCount(acceptors) >= fastQuorum;
+        }
+    }
+
+    final class Weighted implements QuorumSystem {
+        private final int[] weights;
+        private final long prepareWeight;
+        private final long acceptWeight;
+        private final long fastWeight;
+
+        private Weighted(int[] weights, long prepareWeight, long acceptWeight) {
+            checkAcceptorCount(weights.length);
+            long total = 0;
+            for (int weight : weights) {
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Weights must not be negative, not " + weight);
+                }
+                total += weight;
+            }
+            if (prepareWeight < 1 || acceptWeight < 1 || prepareWeight > total || acceptWeight > total) {
+                throw new IllegalArgumentException("Quorums must need between 1 and " + total + " votes");
+            } else if (prepareWeight + acceptWeight <= total) {
+                throw new IllegalArgumentException("Phase 1 and phase 2 quorums of " + prepareWeight + " and "
+                        + acceptWeight + " votes needn't overlap among " + total + " votes");
+            }
+
+            this.weights = weights.clone();
+            this.prepareWeight = prepareWeight;
+            this.acceptWeight = acceptWeight;
+            this.fastWeight = (2 * total - prepareWeight) / 2 + 1;
+        }
+
+        @Override
+        public int getAcceptorCount() {
+            return weights.length;
+        }
+
+        @Override
+        public boolean isPrepareQuorum(long acceptors) {
+            return votes(acceptors) >= prepareWeight;
+        }
+
+        @Override
+        public boolean isAcceptQuorum(long acceptors) {
+            return votes(acceptors) >= acceptWeight;
+        }
+
+        @Override
+        public boolean isFastQuorum(long acceptors) {
+            return votes(acceptors) >= fastWeight;
+        }
+
+        private long votes(long acceptors) {
+            long votes = 0;
+            for (long remaining = acceptors; remaining != 0; remaining &= remaining - 1) {
+                int acceptor = Long.numberOfTrailingZeros(remaining);
+                if (acceptor < weights.length) {
+                    votes += weights[acceptor];
+                }
+            }
+            return votes;
+        }
+    }
+
+    final class Grid implements QuorumSystem {
+        private final int rows;
+        private final long firstRow;
+        private final int columns;
+
+        private Grid(int rows, int columns) {
+            if (rows < 1 || columns < 1) {
+                throw new IllegalArgumentException("A grid needs at least one row and column");
+            }
+            checkAcceptorCount(rows * columns);
+
+            this.rows = rows;
+            this.columns = columns;
+            this.firstRow = -1L >>> (Long.SIZE - columns);
+        }
+
+        @Override
+        public int getAcceptorCount() {
+            return rows * columns;
+        }
+
+        @Override
+        public boolean isPrepareQuorum(long acceptors) {
+            for (int row = 0; row < rows; row++) {
+                if ((acceptors & row(row)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isAcceptQuorum(long acceptors) {
+            for (int row = 0; row < rows; row++) {
+                if ((acceptors & row(row)) == row(row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // A phase 1 quorum may pick any acceptor from each row, so two fast quorums must share a
+        // whole row. We keep it simple and ask for the whole grid; grids are meant for classic ballots.
+        @Override
+        public boolean isFastQuorum(long acceptors) {
+            long all = -1L >>> (Long.SIZE - rows * columns);
+            return (acceptors & all) == all;
+        }
+
+        private long row(int row) {
+            return firstRow << (row * columns);
+        }
+    }
+}
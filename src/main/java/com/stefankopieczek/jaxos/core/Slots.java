@@ -0,0 +1,8 @@
+package com.stefankopieczek.jaxos.core;
+
+public final class Slots {
+    // The slot used by the single-decree API, which behaves as a log with exactly one entry.
+    public static final long SINGLE_DECREE = 0;
+
+    private Slots() {}
+}
@@ -0,0 +1,21 @@
+package com.stefankopieczek.jaxos.election;
+
+import com.stefankopieczek.jaxos.proposer.Proposer;
+
+// Proposer which only proposes while its node holds the leadership, so that a group of proposers
+// sharing an election don't duel. Proposals made on other nodes wait until this one leads.
+public class ElectedProposer<V> implements Proposer<V> {
+    private final Proposer<V> proposer;
+    private final LeaderElection election;
+
+    public ElectedProposer(Proposer<V> proposer, LeaderElection election) {
+        this.proposer = proposer;
+        this.election = election;
+    }
+
+    @Override
+    public void propose(long slot, V valueHint) {
+        election.awaitLeadership();
+        proposer.propose(slot, valueHint);
+    }
+}
@@ -0,0 +1,122 @@
+package com.stefankopieczek.jaxos.election;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Election in which the live node with the lowest id leads.
+// Every node sends a heartbeat to each of its peers once per interval. A node counts a peer as
+// live for one lease period after hearing from it, and considers itself leader when it has heard
+// from no live node with a lower id. A node that has only just started waits out a full lease
+// before claiming leadership, so that it has had a chance to hear from any lower-numbered node
+// which is already leading.
+// The lease should span several intervals, so that a single lost heartbeat doesn't cause the
+// leadership to change hands.
+public class HeartbeatElection implements LeaderElection, HeartbeatListener, Closeable {
+    private final int id;
+    private final List<HeartbeatListener> peers;
+    private final long intervalNanos;
+    private final long leaseNanos;
+    private final long startNanos;
+    private final Map<Integer, Long> lastHeard = new ConcurrentHashMap<>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition mayHaveChanged = lock.newCondition();
+    private final ScheduledExecutorService timer;
+
+    public HeartbeatElection(int id, Collection<HeartbeatListener> peers, long interval, long lease, TimeUnit unit) {
+        if (lease <= interval) {
+            throw new IllegalArgumentException("Lease must be longer than the heartbeat interval");
+        }
+
+        this.id = id;
+        this.peers = new ArrayList<>(peers);
+        this.intervalNanos = unit.toNanos(interval);
+        this.leaseNanos = unit.toNanos(lease);
+        this.startNanos = System.nanoTime();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jaxos-election-" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.scheduleAtFixedRate(this::tick, 0, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Peers may be added after construction, for when nodes need to know about one another
+    // before they can be wired together.
+    public void addPeer(HeartbeatListener peer) {
+        timer.execute(() -> peers.add(peer));
+    }
+
+    @Override
+    public void heartbeat(int nodeId) {
+        lastHeard.put(nodeId, System.nanoTime());
+        signal();
+    }
+
+    // The id of the node we currently believe to be leader, which may be our own.
+    public int getLeader() {
+        long now = System.nanoTime();
+        int leader = id;
+        for (Map.Entry<Integer, Long> entry : lastHeard.entrySet()) {
+            if (entry.getKey() < leader && now - entry.getValue() < leaseNanos) {
+                leader = entry.getKey();
+            }
+        }
+        return leader;
+    }
+
+    @Override
+    public boolean isLeader() {
+        return System.nanoTime() - startNanos >= leaseNanos && getLeader() == id;
+    }
+
+    @Override
+    public void awaitLeadership() {
+        lock.lock();
+        try {
+            while (!isLeader()) {
+                // Leases expire without anything happening, so don't rely on being signalled.
+                mayHaveChanged.awaitNanos(intervalNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for leadership", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private void tick() {
+        for (HeartbeatListener peer : peers) {
+            try {
+                peer.heartbeat(id);
+            } catch (RuntimeException e) {
+                // The peer is unreachable, which is exactly what heartbeats are for finding out.
+            }
+        }
+        signal();
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            mayHaveChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
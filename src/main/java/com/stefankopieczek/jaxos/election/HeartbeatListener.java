@@ -0,0 +1,6 @@
+package com.stefankopieczek.jaxos.election;
+
+public interface HeartbeatListener {
+    // Tells the listener that the given node was alive when it sent this.
+    public void heartbeat(int nodeId);
+}
@@ -0,0 +1,12 @@
+package com.stefankopieczek.jaxos.election;
+
+// Decides which of a group of proposers should currently be making proposals, so that they don't
+// keep pre-empting one another.
+// Elections only affect liveness. Paxos stays safe even if two nodes briefly both believe they
+// are the leader; it just makes less progress until they agree again.
+public interface LeaderElection {
+    public boolean isLeader();
+
+    // Blocks until this node is the leader.
+    public void awaitLeadership();
+}
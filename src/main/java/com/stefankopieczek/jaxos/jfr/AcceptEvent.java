@@ -0,0 +1,38 @@
+package com.stefankopieczek.jaxos.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("jaxos.Accept")
+@Label("Accept")
+@Category({"Jaxos", "Acceptor"})
+@Description("An acceptor answering an accept, including teaching its learners if it accepted")
+@Enabled(false)
+public final class AcceptEvent extends Event {
+    @Label("Acceptor")
+    public int acceptorId;
+
+    @Label("Slot")
+    public long slot;
+
+    @Label("Ballot")
+    public long ballot;
+
+    @Label("Accepted")
+    public boolean accepted;
+
+    // Fills in and commits the event, if it is enabled.
+    public void commit(int acceptorId, long slot, long ballot, boolean accepted) {
+        if (shouldCommit()) {
+            this.acceptorId = acceptorId;
+            this.slot = slot;
+            this.ballot = ballot;
+            this.accepted = accepted;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.stefankopieczek.jaxos.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("jaxos.AcceptRound")
+@Label("Accept Round")
+@Category({"Jaxos", "Proposer"})
+@Description("A round of accepts sent by a proposer, lasting until every acceptor asked has answered")
+@Enabled(false)
+public final class AcceptRoundEvent extends Event {
+    @Label("Proposer")
+    public int proposerId;
+
+    @Label("Slot")
+    public long slot;
+
+    @Label("Ballot")
+    public long ballot;
+
+    @Label("Acceptors")
+    public int acceptors;
+
+    @Label("Accepts")
+    public int accepts;
+
+    @Label("Quorum")
+    public boolean quorum;
+}
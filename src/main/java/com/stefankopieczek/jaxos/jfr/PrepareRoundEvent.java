@@ -0,0 +1,37 @@
+package com.stefankopieczek.jaxos.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Jaxos's Flight Recorder events are all off by default, so that they cost next to nothing unless
+// a recording's settings turn them on, e.g. with "jaxos.PrepareRound#enabled=true" in a .jfc file.
+// Proposers, acceptors and learners fill in an event's fields only once they know it is wanted.
+@Name("jaxos.PrepareRound")
+@Label("Prepare Round")
+@Category({"Jaxos", "Proposer"})
+@Description("A round of prepares sent by a proposer, lasting until every acceptor asked has answered")
+@Enabled(false)
+public final class PrepareRoundEvent extends Event {
+    @Label("Proposer")
+    public int proposerId;
+
+    @Label("Slot")
+    @Description("The slot prepared, or the first of them for a Multi-Paxos prepare")
+    public long slot;
+
+    @Label("Ballot")
+    public long ballot;
+
+    @Label("Acceptors")
+    public int acceptors;
+
+    @Label("Promises")
+    public int promises;
+
+    @Label("Quorum")
+    public boolean quorum;
+}
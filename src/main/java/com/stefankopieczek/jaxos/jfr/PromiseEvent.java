@@ -0,0 +1,45 @@
+package com.stefankopieczek.jaxos.jfr;
+
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("jaxos.Promise")
+@Label("Promise")
+@Category({"Jaxos", "Acceptor"})
+@Description("An acceptor answering a prepare")
+@Enabled(false)
+public final class PromiseEvent extends Event {
+    @Label("Acceptor")
+    public int acceptorId;
+
+    @Label("First Slot")
+    public long firstSlot;
+
+    @Label("Ballot")
+    @Description("The ballot the proposer asked us to promise")
+    public long ballot;
+
+    @Label("Promised")
+    public boolean promised;
+
+    @Label("Promised Ballot")
+    @Description("The higher ballot already promised, if the prepare was rejected")
+    public long promisedBallot;
+
+    // Fills in and commits the event, if it is enabled.
+    public void commit(int acceptorId, long firstSlot, long ballot, PrepareResult<?> result) {
+        if (shouldCommit()) {
+            this.acceptorId = acceptorId;
+            this.firstSlot = firstSlot;
+            this.ballot = ballot;
+            this.promised = result.isPromised();
+            this.promisedBallot = result.getPromisedBallot();
+            commit();
+        }
+    }
+}
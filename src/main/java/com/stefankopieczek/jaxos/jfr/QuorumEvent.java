@@ -0,0 +1,31 @@
+package com.stefankopieczek.jaxos.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("jaxos.Quorum")
+@Label("Quorum Reached")
+@Category({"Jaxos", "Learner"})
+@Description("A learner seeing a quorum of acceptors accept the same proposal, and so learning a value")
+@Enabled(false)
+public final class QuorumEvent extends Event {
+    @Label("Slot")
+    public long slot;
+
+    @Label("Ballot")
+    public long ballot;
+
+    @Label("Deciding Acceptor")
+    @Description("The acceptor whose accept completed the quorum")
+    public int acceptorId;
+
+    @Label("Time To Learn")
+    @Description("From when the learner was first taught anything about the slot")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeToLearn;
+}
@@ -0,0 +1,219 @@
+package com.stefankopieczek.jaxos.learner;
+
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Wraps a learner so that teaching it only queues the proposal, leaving a thread of its own to
+// pass it on. An acceptor wired to its learners through these replies to accepts without waiting
+// on any of them, however slow or contended they are.
+//
+// The queue is a bounded ring shared by any number of producers and drained by the one delivery
+// thread. Producers claim a sequence number, then publish into that sequence's cell; the consumer
+// takes every published cell in order, and only then frees them for reuse. If the ring fills up,
+// producers wait for the learner to catch up rather than buffering without limit.
+// When the learner has fallen behind, a drained batch may hold several proposals from the same
+// acceptor for the same slot; only the highest of them is delivered, as the learner would discard
+// the rest anyway. Notifications that a value has been chosen travel through the same queue.
+public final class AsyncLearner<V> implements Learner<V>, Closeable {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Stands in for the acceptor id on notifications that a value has been chosen.
+    private static final int CHOSEN = -1;
+
+    private static final long FULL_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final int MAX_IDLE_SPINS = 100;
+
+    private final Learner<V> learner;
+    private final int mask;
+    private final AtomicReferenceArray<Notification<V>> ring;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicBoolean sleeping = new AtomicBoolean();
+    private final Thread deliverer;
+    private volatile long head = 0;
+    private volatile boolean closed = false;
+
+    public AsyncLearner(Learner<V> learner) {
+        this(learner, ExecutionMode.PLATFORM);
+    }
+
+    public AsyncLearner(Learner<V> learner, ExecutionMode mode) {
+        this(learner, DEFAULT_CAPACITY, mode.threadFactory("jaxos-learner-notifier"));
+    }
+
+    // The capacity is rounded up to a power of two.
+    public AsyncLearner(Learner<V> learner, int capacity, ThreadFactory threadFactory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.learner = learner;
+        this.mask = size - 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.deliverer = threadFactory.newThread(this::deliver);
+        this.deliverer.start();
+    }
+
+    @Override
+    public CompletableFuture<V> valueFuture(long slot) {
+        return learner.valueFuture(slot);
+    }
+
+    @Override
+    public void teach(int acceptorId, long slot, Proposal<V> proposal) {
+        enqueue(acceptorId, slot, proposal);
+    }
+
+    @Override
+    public void chosen(long slot, V value) {
+        enqueue(CHOSEN, slot, new Proposal<>(Ballot.NONE, value));
+    }
+
+    private void enqueue(int acceptorId, long slot, Proposal<V> proposal) {
+        if (closed) {
+            throw new IllegalStateException("Learner notifications have been shut down");
+        }
+
+        long sequence = tail.getAndIncrement();
+        while (sequence - head > mask) {
+            LockSupport.parkNanos(this, FULL_WAIT_NANOS);
+        }
+
+        ring.set(index(sequence), new Notification<>(sequence, acceptorId, slot, proposal));
+        if (sleeping.get() && sleeping.compareAndSet(true, false)) {
+            LockSupport.unpark(deliverer);
+        }
+    }
+
+    // Stops the delivery thread once everything queued so far has been delivered.
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(deliverer);
+        try {
+            deliverer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver() {
+        List<Notification<V>> batch = new ArrayList<>();
+        Map<Key, Notification<V>> latest = new LinkedHashMap<>();
+        int idleSpins = 0;
+        while (true) {
+            long next = head;
+            Notification<V> notification;
+            while ((notification = ring.get(index(next))) != null && notification.sequence == next) {
+                batch.add(notification);
+                ring.lazySet(index(next), null);
+                next += 1;
+            }
+
+            if (batch.isEmpty()) {
+                if (closed && tail.get() == head) {
+                    return;
+                } else if (idleSpins < MAX_IDLE_SPINS) {
+                    // Waking a parked thread costs the producer far more than a teach, so while
+                    // accepts are flowing we'd rather yield for a while than go to sleep.
+                    idleSpins += 1;
+                    Thread.yield();
+                } else {
+                    sleep();
+                }
+                continue;
+            }
+
+            idleSpins = 0;
+
+            // The cells are free as soon as we've taken their contents.
+            head = next;
+            for (Notification<V> n : batch) {
+                latest.merge(new Key(n.acceptorId, n.slot), n, (a, b) ->
+                        (a.proposal.getProposalNumber() >= b.proposal.getProposalNumber()) ? a : b);
+            }
+            for (Notification<V> n : latest.values()) {
+                try {
+                    if (n.acceptorId == CHOSEN) {
+                        learner.chosen(n.slot, n.proposal.getValue());
+                    } else {
+                        learner.teach(n.acceptorId, n.slot, n.proposal);
+                    }
+                } catch (RuntimeException e) {
+                    // A learner that fails to hear of an accept is no worse off than one whose
+                    // message was lost on the network, which Paxos already tolerates.
+                }
+            }
+            batch.clear();
+            latest.clear();
+        }
+    }
+
+    private void sleep() {
+        sleeping.set(true);
+        Notification<V> notification = ring.get(index(head));
+        if (!closed && (notification == null || notification.sequence != head)) {
+            LockSupport.park(this);
+        }
+        sleeping.set(false);
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    private static final class Notification<V> {
+        private final long sequence;
+        private final int acceptorId;
+        private final long slot;
+        private final Proposal<V> proposal;
+
+        private Notification(long sequence, int acceptorId, long slot, Proposal<V> proposal) {
+            this.sequence = sequence;
+            this.acceptorId = acceptorId;
+            this.slot = slot;
+            this.proposal = proposal;
+        }
+    }
+
+    private static final class Key {
+        private final int acceptorId;
+        private final long slot;
+
+        private Key(int acceptorId, long slot) {
+            this.acceptorId = acceptorId;
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return acceptorId == key.acceptorId && slot == key.slot;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(acceptorId, slot);
+        }
+    }
+}
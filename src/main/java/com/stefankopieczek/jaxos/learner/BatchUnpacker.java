@@ -0,0 +1,49 @@
+package com.stefankopieczek.jaxos.learner;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Reads a log of batches, as written by a BatchingProposer, back as the individual commands in
+// the order they were decided.
+public class BatchUnpacker<V> {
+    private final Learner<List<V>> learner;
+    private final Lock lock = new ReentrantLock();
+    private long nextSlot;
+    private Iterator<V> batch = Collections.emptyIterator();
+
+    public BatchUnpacker(Learner<List<V>> learner) {
+        this(learner, 0);
+    }
+
+    public BatchUnpacker(Learner<List<V>> learner, long firstSlot) {
+        this.learner = learner;
+        this.nextSlot = firstSlot;
+    }
+
+    // Blocks until the next command in the log has been chosen, then returns it.
+    public V next() {
+        lock.lock();
+        try {
+            while (!batch.hasNext()) {
+                batch = learner.getValue(nextSlot).iterator();
+                nextSlot += 1;
+            }
+            return batch.next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The first slot whose batch we have not yet started to read.
+    public long getNextSlot() {
+        lock.lock();
+        try {
+            return nextSlot;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
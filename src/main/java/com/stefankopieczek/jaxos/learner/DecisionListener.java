@@ -0,0 +1,7 @@
+package com.stefankopieczek.jaxos.learner;
+
+// Told about each slot's value as soon as a learner learns it. Slots may be reported out of order,
+// and on whichever thread taught the learner, so listeners should be quick.
+public interface DecisionListener<V> {
+    public void decided(long slot, V value);
+}
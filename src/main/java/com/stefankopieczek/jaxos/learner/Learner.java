@@ -1,8 +1,45 @@
 package com.stefankopieczek.jaxos.learner;
 
 import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.Slots;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public interface Learner<V> {
-    public V getValue();
-    public void teach(int acceptorId, Proposal<V> proposal);
+    public default V getValue() {
+        return getValue(Slots.SINGLE_DECREE);
+    }
+
+    // Blocks until a value has been chosen for the slot.
+    public default V getValue(long slot) {
+        return valueFuture(slot).join();
+    }
+
+    public default V getValue(long slot, long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        try {
+            return valueFuture(slot).get(timeout, unit);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    public default CompletableFuture<V> valueFuture() {
+        return valueFuture(Slots.SINGLE_DECREE);
+    }
+
+    // Completes once a value has been chosen for the slot. Callers waiting this way hold no thread.
+    public CompletableFuture<V> valueFuture(long slot);
+
+    public default void teach(int acceptorId, Proposal<V> proposal) {
+        teach(acceptorId, Slots.SINGLE_DECREE, proposal);
+    }
+
+    public void teach(int acceptorId, long slot, Proposal<V> proposal);
+
+    // Tells the learner outright that a value has been chosen, as a distinguished learner does
+    // once it has counted a quorum of accepts itself.
+    public void chosen(long slot, V value);
 }
@@ -1,103 +1,344 @@
 package com.stefankopieczek.jaxos.learner;
 
+import com.stefankopieczek.jaxos.core.Ballot;
 import com.stefankopieczek.jaxos.core.Proposal;
-import java.util.HashMap;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import com.stefankopieczek.jaxos.jfr.QuorumEvent;
+import com.stefankopieczek.jaxos.metrics.Counter;
+import com.stefankopieczek.jaxos.metrics.Distribution;
+import com.stefankopieczek.jaxos.metrics.MetricsSink;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.locks.Condition;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
 
+// Learns values by counting the accepts reported to it by acceptors.
+// A learner may be given followers, which it tells about each value as soon as it learns it. This
+// lets acceptors report to a single distinguished learner rather than to every learner, which
+// then passes on one compact "chosen" message per slot to the rest.
+// Readers wait on a future per slot rather than on a condition, so any number of them can wait
+// without holding a thread. Futures are completed and listeners told outside the lock, on the
+// thread that taught us the deciding accept.
+//
+// Acceptor ids are small and dense, so each slot records what it has been taught in an array
+// indexed by acceptor id, along with the bitmask of acceptors behind each distinct vote, which is
+// kept up to date as accepts arrive. Slots are found through an open-addressed table keyed by the
+// primitive slot number. Once a slot has been seen, teaching it allocates nothing, and takes time
+// independent of the number of acceptors.
+//
+// A value is chosen once the acceptors that accepted it make a phase 2 quorum of our QuorumSystem,
+// which is a majority unless we are given another. Acceptors are known to it by their ids, so ids
+// must be below 64.
 public class LearnerImpl<V> implements Learner<V> {
     private final Lock lock = new ReentrantLock();
-    private final Condition newValueAvailable = lock.newCondition();
     private final int numAcceptors;
-    private final HashMap<Integer, Proposal<V>> taughtValues;
-    private Optional<V> consensusValue;
+    private final QuorumSystem quorums;
+    private final SlotTable<V> slots = new SlotTable<>();
+    private final List<DecisionListener<V>> listeners = new CopyOnWriteArrayList<>();
+    private final MetricsSink metrics;
 
     public LearnerImpl(int numAcceptors) {
-        this.numAcceptors = numAcceptors;
-        this.taughtValues = new HashMap<>();
-        this.consensusValue = Optional.empty();
+        this(numAcceptors, Collections.emptyList());
+    }
+
+    public LearnerImpl(int numAcceptors, Collection<Learner<V>> followers) {
+        this(numAcceptors, followers, MetricsSink.none());
+    }
+
+    public LearnerImpl(int numAcceptors, Collection<Learner<V>> followers, MetricsSink metrics) {
+        this(QuorumSystem.majority(numAcceptors), followers, metrics);
+    }
+
+    public LearnerImpl(QuorumSystem quorums) {
+        this(quorums, Collections.emptyList(), MetricsSink.none());
+    }
+
+    public LearnerImpl(QuorumSystem quorums, Collection<Learner<V>> followers, MetricsSink metrics) {
+        this.metrics = metrics;
+        this.numAcceptors = quorums.getAcceptorCount();
+        this.quorums = quorums;
+        for (Learner<V> follower : followers) {
+            listeners.add(follower::chosen);
+        }
     }
 
     @Override
-    public V getValue() {
+    public CompletableFuture<V> valueFuture(long slot) {
         lock.lock();
         try {
-            while (!consensusValue.isPresent()) {
-                newValueAvailable.awaitUninterruptibly();
-            }
-            return consensusValue.get();
+            // A copy, so that callers can't complete the slot's future themselves.
+            return getSlotState(slot).value.copy();
         } finally {
             lock.unlock();
         }
+    }
+
+    // The listener hears only of values learnt after it was added.
+    public void addListener(DecisionListener<V> listener) {
+        listeners.add(listener);
+    }
 
+    public void removeListener(DecisionListener<V> listener) {
+        listeners.remove(listener);
     }
 
     @Override
-    public void teach(int acceptorId, Proposal<V> proposal) {
+    public void teach(int acceptorId, long slot, Proposal<V> proposal) {
+        boolean learnt = false;
+        SlotState<V> state;
+        // Only read the clock if someone wants the timings.
+        long waitStart = metrics.isEnabled() ? System.nanoTime() : 0;
         lock.lock();
         try {
-            boolean newValue = !taughtValues.containsKey(acceptorId) ||
-                (taughtValues.get(acceptorId).getProposalNumber() <
-                    proposal.getProposalNumber());
-
-            if (newValue) {
-                taughtValues.put(acceptorId, proposal);
-                consensusValue = calculateConsensusValue();
-                if (consensusValue.isPresent()) {
-                    newValueAvailable.signalAll();
+            if (metrics.isEnabled()) {
+                metrics.record(Distribution.LEARNER_LOCK_WAIT, System.nanoTime() - waitStart);
+            }
+
+            state = getSlotState(slot);
+            Proposal<V> previous = state.taught(acceptorId);
+            if (previous != null && previous.getProposalNumber() >= proposal.getProposalNumber()) {
+                return;
+            }
+            if (!state.hasBeenTaught) {
+                // Read the clock just once per slot, to time how long it takes to learn.
+                state.hasBeenTaught = true;
+                state.firstTaughtNanos = System.nanoTime();
+            }
+            state.setTaught(acceptorId, proposal);
+
+            // In a classic ballot, acceptors only ever accept the value a proposal was issued with,
+            // so every acceptor that reports the same proposal number has accepted the same value.
+            // Counting votes per proposal number therefore tells us when a value has been chosen,
+            // without having to compare the values themselves. Only in a fast ballot, where
+            // clients propose directly, do we need to, and then we need a fast quorum. We act
+            // only on the accept that completes a quorum, not on any that follow it.
+            long voters = state.moveVote(acceptorId, previous, proposal);
+            if (isQuorum(proposal, voters) && !isQuorum(proposal, voters & ~(1L << acceptorId))) {
+                learnt = learn(state);
+                if (learnt) {
+                    recordQuorum(acceptorId, slot, proposal, state);
+                } else {
+                    // Only one value can ever be chosen per slot, but if a later proposal reaches
+                    // a quorum we report its value from then on, as we always have.
+                    state.value.obtrudeValue(proposal.getValue());
                 }
             }
         } finally {
             lock.unlock();
         }
+
+        if (learnt) {
+            announce(slot, state, proposal.getValue());
+        }
+    }
+
+    @Override
+    public void chosen(long slot, V value) {
+        boolean learnt;
+        SlotState<V> state;
+        lock.lock();
+        try {
+            state = getSlotState(slot);
+            learnt = learn(state);
+        } finally {
+            lock.unlock();
+        }
+
+        if (learnt) {
+            announce(slot, state, value);
+        }
+    }
+
+    private boolean isQuorum(Proposal<V> proposal, long voters) {
+        return Ballot.isFast(proposal.getProposalNumber())
+                ? quorums.isFastQuorum(voters) : quorums.isAcceptQuorum(voters);
+    }
+
+    // Called with the lock held. Returns whether the value is new to us, in which case the caller
+    // must announce it once the lock is released.
+    private boolean learn(SlotState<V> state) {
+        if (state.decided) {
+            return false;
+        }
+        state.decided = true;
+        metrics.increment(Counter.VALUES_LEARNT);
+        return true;
+    }
+
+    private void recordQuorum(int acceptorId, long slot, Proposal<V> proposal, SlotState<V> state) {
+        QuorumEvent event = new QuorumEvent();
+        if (!metrics.isEnabled() && !event.shouldCommit()) {
+            return;
+        }
+
+        long timeToLearn = System.nanoTime() - state.firstTaughtNanos;
+        metrics.record(Distribution.ACCEPT_TO_LEARN_LATENCY, timeToLearn);
+        if (event.shouldCommit()) {
+            event.slot = slot;
+            event.ballot = proposal.getProposalNumber();
+            event.acceptorId = acceptorId;
+            event.timeToLearn = timeToLearn;
+            event.commit();
+        }
+    }
+
+    private void announce(long slot, SlotState<V> state, V value) {
+        state.value.complete(value);
+        for (DecisionListener<V> listener : listeners) {
+            listener.decided(slot, value);
+        }
     }
 
-    private Optional<V> calculateConsensusValue() {
-        if (taughtValues.size() == 0) {
-            return Optional.empty();
+    private SlotState<V> getSlotState(long slot) {
+        SlotState<V> state = slots.get(slot);
+        if (state == null) {
+            state = new SlotState<>(numAcceptors);
+            slots.put(slot, state);
         }
+        return state;
+    }
 
-        // Since V might not be hashable we can't use bucket counting to identify
-        // the majority value.
-        // Instead we use Moore's Voting Algorithm to identify a consensus
-        // in two linear passes.
+    // Everything this learner has been taught about a single slot of the log.
+    private static class SlotState<V> {
+        private final CompletableFuture<V> value = new CompletableFuture<>();
+        private boolean decided = false;
+        private boolean hasBeenTaught = false;
+        private long firstTaughtNanos;
 
-        // STEP 1 - Identify a possible candidate for the consensus value.
-        // If there *is* a consensus value, we will find it in this step.
-        // However, if there is no consensus we might end up with a false positive.
-        List<V> values = taughtValues.values().stream()
-            .map(proposal -> proposal.getValue())
-            .collect(Collectors.toList());
+        // Indexed by acceptor id. Sized so that ids numbered from either zero or one fit without
+        // growing; any larger ids grow it to fit.
+        private Proposal<V>[] taught;
 
-        V candidate = values.get(0);
-        int score = 1;
+        // The acceptors whose latest accept was of each distinct vote (a ballot, or in a fast ballot
+        // a ballot and value), as QuorumSystem bitmasks. Each acceptor votes at most once, so there
+        // are never more votes than acceptors, and as accepts usually agree there is mostly just
+        // one; finding a vote's voters takes about as long as a single comparison.
+        private Proposal<V>[] votes;
+        private long[] voters;
+        private int voteCount = 0;
 
-        for (V other : values.subList(1, values.size())) {
-            if (other.equals(candidate)) {
-                score += 1;
-            } else {
-                score -= 1;
+        private SlotState(int numAcceptors) {
+            taught = newProposals(numAcceptors + 1);
+            votes = newProposals(numAcceptors + 1);
+            voters = new long[numAcceptors + 1];
+        }
+
+        private Proposal<V> taught(int acceptorId) {
+            if (acceptorId < 0) {
+                throw new IllegalArgumentException("Acceptor ids must not be negative, not " + acceptorId);
+            } else if (acceptorId >= Long.SIZE) {
+                throw new IllegalArgumentException("Acceptor ids must be below 64, not " + acceptorId);
             }
+            return (acceptorId < taught.length) ? taught[acceptorId] : null;
+        }
 
-            if (score == 0) {
-                candidate = other;
-                score = 1;
+        private void setTaught(int acceptorId, Proposal<V> proposal) {
+            if (acceptorId >= taught.length) {
+                taught = Arrays.copyOf(taught, acceptorId + 1);
+                votes = Arrays.copyOf(votes, acceptorId + 1);
+                voters = Arrays.copyOf(voters, acceptorId + 1);
             }
+            taught[acceptorId] = proposal;
+        }
+
+        // Moves the acceptor's vote from its previous accept, if any, to the given one, and returns
+        // everyone who now votes the same way.
+        private long moveVote(int acceptorId, Proposal<V> previous, Proposal<V> accepted) {
+            long bit = 1L << acceptorId;
+            if (previous != null) {
+                int vote = indexOf(previous);
+                voters[vote] &= ~bit;
+                if (voters[vote] == 0) {
+                    voteCount--;
+                    votes[vote] = votes[voteCount];
+                    voters[vote] = voters[voteCount];
+                    votes[voteCount] = null;
+                }
+            }
+
+            int vote = indexOf(accepted);
+            if (vote < 0) {
+                vote = voteCount++;
+                votes[vote] = accepted;
+                voters[vote] = 0;
+            }
+            voters[vote] |= bit;
+            return voters[vote];
+        }
+
+        private int indexOf(Proposal<V> accepted) {
+            long proposalNumber = accepted.getProposalNumber();
+            for (int vote = 0; vote < voteCount; vote++) {
+                if (votes[vote].getProposalNumber() == proposalNumber && (!Ballot.isFast(proposalNumber)
+                        || Objects.equals(votes[vote].getValue(), accepted.getValue()))) {
+                    return vote;
+                }
+            }
+            return -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Proposal<V>[] newProposals(int capacity) {
+            return (Proposal<V>[]) new Proposal<?>[capacity];
+        }
+    }
+
+    // Open-addressed map from slot number to state, probed linearly.
+    private static class SlotTable<V> {
+        private long[] keys = new long[16];
+        private SlotState<V>[] values = newValues(16);
+        private int size = 0;
+
+        private SlotState<V> get(long slot) {
+            int mask = values.length - 1;
+            for (int i = index(slot, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == slot) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        // The slot must not already be present.
+        private void put(long slot, SlotState<V> state) {
+            if ((size + 1) * 4 > values.length * 3) {
+                long[] oldKeys = keys;
+                SlotState<V>[] oldValues = values;
+                keys = new long[oldKeys.length * 2];
+                values = newValues(oldValues.length * 2);
+                for (int i = 0; i < oldValues.length; i++) {
+                    if (oldValues[i] != null) {
+                        insert(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            insert(slot, state);
+            size++;
+        }
+
+        private void insert(long slot, SlotState<V> state) {
+            int mask = values.length - 1;
+            int i = index(slot, mask);
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = slot;
+            values[i] = state;
+        }
+
+        // Slots are mostly consecutive, which the multiplication spreads over the whole table.
+        private static int index(long slot, int mask) {
+            return (int) ((slot * 0x9E3779B97F4A7C15L) >>> 32) & mask;
         }
 
-        // STEP 2 - Count up how many times our candidate occurs to figure out
-        // whether it actually holds a majority.
-        final V fCandidate = candidate;
-        long count = values.stream().filter(v -> v.equals(fCandidate)).count();
-        if (count >= (numAcceptors / 2) + 1) {
-           return Optional.of(candidate);
-        } else {
-           return Optional.empty();
+        @SuppressWarnings("unchecked")
+        private static <V> SlotState<V>[] newValues(int capacity) {
+            return (SlotState<V>[]) new SlotState<?>[capacity];
         }
     }
 }
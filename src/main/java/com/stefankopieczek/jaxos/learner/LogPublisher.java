@@ -0,0 +1,115 @@
+package com.stefankopieczek.jaxos.learner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Publishes the values a learner learns, in slot order, starting from a given slot.
+// Each subscriber reads the log at its own pace: we only ask the learner for as many slots as have
+// been requested, and while waiting on an undecided slot we hold no thread. Subscribers are
+// called on the given executor, one call at a time.
+public class LogPublisher<V> implements Flow.Publisher<V> {
+    private final Learner<V> learner;
+    private final long firstSlot;
+    private final Executor executor;
+
+    public LogPublisher(Learner<V> learner, long firstSlot, Executor executor) {
+        this.learner = learner;
+        this.firstSlot = firstSlot;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super V> subscriber) {
+        LogSubscription subscription = new LogSubscription(subscriber);
+        executor.execute(() -> subscriber.onSubscribe(subscription));
+    }
+
+    private class LogSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super V> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private final AtomicReference<Throwable> invalidRequest = new AtomicReference<>();
+        private volatile boolean cancelled = false;
+
+        // Only touched while draining, which never happens on two threads at once.
+        private long nextSlot = firstSlot;
+        private long awaitedSlot = -1;
+
+        private LogSubscription(Flow.Subscriber<? super V> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Signal the error from the drain, so that it can't overlap a call to onNext.
+                invalidRequest.compareAndSet(null,
+                        new IllegalArgumentException("Subscribers must request a positive number of values"));
+                scheduleDrain();
+                return;
+            }
+
+            demand.getAndUpdate(current -> (current + n < 0) ? Long.MAX_VALUE : current + n);
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        // Ensures a drain will run after this call, without ever running two at once.
+        private void scheduleDrain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int pending = pendingDrains.get();
+            while (true) {
+                while (!cancelled && invalidRequest.get() == null && demand.get() > 0) {
+                    CompletableFuture<V> value = learner.valueFuture(nextSlot);
+                    if (!value.isDone()) {
+                        // Come back once the slot is decided, but only register for it once.
+                        if (awaitedSlot != nextSlot) {
+                            awaitedSlot = nextSlot;
+                            value.whenComplete((result, error) -> scheduleDrain());
+                        }
+                        break;
+                    }
+
+                    V result;
+                    try {
+                        result = value.join();
+                    } catch (CompletionException e) {
+                        cancelled = true;
+                        subscriber.onError(e.getCause());
+                        break;
+                    }
+
+                    nextSlot += 1;
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(result);
+                }
+
+                if (!cancelled && invalidRequest.get() != null) {
+                    cancelled = true;
+                    subscriber.onError(invalidRequest.get());
+                }
+
+                pending = pendingDrains.addAndGet(-pending);
+                if (pending == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
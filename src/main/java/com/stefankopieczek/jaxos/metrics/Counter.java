@@ -0,0 +1,15 @@
+package com.stefankopieczek.jaxos.metrics;
+
+public enum Counter {
+    // Calls to propose() or append().
+    PROPOSALS,
+    PREPARE_ROUNDS,
+    // Prepares that an acceptor answered with a rejection.
+    PREPARES_REJECTED,
+    ACCEPT_ROUNDS,
+    // Accepts that an acceptor refused.
+    ACCEPTS_REJECTED,
+    // Phases rerun because they failed to reach a quorum.
+    RETRIES,
+    VALUES_LEARNT
+}
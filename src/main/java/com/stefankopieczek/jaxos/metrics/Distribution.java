@@ -0,0 +1,15 @@
+package com.stefankopieczek.jaxos.metrics;
+
+// Distributions are of nanoseconds, other than RETRIES_PER_PROPOSAL, which is a count.
+public enum Distribution {
+    // From a call to propose() or append() until its value is chosen.
+    PROPOSAL_LATENCY,
+    // One round of prepares, from sending the first until hearing from every acceptor asked.
+    PREPARE_ROUND_LATENCY,
+    ACCEPT_ROUND_LATENCY,
+    RETRIES_PER_PROPOSAL,
+    // From a learner first being taught a proposal for a slot until it learns the slot's value.
+    ACCEPT_TO_LEARN_LATENCY,
+    // Time spent waiting for the learner's lock when being taught.
+    LEARNER_LOCK_WAIT
+}
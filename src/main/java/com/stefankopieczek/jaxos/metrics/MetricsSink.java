@@ -0,0 +1,41 @@
+package com.stefankopieczek.jaxos.metrics;
+
+// Receives measurements from proposers and learners as they work. Sinks are called on the hot path
+// by whichever thread did the work, so they must be quick, thread-safe and should not allocate.
+// PaxosMetrics is one which keeps lock-free counters and histograms and can publish them over JMX.
+public interface MetricsSink {
+    public void increment(Counter counter, long delta);
+
+    public void record(Distribution distribution, long value);
+
+    public default void increment(Counter counter) {
+        increment(counter, 1);
+    }
+
+    // A sink which discards everything.
+    public static MetricsSink none() {
+        return Discard.INSTANCE;
+    }
+
+    // Callers timing something can skip reading the clock if nobody is listening.
+    public default boolean isEnabled() {
+        return true;
+    }
+
+    enum Discard implements MetricsSink {
+        INSTANCE;
+
+        @Override
+        public void increment(Counter counter, long delta) {
+        }
+
+        @Override
+        public void record(Distribution distribution, long value) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.stefankopieczek.jaxos.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Sink which keeps every counter and distribution in memory, for reading directly or over JMX.
+// Counters are LongAdders, so threads counting at once don't contend on a single word.
+//
+// Once registered, the MBean has an attribute per counter, named after it in camel case (e.g.
+// "PreparesRejected"), and for each distribution its count, mean, max and 50th, 99th and 99.9th
+// percentiles (e.g. "PrepareRoundLatency.P99").
+public class PaxosMetrics implements MetricsSink {
+    private static final String[] STATISTICS = {"Count", "Mean", "Max", "P50", "P99", "P999"};
+
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private final Histogram[] histograms = new Histogram[Distribution.values().length];
+
+    public PaxosMetrics() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    @Override
+    public void increment(Counter counter, long delta) {
+        counters[counter.ordinal()].add(delta);
+    }
+
+    @Override
+    public void record(Distribution distribution, long value) {
+        histograms[distribution.ordinal()].record(value);
+    }
+
+    public long getCount(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    public Histogram getHistogram(Distribution distribution) {
+        return histograms[distribution.ordinal()];
+    }
+
+    // Registers these metrics with the platform MBean server under the given name, such as
+    // "com.stefankopieczek.jaxos:type=Metrics,node=1".
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(new MetricsMBean(), objectName);
+        return objectName;
+    }
+
+    private static String attributeName(Enum<?> metric) {
+        StringBuilder name = new StringBuilder();
+        for (String word : metric.name().split("_")) {
+            name.append(word.charAt(0)).append(word.substring(1).toLowerCase());
+        }
+        return name.toString();
+    }
+
+    private class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            for (Counter counter : Counter.values()) {
+                if (attribute.equals(attributeName(counter))) {
+                    return getCount(counter);
+                }
+            }
+
+            int dot = attribute.indexOf('.');
+            if (dot >= 0) {
+                for (Distribution distribution : Distribution.values()) {
+                    if (attribute.substring(0, dot).equals(attributeName(distribution))) {
+                        return statistic(getHistogram(distribution), attribute.substring(dot + 1), attribute);
+                    }
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        private Object statistic(Histogram histogram, String statistic, String attribute)
+                throws AttributeNotFoundException {
+            switch (statistic) {
+                case "Count": return histogram.getCount();
+                case "Mean": return histogram.getMean();
+                case "Max": return histogram.getMax();
+                case "P50": return histogram.getValueAtPercentile(50);
+                case "P99": return histogram.getValueAtPercentile(99);
+                case "P999": return histogram.getValueAtPercentile(99.9);
+                default: throw new AttributeNotFoundException(attribute);
+            }
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList values = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    values.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // As the interface asks, leave out any attribute we can't read.
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("Metrics have no operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Counter counter : Counter.values()) {
+                attributes.add(new MBeanAttributeInfo(attributeName(counter), "long",
+                        "Count of " + counter.name(), true, false, false));
+            }
+            for (Distribution distribution : Distribution.values()) {
+                for (String statistic : STATISTICS) {
+                    String type = statistic.equals("Mean") ? "double" : "long";
+                    attributes.add(new MBeanAttributeInfo(attributeName(distribution) + "." + statistic, type,
+                            statistic + " of " + distribution.name(), true, false, false));
+                }
+            }
+            return new MBeanInfo(PaxosMetrics.class.getName(), "Paxos metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
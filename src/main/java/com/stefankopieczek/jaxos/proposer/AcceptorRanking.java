@@ -0,0 +1,74 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ranks a fixed list of acceptors by how quickly they have answered us lately, for proposers that
+// only ask as many acceptors as they need. Each acceptor's latency is a moving average weighted
+// towards recent answers. An acceptor that failed to answer at all goes to the back until it next
+// answers; one we've never heard from goes to the front, so that it gets a chance to show how fast
+// it is.
+final class AcceptorRanking {
+    // Each new sample moves the average an eighth of the way towards it.
+    private static final int SMOOTHING_SHIFT = 3;
+
+    private final Lock lock = new ReentrantLock();
+    private final long[] averageNanos;
+    private final boolean[] failed;
+
+    AcceptorRanking(int numAcceptors) {
+        this.averageNanos = new long[numAcceptors];
+        this.failed = new boolean[numAcceptors];
+    }
+
+    // Acceptor indices, best first. There are at most 64 acceptors, so an insertion sort is as
+    // quick as anything and spares us boxing every index.
+    int[] order() {
+        int[] order = new int[averageNanos.length];
+        lock.lock();
+        try {
+            for (int i = 0; i < order.length; i++) {
+                int acceptor = i;
+                int j = i;
+                while (j > 0 && ranksBefore(acceptor, order[j - 1])) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = acceptor;
+            }
+            return order;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void answered(int acceptor, long latencyNanos) {
+        lock.lock();
+        try {
+            if (failed[acceptor] || averageNanos[acceptor] == 0) {
+                averageNanos[acceptor] = latencyNanos;
+            } else {
+                averageNanos[acceptor] += (latencyNanos - averageNanos[acceptor]) >> SMOOTHING_SHIFT;
+            }
+            failed[acceptor] = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void failed(int acceptor) {
+        lock.lock();
+        try {
+            failed[acceptor] = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean ranksBefore(int a, int b) {
+        if (failed[a] != failed[b]) {
+            return failed[b];
+        }
+        return averageNanos[a] < averageNanos[b];
+    }
+}
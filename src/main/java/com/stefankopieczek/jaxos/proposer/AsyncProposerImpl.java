@@ -0,0 +1,151 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import com.stefankopieczek.jaxos.acceptor.AsyncAcceptor;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// Proposer which sends each phase's requests to all acceptors concurrently, and moves on as soon
+// as a quorum has responded rather than waiting for the slowest acceptor.
+//
+// Given a fallback timeout, we are instead thrifty: each phase goes only to the quorum of
+// acceptors that have lately answered fastest. Only if one of those refuses or fails, or they
+// haven't all answered within the timeout, do we send to the rest as well.
+public class AsyncProposerImpl<V> implements Proposer<V> {
+    private static final int INITIAL_ROUND = 0;
+    private final int id;
+    private final List<AsyncAcceptor<V>> acceptors;
+    private final QuorumSystem quorums;
+    private final Backoff backoff;
+    private final AcceptorRanking ranking;
+    private final long fallbackNanos;
+    private final AtomicLong retries = new AtomicLong();
+    private final Lock lock = new ReentrantLock();
+    private Proposal<V> proposal;
+
+    public AsyncProposerImpl(int id, Collection<AsyncAcceptor<V>> acceptors) {
+        this(id, acceptors, Backoff.none());
+    }
+
+    public AsyncProposerImpl(int id, Collection<AsyncAcceptor<V>> acceptors, Backoff backoff) {
+        this(id, acceptors, backoff, QuorumSystem.majority(acceptors.size()));
+    }
+
+    public AsyncProposerImpl(int id, Collection<AsyncAcceptor<V>> acceptors, Backoff backoff, QuorumSystem quorums) {
+        this(id, acceptors, backoff, quorums, null, 0, TimeUnit.NANOSECONDS);
+    }
+
+    public AsyncProposerImpl(int id, Collection<AsyncAcceptor<V>> acceptors, Backoff backoff,
+                             long fallbackAfter, TimeUnit unit) {
+        this(id, acceptors, backoff, fallbackAfter, unit, QuorumSystem.majority(acceptors.size()));
+    }
+
+    public AsyncProposerImpl(int id, Collection<AsyncAcceptor<V>> acceptors, Backoff backoff,
+                             long fallbackAfter, TimeUnit unit, QuorumSystem quorums) {
+        this(id, acceptors, backoff, quorums, new AcceptorRanking(acceptors.size()), fallbackAfter, unit);
+    }
+
+    private AsyncProposerImpl(int id, Collection<AsyncAcceptor<V>> acceptors, Backoff backoff, QuorumSystem quorums,
+                              AcceptorRanking ranking, long fallbackAfter, TimeUnit unit) {
+        if (quorums.getAcceptorCount() != acceptors.size()) {
+            throw new IllegalArgumentException("Quorum system is for " + quorums.getAcceptorCount()
+                    + " acceptors, not " + acceptors.size());
+        }
+
+        this.id = id;
+        this.acceptors = new ArrayList<>(acceptors);
+        this.quorums = quorums;
+        this.backoff = backoff;
+        this.ranking = ranking;
+        this.fallbackNanos = unit.toNanos(fallbackAfter);
+        this.proposal = null;
+    }
+
+    @Override
+    public void propose(long slot, V valueHint) {
+        lock.lock();
+        try {
+            long proposalNumber = (proposal == null) ? Ballot.of(INITIAL_ROUND, id) : proposal.getProposalNumber();
+            proposal = new Proposal<>(proposalNumber, valueHint);
+
+            boolean success = false;
+            while (!success) {
+                phase1(slot);
+                success = phase2(slot);
+                if (!success) {
+                    retry();
+                }
+            }
+            backoff.reset();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The number of times a phase has had to be rerun because acceptors rejected it.
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    private void phase1(long slot) {
+        while (true) {
+            final Proposal<V> prepare = proposal;
+            Quorums.Round<PrepareResult<Promise<V>>> round =
+                    ask(acceptor -> acceptor.prepare(slot, prepare), result -> result.isPromised(), quorums::isPrepareQuorum);
+            List<PrepareResult<Promise<V>>> results = round.responses;
+
+            if (quorums.isPrepareQuorum(round.successes)) {
+                // Any quorum of promises is enough to tell us which value, if any, we are bound to.
+                Optional<Proposal<V>> bestExistingAcceptedProposal = Quorums.boundProposal(round, quorums);
+                proposal = bestExistingAcceptedProposal
+                        .map(p -> new Proposal<>(proposal.getProposalNumber(), p.getValue()))
+                        .orElse(proposal);
+                break;
+            } else {
+                // Jump straight past the highest ballot any acceptor told us it had promised.
+                long highestPromised = results.stream()
+                        .mapToLong(result -> result.getPromisedBallot()).max().orElse(Ballot.NONE);
+                long proposalNumber = Ballot.after(Math.max(highestPromised, proposal.getProposalNumber()), id);
+                proposal = new Proposal<>(proposalNumber, proposal.getValue());
+                retry();
+            }
+        }
+    }
+
+    private boolean phase2(long slot) {
+        final Proposal<V> accept = proposal;
+        Quorums.Round<Boolean> round =
+                ask(acceptor -> acceptor.accept(slot, accept), isAccepted -> isAccepted, quorums::isAcceptQuorum);
+
+        return quorums.isAcceptQuorum(round.successes);
+    }
+
+    private <R> Quorums.Round<R> ask(Function<AsyncAcceptor<V>, CompletableFuture<R>> request,
+                                     Predicate<R> isSuccess, LongPredicate isQuorum) {
+        if (ranking == null) {
+            List<CompletableFuture<R>> responses = acceptors.stream().map(request).collect(Collectors.toList());
+            return Quorums.collect(responses, isSuccess, isQuorum).join();
+        }
+        return Quorums.askQuorumFirst(acceptors, ranking, request, isSuccess, isQuorum, fallbackNanos);
+    }
+
+    private void retry() {
+        retries.incrementAndGet();
+        backoff.pause();
+    }
+}
@@ -0,0 +1,46 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Randomized exponential backoff for proposers whose proposals are being rejected.
+// Each pause sleeps for a random time up to the current ceiling, which doubles after every pause
+// up to a maximum and drops back once a proposal succeeds. Randomizing the whole pause ("full
+// jitter") means two duelling proposers soon end up far enough apart that one of them gets both
+// phases through before the other interrupts it.
+// Not thread-safe; each proposer should have its own.
+public class Backoff {
+    private final long initialNanos;
+    private final long maxNanos;
+    private long ceilingNanos;
+
+    public Backoff(long initial, long max, TimeUnit unit) {
+        if (initial < 0 || max < initial) {
+            throw new IllegalArgumentException("Backoff must satisfy 0 <= initial <= max");
+        } else if (initial == 0 && max > 0) {
+            // The ceiling grows by doubling, so from zero it would never grow at all.
+            throw new IllegalArgumentException("Backoff with a maximum must have a positive initial pause");
+        }
+
+        this.initialNanos = unit.toNanos(initial);
+        this.maxNanos = unit.toNanos(max);
+        this.ceilingNanos = initialNanos;
+    }
+
+    // A backoff which never pauses, so that proposers retry immediately.
+    public static Backoff none() {
+        return new Backoff(0, 0, TimeUnit.NANOSECONDS);
+    }
+
+    public void pause() {
+        if (ceilingNanos > 0) {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceilingNanos + 1));
+        }
+        ceilingNanos = Math.min(maxNanos, ceilingNanos * 2);
+    }
+
+    public void reset() {
+        ceilingNanos = initialNanos;
+    }
+}
@@ -0,0 +1,159 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Front-end which groups client commands into batches and appends each batch to the log as a
+// single value, so that one round of Paxos decides many commands.
+// A batch is proposed as soon as it is full, or once the linger time has passed since its first
+// command arrived. Commands that arrive while a round is in flight are queued up for the next
+// batch, so under load batches fill without waiting. Use a BatchUnpacker on the learner side to
+// read the log back as individual commands.
+public class BatchingProposer<V> implements Closeable {
+    // How long close() waits for a round in flight to finish before giving up on it.
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private final LeaderProposer<List<V>> proposer;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Command<V>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Creates a batching front-end for the given proposer and starts its batching thread.
+    public static <V> BatchingProposer<V> start(LeaderProposer<List<V>> proposer, int maxBatchSize,
+                                                long linger, TimeUnit unit) {
+        return start(proposer, maxBatchSize, linger, unit, ExecutionMode.PLATFORM);
+    }
+
+    public static <V> BatchingProposer<V> start(LeaderProposer<List<V>> proposer, int maxBatchSize,
+                                                long linger, TimeUnit unit, ExecutionMode mode) {
+        BatchingProposer<V> batcher = new BatchingProposer<>(proposer, maxBatchSize, linger, unit, mode);
+        batcher.thread.start();
+        return batcher;
+    }
+
+    private BatchingProposer(LeaderProposer<List<V>> proposer, int maxBatchSize, long linger, TimeUnit unit,
+                             ExecutionMode mode) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batches must hold at least one command");
+        }
+
+        this.proposer = proposer;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = unit.toNanos(linger);
+        this.thread = mode.threadFactory("jaxos-batching-proposer").newThread(this::run);
+    }
+
+    // Queues the command for the next batch. The future completes with the slot of the batch it
+    // was chosen in.
+    public CompletableFuture<Long> submit(V command) {
+        Command<V> entry = new Command<>(command);
+        if (!running) {
+            entry.future.completeExceptionally(new IllegalStateException("Proposer is closed"));
+            return entry.future;
+        }
+
+        queue.add(entry);
+
+        // If we raced with close(), the batching thread may already have given up on the queue.
+        if (!running && queue.remove(entry)) {
+            entry.future.completeExceptionally(new IllegalStateException("Proposer is closed"));
+        }
+        return entry.future;
+    }
+
+    // Stops batching. Commands which haven't yet been proposed are failed. A round already in
+    // flight can't be interrupted, so if it doesn't finish in time we return without it; its
+    // commands complete whenever it does.
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failQueued(new ArrayList<>());
+    }
+
+    private void run() {
+        List<Command<V>> batch = new ArrayList<>(Math.min(maxBatchSize, 1024));
+        try {
+            while (running) {
+                collect(batch);
+                propose(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // We're being closed.
+        }
+
+        failQueued(batch);
+    }
+
+    // Fails the given commands along with any still queued.
+    private void failQueued(List<Command<V>> batch) {
+        queue.drainTo(batch);
+        IllegalStateException closed = new IllegalStateException("Proposer is closed");
+        for (Command<V> command : batch) {
+            command.future.completeExceptionally(closed);
+        }
+    }
+
+    // Blocks until at least one command is available, then gathers more until the batch is full
+    // or the linger time runs out.
+    private void collect(List<Command<V>> batch) throws InterruptedException {
+        batch.add(queue.take());
+        queue.drainTo(batch, maxBatchSize - batch.size());
+
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+
+            Command<V> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void propose(List<Command<V>> batch) {
+        List<V> values = new ArrayList<>(batch.size());
+        for (Command<V> command : batch) {
+            values.add(command.value);
+        }
+
+        try {
+            long slot = proposer.append(values);
+            for (Command<V> command : batch) {
+                command.future.complete(slot);
+            }
+        } catch (RuntimeException e) {
+            for (Command<V> command : batch) {
+                command.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class Command<V> {
+        private final V value;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private Command(V value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import com.stefankopieczek.jaxos.metrics.MetricsSink;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fast Paxos proposer, to be shared by any number of clients. We prepare a fast ballot once, for
+// every slot from some point on, and from then on each client sends its value straight to the
+// acceptors in that ballot: a value is chosen as soon as a fast quorum accepts it, which learners
+// see one message delay after the client sent it, rather than the two of a classic phase 2.
+//
+// If two clients propose different values for the same slot at once, neither may reach a fast
+// quorum. The client that notices falls back to a classic ProposerImpl, whose phase 1 works out
+// which value, if any, might have been chosen in the fast ballot and sees that it is. That
+// pre-empts the fast ballot in every slot, so we prepare a new one on the next proposal.
+//
+// Every proposer here recovers a fast ballot the same way, so our acceptors may be shared with
+// other kinds of proposer, as long as they and the learners use the same QuorumSystem we do.
+//
+// Fast quorums are larger than classic ones: with majorities, three quarters of the acceptors. We
+// need at least four, as with three a fast quorum would be all of them, and a single slow acceptor
+// would send every proposal through recovery. We refuse any QuorumSystem whose fast quorums need
+// every acceptor.
+public class FastProposer<V> implements Proposer<V> {
+    private final int id;
+    private final List<Acceptor<V>> acceptors;
+    private final QuorumSystem quorums;
+    private final ProposerImpl<V> recovery;
+    private final AtomicLong recoveries = new AtomicLong();
+    private final Lock lock = new ReentrantLock();
+
+    // The fast ballot clients may currently propose in, or NONE, and the first slot it covers.
+    private long fastBallot = Ballot.NONE;
+    private long openFrom;
+
+    // The highest ballot any acceptor has told us it has promised.
+    private long highestPromised = Ballot.NONE;
+
+    public FastProposer(int id, Collection<Acceptor<V>> acceptors) {
+        this(id, acceptors, Backoff.none());
+    }
+
+    public FastProposer(int id, Collection<Acceptor<V>> acceptors, Backoff backoff) {
+        this(id, acceptors, backoff, QuorumSystem.majority(acceptors.size()));
+    }
+
+    public FastProposer(int id, Collection<Acceptor<V>> acceptors, Backoff backoff, QuorumSystem quorums) {
+        if (quorums.getAcceptorCount() != acceptors.size()) {
+            throw new IllegalArgumentException("Quorum system is for " + quorums.getAcceptorCount()
+                    + " acceptors, not " + acceptors.size());
+        }
+
+        if (fastQuorumsNeedEveryAcceptor(quorums)) {
+            throw new IllegalArgumentException("Every fast quorum needs all " + quorums.getAcceptorCount()
+                    + " acceptors; use at least four, or a quorum system with smaller fast quorums");
+        }
+
+        this.id = id;
+        this.acceptors = new ArrayList<>(acceptors);
+        this.quorums = quorums;
+        this.recovery = new ProposerImpl<>(id, acceptors, backoff, MetricsSink.none(), false, quorums);
+    }
+
+    @Override
+    public void propose(long slot, V valueHint) {
+        long ballot = fastBallotFor(slot);
+        if (ballot != Ballot.NONE) {
+            Proposal<V> proposal = new Proposal<>(ballot, valueHint);
+            Quorums.Round<Boolean> round =
+                    Quorums.askAll(acceptors, acceptor -> acceptor.accept(slot, proposal), isAccepted -> isAccepted);
+            if (quorums.isFastQuorum(round.successes)) {
+                return;
+            }
+
+            // Another client's value collided with ours, or a proposer has pre-empted the ballot.
+            close(ballot);
+            recoveries.incrementAndGet();
+        }
+        recovery.propose(slot, valueHint);
+    }
+
+    // The number of proposals that missed a fast quorum and had to be recovered classically.
+    public long getRecoveryCount() {
+        return recoveries.get();
+    }
+
+    // Returns the fast ballot covering the given slot, preparing one first if need be, or NONE if
+    // the slot must be proposed classically.
+    private long fastBallotFor(long slot) {
+        lock.lock();
+        try {
+            // If we were pre-empted, the first attempt tells us by whom, and the second outranks it.
+            for (int attempt = 0; attempt < 2 && fastBallot == Ballot.NONE; attempt++) {
+                open(slot);
+            }
+            return (fastBallot != Ballot.NONE && slot >= openFrom) ? fastBallot : Ballot.NONE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Prepares a new fast ballot from the given slot onwards. Clients may only propose in slots
+    // that no acceptor in the quorum reported a value for; those that were reported are bound to
+    // it, and have to go through a classic round. Called with the lock held.
+    private void open(long firstSlot) {
+        long ballot = Ballot.fast(Ballot.round(Ballot.after(highestPromised, id)), id);
+        Proposal<V> prepare = new Proposal<>(ballot, null);
+        Quorums.Round<PrepareResult<MultiPromise<V>>> round = Quorums.askAll(
+                acceptors, acceptor -> acceptor.prepareFrom(firstSlot, prepare), PrepareResult::isPromised);
+
+        long firstFree = firstSlot;
+        for (PrepareResult<MultiPromise<V>> result : round.responses) {
+            if (result.isPromised()) {
+                if (!result.getPromise().getAcceptedProposals().isEmpty()) {
+                    firstFree = Math.max(firstFree, result.getPromise().getAcceptedProposals().lastKey() + 1);
+                }
+            } else {
+                highestPromised = Math.max(highestPromised, result.getPromisedBallot());
+            }
+        }
+
+        if (quorums.isPrepareQuorum(round.successes)) {
+            fastBallot = ballot;
+            openFrom = firstFree;
+            highestPromised = Math.max(highestPromised, ballot);
+        } else {
+            fastBallot = Ballot.NONE;
+        }
+    }
+
+    // Whether no acceptor can be left out of a fast quorum.
+    private static boolean fastQuorumsNeedEveryAcceptor(QuorumSystem quorums) {
+        long all = -1L >>> (Long.SIZE - quorums.getAcceptorCount());
+        for (int i = 0; i < quorums.getAcceptorCount(); i++) {
+            if (quorums.isFastQuorum(all & ~(1L << i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void close(long ballot) {
+        lock.lock();
+        try {
+            if (fastBallot == ballot) {
+                fastBallot = Ballot.NONE;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
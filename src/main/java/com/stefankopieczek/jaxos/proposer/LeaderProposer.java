@@ -0,0 +1,382 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import com.stefankopieczek.jaxos.jfr.AcceptRoundEvent;
+import com.stefankopieczek.jaxos.jfr.PrepareRoundEvent;
+import com.stefankopieczek.jaxos.metrics.Counter;
+import com.stefankopieczek.jaxos.metrics.Distribution;
+import com.stefankopieczek.jaxos.metrics.MetricsSink;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+// Multi-Paxos proposer for a replicated log.
+// Once a quorum of acceptors has promised our proposal number for every slot from some point
+// onwards, we act as the stable leader for those slots and fill them with phase 2 alone.
+// Phase 1 is only rerun when another proposer pre-empts us.
+//
+// Reads go through readIndex(), which finds the slot a reader must have caught up to without
+// choosing anything. Normally that costs one round of prepares at our current ballot, which only
+// checks that we still lead. If the acceptors are LeasingAcceptors, we can instead be given a read
+// lease: this should be the acceptors' lease less an allowance for clock drift. Each time a quorum
+// answers a phase of ours, we know no other proposer can have a value chosen for that long after
+// we sent it, and answer reads within that time without any messages at all.
+//
+// Like ProposerImpl, we can be thrifty and ask only the acceptors we need for a quorum, falling back
+// to the rest if they refuse or are slow.
+// We run phase 2 far more often than phase 1, so a QuorumSystem with small phase 2 quorums and
+// large phase 1 quorums saves us acks on every value.
+public class LeaderProposer<V> implements Proposer<V>, Closeable {
+    private static final int INITIAL_ROUND = 0;
+    private final int id;
+    private final List<Acceptor<V>> acceptors;
+    private final QuorumSystem quorums;
+    private final Backoff backoff;
+    private final long firstSlot;
+    private final long readLeaseNanos;
+    private final MetricsSink metrics;
+    private final AcceptorRanking ranking;
+    private final ExecutorService requests;
+    private final long fallbackNanos;
+    private final AtomicLong retries = new AtomicLong();
+    private final Lock lock = new ReentrantLock();
+    private long proposalNumber;
+    private boolean isLeader;
+    private long firstPreparedSlot;
+    private long nextSlot;
+    private boolean hasReadLease = false;
+    private long readLeaseExpiresNanos;
+
+    // Proposals that acceptors reported as already accepted during our last phase 1.
+    // We are bound to re-propose these values in their slots rather than our own.
+    private final NavigableMap<Long, Proposal<V>> boundProposals;
+
+    public LeaderProposer(int id, Collection<Acceptor<V>> acceptors) {
+        this(id, acceptors, 0);
+    }
+
+    public LeaderProposer(int id, Collection<Acceptor<V>> acceptors, long firstSlot) {
+        this(id, acceptors, firstSlot, Backoff.none());
+    }
+
+    public LeaderProposer(int id, Collection<Acceptor<V>> acceptors, long firstSlot, Backoff backoff) {
+        this(id, acceptors, firstSlot, backoff, 0, TimeUnit.NANOSECONDS);
+    }
+
+    public LeaderProposer(int id, Collection<Acceptor<V>> acceptors, long firstSlot, Backoff backoff,
+                          long readLease, TimeUnit unit) {
+        this(id, acceptors, firstSlot, backoff, readLease, unit, MetricsSink.none());
+    }
+
+    public LeaderProposer(int id, Collection<Acceptor<V>> acceptors, long firstSlot, Backoff backoff,
+                          long readLease, TimeUnit unit, MetricsSink metrics) {
+        this(id, acceptors, firstSlot, backoff, readLease, unit, metrics, false);
+    }
+
+    public LeaderProposer(int id, Collection<Acceptor<V>> acceptors, long firstSlot, Backoff backoff,
+                          long readLease, TimeUnit unit, MetricsSink metrics, boolean thrifty) {
+        this(id, acceptors, firstSlot, backoff, readLease, unit, metrics, thrifty,
+                QuorumSystem.majority(acceptors.size()));
+    }
+
+    public LeaderProposer(int id, Collection<Acceptor<V>> acceptors, long firstSlot, Backoff backoff,
+                          long readLease, TimeUnit unit, MetricsSink metrics, boolean thrifty,
+                          QuorumSystem quorums) {
+        this(id, acceptors, firstSlot, backoff, readLease, unit, metrics, thrifty, quorums,
+                Quorums.DEFAULT_FALLBACK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public LeaderProposer(int id, Collection<Acceptor<V>> acceptors, long firstSlot, Backoff backoff,
+                          long readLease, TimeUnit unit, MetricsSink metrics, boolean thrifty,
+                          QuorumSystem quorums, long fallbackAfter, TimeUnit fallbackUnit) {
+        this(id, acceptors, firstSlot, backoff, readLease, unit, metrics, thrifty, quorums, fallbackAfter,
+                fallbackUnit, ExecutionMode.PLATFORM);
+    }
+
+    public LeaderProposer(int id, Collection<Acceptor<V>> acceptors, long firstSlot, Backoff backoff,
+                          long readLease, TimeUnit unit, MetricsSink metrics, boolean thrifty,
+                          QuorumSystem quorums, long fallbackAfter, TimeUnit fallbackUnit, ExecutionMode mode) {
+        if (quorums.getAcceptorCount() != acceptors.size()) {
+            throw new IllegalArgumentException("Quorum system is for " + quorums.getAcceptorCount()
+                    + " acceptors, not " + acceptors.size());
+        }
+
+        this.id = id;
+        this.metrics = metrics;
+        this.ranking = thrifty ? new AcceptorRanking(acceptors.size()) : null;
+        this.requests = thrifty ? mode.newExecutor("jaxos-proposer-requests") : null;
+        this.fallbackNanos = fallbackUnit.toNanos(fallbackAfter);
+        this.acceptors = new ArrayList<>(acceptors);
+        this.quorums = quorums;
+        this.backoff = backoff;
+        this.firstSlot = firstSlot;
+        this.readLeaseNanos = unit.toNanos(readLease);
+        this.proposalNumber = Ballot.of(INITIAL_ROUND, id);
+        this.isLeader = false;
+        this.firstPreparedSlot = firstSlot;
+        this.nextSlot = firstSlot;
+        this.boundProposals = new TreeMap<>();
+    }
+
+    @Override
+    public void propose(long slot, V valueHint) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            long retriesBefore = retries.get();
+            proposeInSlot(slot, valueHint);
+            recordProposal(start, retriesBefore);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Appends the value to the end of the log, returning the slot it was chosen in.
+    public long append(V value) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            long retriesBefore = retries.get();
+            while (true) {
+                long slot = nextSlot;
+                if (proposeInSlot(slot, value)) {
+                    recordProposal(start, retriesBefore);
+                    return slot;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns a slot such that every value chosen before this call was chosen in that slot or an
+    // earlier one. A reader that waits until its learner has learnt every slot up to and including
+    // this one, and has applied them, gives a linearizable read; the reader may be on any node.
+    // Values a previous leader may have had chosen count too, so if we have yet to re-propose
+    // them, readers will wait until we have done so in the course of appending.
+    public long readIndex() {
+        lock.lock();
+        try {
+            while (true) {
+                // A phase 1 that has only just succeeded shows that we lead as well as any check.
+                boolean confirmed = false;
+                if (!isLeader || firstPreparedSlot > firstSlot) {
+                    // Our phase 1 must cover the whole log for us to know everything chosen in it.
+                    phase1(firstSlot, null);
+                    confirmed = true;
+                }
+
+                if (confirmed || holdsReadLease() || confirmLeadership()) {
+                    long lastBound = boundProposals.isEmpty() ? firstSlot - 1 : boundProposals.lastKey();
+                    return Math.max(nextSlot - 1, lastBound);
+                }
+
+                isLeader = false;
+                retry();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isLeader() {
+        lock.lock();
+        try {
+            return isLeader;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The number of times a phase has had to be rerun because acceptors rejected it.
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    // Stops the threads that thrifty mode sends requests on. No more proposals may be made after.
+    @Override
+    public void close() {
+        if (requests != null) {
+            requests.shutdown();
+        }
+    }
+
+    // Returns true if our own value was chosen, or false if the slot was bound to an earlier value.
+    private boolean proposeInSlot(long slot, V valueHint) {
+        while (true) {
+            if (!isLeader || slot < firstPreparedSlot) {
+                phase1(slot, valueHint);
+            }
+
+            Proposal<V> boundProposal = boundProposals.remove(slot);
+            V value = (boundProposal != null) ? boundProposal.getValue() : valueHint;
+            if (phase2(slot, new Proposal<>(proposalNumber, value))) {
+                nextSlot = Math.max(nextSlot, slot + 1);
+                backoff.reset();
+                return boundProposal == null;
+            }
+
+            // Another proposer has prepared a higher proposal number since our last phase 1, so we
+            // are no longer the leader.
+            isLeader = false;
+            hasReadLease = false;
+            retry();
+        }
+    }
+
+    private void phase1(long fromSlot, V valueHint) {
+        while (true) {
+            long sent = System.nanoTime();
+            PrepareRoundEvent event = new PrepareRoundEvent();
+            event.begin();
+            Proposal<V> prepare = new Proposal<>(proposalNumber, valueHint);
+            Quorums.Round<PrepareResult<MultiPromise<V>>> round = ask(
+                    acceptor -> acceptor.prepareFrom(fromSlot, prepare), PrepareResult::isPromised, quorums::isPrepareQuorum);
+            List<PrepareResult<MultiPromise<V>>> prepareResults = round.responses;
+            boolean quorum = quorums.isPrepareQuorum(round.successes);
+            recordPrepareRound(event, sent, fromSlot, proposalNumber, prepareResults, quorum);
+
+            if (quorum) {
+                // For each slot, we are bound by the highest-numbered proposal any acceptor accepted,
+                // or by whichever value might have been chosen if that was in a fast ballot.
+                boundProposals.clear();
+                Quorums.bindProposals(round, quorums, boundProposals);
+
+                isLeader = true;
+                firstPreparedSlot = fromSlot;
+                renewReadLease(sent);
+                break;
+            } else {
+                // Jump straight past the highest ballot any acceptor told us it had promised.
+                long highestPromised = prepareResults.stream()
+                        .mapToLong(result -> result.getPromisedBallot()).max().orElse(Ballot.NONE);
+                proposalNumber = Ballot.after(Math.max(highestPromised, proposalNumber), id);
+                hasReadLease = false;
+                retry();
+            }
+        }
+    }
+
+    private void recordProposal(long start, long retriesBefore) {
+        metrics.increment(Counter.PROPOSALS);
+        metrics.record(Distribution.RETRIES_PER_PROPOSAL, retries.get() - retriesBefore);
+        metrics.record(Distribution.PROPOSAL_LATENCY, System.nanoTime() - start);
+    }
+
+    private void recordPrepareRound(PrepareRoundEvent event, long sent, long slot, long ballot,
+                                    List<PrepareResult<MultiPromise<V>>> prepareResults, boolean quorum) {
+        int promises = Quorums.countSuccesses(prepareResults, PrepareResult::isPromised);
+        metrics.record(Distribution.PREPARE_ROUND_LATENCY, System.nanoTime() - sent);
+        metrics.increment(Counter.PREPARE_ROUNDS);
+        metrics.increment(Counter.PREPARES_REJECTED, prepareResults.size() - promises);
+        if (event.shouldCommit()) {
+            event.proposerId = id;
+            event.slot = slot;
+            event.ballot = ballot;
+            event.acceptors = prepareResults.size();
+            event.promises = promises;
+            event.quorum = quorum;
+            event.commit();
+        }
+    }
+
+    private void recordAcceptRound(AcceptRoundEvent event, long sent, long slot, long ballot,
+                                   List<Boolean> acceptResults, boolean quorum) {
+        int accepts = Quorums.countSuccesses(acceptResults, isAccepted -> isAccepted);
+        metrics.record(Distribution.ACCEPT_ROUND_LATENCY, System.nanoTime() - sent);
+        metrics.increment(Counter.ACCEPT_ROUNDS);
+        metrics.increment(Counter.ACCEPTS_REJECTED, acceptResults.size() - accepts);
+        if (event.shouldCommit()) {
+            event.proposerId = id;
+            event.slot = slot;
+            event.ballot = ballot;
+            event.acceptors = acceptResults.size();
+            event.accepts = accepts;
+            event.quorum = quorum;
+            event.commit();
+        }
+    }
+
+    private void retry() {
+        retries.incrementAndGet();
+        metrics.increment(Counter.RETRIES);
+        backoff.pause();
+    }
+
+    private boolean phase2(long slot, Proposal<V> proposal) {
+        long sent = System.nanoTime();
+        AcceptRoundEvent event = new AcceptRoundEvent();
+        event.begin();
+        Quorums.Round<Boolean> round =
+                ask(acceptor -> acceptor.accept(slot, proposal), isAccepted -> isAccepted, quorums::isAcceptQuorum);
+        boolean quorum = quorums.isAcceptQuorum(round.successes);
+        recordAcceptRound(event, sent, slot, proposal.getProposalNumber(), round.responses, quorum);
+
+        if (quorum) {
+            renewReadLease(sent);
+            return true;
+        }
+        return false;
+    }
+
+    // Prepares our current ballot again, which changes nothing at the acceptors but tells us
+    // whether a quorum still holds our promise. The prepare covers no slots we haven't already
+    // prepared, so all it can report are proposals we already know about.
+    private boolean confirmLeadership() {
+        long sent = System.nanoTime();
+        PrepareRoundEvent event = new PrepareRoundEvent();
+        event.begin();
+        Proposal<V> prepare = new Proposal<>(proposalNumber, null);
+        Quorums.Round<PrepareResult<MultiPromise<V>>> round = ask(
+                acceptor -> acceptor.prepareFrom(nextSlot, prepare), PrepareResult::isPromised, quorums::isPrepareQuorum);
+        List<PrepareResult<MultiPromise<V>>> prepareResults = round.responses;
+        boolean quorum = quorums.isPrepareQuorum(round.successes);
+        recordPrepareRound(event, sent, nextSlot, proposalNumber, prepareResults, quorum);
+
+        if (quorum) {
+            renewReadLease(sent);
+            return true;
+        }
+
+        long highestPromised = prepareResults.stream()
+                .mapToLong(result -> result.getPromisedBallot()).max().orElse(Ballot.NONE);
+        proposalNumber = Ballot.after(Math.max(highestPromised, proposalNumber), id);
+        hasReadLease = false;
+        return false;
+    }
+
+    private <R> Quorums.Round<R> ask(Function<Acceptor<V>, R> request, Predicate<R> isSuccess, LongPredicate isQuorum) {
+        if (ranking == null) {
+            return Quorums.askAll(acceptors, request, isSuccess);
+        }
+        return Quorums.askQuorumFirst(acceptors, ranking, requests, request, isSuccess, isQuorum, fallbackNanos);
+    }
+
+    private boolean holdsReadLease() {
+        return hasReadLease && System.nanoTime() - readLeaseExpiresNanos < 0;
+    }
+
+    private void renewReadLease(long sent) {
+        if (readLeaseNanos > 0) {
+            hasReadLease = true;
+            readLeaseExpiresNanos = sent + readLeaseNanos;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import com.stefankopieczek.jaxos.acceptor.AsyncAcceptor;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Multi-Paxos leader which keeps up to a fixed window of slots in phase 2 at once, so that
+// throughput is bounded by bandwidth rather than by one round trip per value.
+// append() blocks while the window is full. Each append's future completes once its value has
+// been chosen and every earlier slot has been too, so callers see slots decided in log order.
+//
+// All protocol state is confined to a single pipeline thread. Callers and acceptor responses
+// only ever hand it tasks, so nothing waits on the network while holding a lock that a response
+// might need. When another proposer pre-empts us, the pipeline pauses according to its Backoff
+// before trying again, so that two pipelined leaders don't thrash.
+public class PipelinedProposer<V> implements Closeable {
+    private static final int INITIAL_ROUND = 0;
+
+    // How long close() waits for the pipeline to finish a backoff pause before giving up on it.
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+    private final int id;
+    private final List<AsyncAcceptor<V>> acceptors;
+    private final QuorumSystem quorums;
+    private final Semaphore window;
+    private final ExecutorService pipeline;
+    private final Backoff backoff;
+    private final CompletableFuture<Void> closing = new CompletableFuture<>();
+
+    // The following are only touched on the pipeline thread.
+    private long proposalNumber;
+    private boolean isLeader = false;
+    private long nextSlot;
+    private final NavigableMap<Long, Proposal<V>> boundProposals = new TreeMap<>();
+    private final NavigableMap<Long, Instance<V>> outstanding = new TreeMap<>();
+
+    public PipelinedProposer(int id, Collection<AsyncAcceptor<V>> acceptors, int windowSize) {
+        this(id, acceptors, windowSize, 0);
+    }
+
+    public PipelinedProposer(int id, Collection<AsyncAcceptor<V>> acceptors, int windowSize, long firstSlot) {
+        this(id, acceptors, windowSize, firstSlot, QuorumSystem.majority(acceptors.size()));
+    }
+
+    public PipelinedProposer(int id, Collection<AsyncAcceptor<V>> acceptors, int windowSize, long firstSlot,
+                             QuorumSystem quorums) {
+        this(id, acceptors, windowSize, firstSlot, quorums, ExecutionMode.PLATFORM);
+    }
+
+    public PipelinedProposer(int id, Collection<AsyncAcceptor<V>> acceptors, int windowSize, long firstSlot,
+                             QuorumSystem quorums, ExecutionMode mode) {
+        this(id, acceptors, windowSize, firstSlot, quorums, mode, Backoff.none());
+    }
+
+    public PipelinedProposer(int id, Collection<AsyncAcceptor<V>> acceptors, int windowSize, long firstSlot,
+                             QuorumSystem quorums, ExecutionMode mode, Backoff backoff) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window must allow at least one slot in flight");
+        } else if (quorums.getAcceptorCount() != acceptors.size()) {
+            throw new IllegalArgumentException("Quorum system is for " + quorums.getAcceptorCount()
+                    + " acceptors, not " + acceptors.size());
+        }
+
+        this.id = id;
+        this.acceptors = new ArrayList<>(acceptors);
+        this.quorums = quorums;
+        this.window = new Semaphore(windowSize);
+        this.proposalNumber = Ballot.of(INITIAL_ROUND, id);
+        this.nextSlot = firstSlot;
+        this.backoff = backoff;
+        this.pipeline = Executors.newSingleThreadExecutor(mode.threadFactory("jaxos-pipeline"));
+    }
+
+    // Appends the value to the log, blocking first if the window is full. The future completes
+    // with the slot the value was chosen in.
+    public CompletableFuture<Long> append(V value) {
+        window.acquireUninterruptibly();
+        // The pipeline may hand the instance someone else's value, and clear its result, as soon as
+        // we pass it over, so hold on to the future ourselves.
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        Instance<V> instance = new Instance<>(value, result);
+        try {
+            pipeline.execute(() -> start(instance));
+        } catch (RejectedExecutionException e) {
+            window.release();
+            result.completeExceptionally(new IllegalStateException("Proposer is closed"));
+        }
+        return result;
+    }
+
+    // Stops proposing. Appends which haven't yet been delivered are failed. A phase 1 in progress is
+    // abandoned at once, but a backoff pause can't be cut short; if the pipeline doesn't get to
+    // failing the appends in time, we return without waiting for it to.
+    @Override
+    public void close() {
+        closing.complete(null);
+        CompletableFuture<Void> drained = new CompletableFuture<>();
+        try {
+            pipeline.execute(() -> {
+                IllegalStateException closed = new IllegalStateException("Proposer is closed");
+                for (Instance<V> instance : outstanding.values()) {
+                    if (instance.result != null) {
+                        // Let anyone blocked on the window through, to find that we're closed.
+                        window.release();
+                        instance.result.completeExceptionally(closed);
+                    }
+                }
+                outstanding.clear();
+                drained.complete(null);
+            });
+            pipeline.shutdown();
+            drained.completeOnTimeout(null, CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).join();
+        } catch (RejectedExecutionException e) {
+            // Already closed.
+        }
+    }
+
+    private void start(Instance<V> instance) {
+        instance.slot = nextSlot++;
+        outstanding.put(instance.slot, instance);
+        send(instance);
+    }
+
+    private void send(Instance<V> instance) {
+        if (!isLeader && !phase1(outstanding.firstKey())) {
+            // We're closed, and the instance will be failed with everything else outstanding.
+            return;
+        }
+
+        Proposal<V> boundProposal = boundProposals.remove(instance.slot);
+        if (boundProposal != null && !isOwn(instance, boundProposal)) {
+            // The slot is already bound to someone else's proposal, even if it has the same value
+            // as ours; two clients may well submit the same command. Fill the slot with it, and
+            // move our own value on to the next free slot.
+            if (instance.result != null) {
+                start(new Instance<>(instance.value, instance.result));
+            }
+            instance.value = boundProposal.getValue();
+            instance.result = null;
+        }
+
+        final long attempt = proposalNumber;
+        if (instance.firstAttempt == Ballot.NONE) {
+            instance.firstAttempt = attempt;
+        }
+        final Proposal<V> proposal = new Proposal<>(attempt, instance.value);
+        List<CompletableFuture<Boolean>> responses = acceptors.stream()
+                .map(acceptor -> acceptor.accept(instance.slot, proposal)).collect(Collectors.toList());
+        Quorums.collect(responses, isAccepted -> isAccepted, quorums::isAcceptQuorum).thenAccept(round -> {
+            boolean chosen = quorums.isAcceptQuorum(round.successes);
+            try {
+                pipeline.execute(() -> onAcceptResponses(instance, attempt, chosen));
+            } catch (RejectedExecutionException e) {
+                // We've been closed, and the instance failed with us.
+            }
+        });
+    }
+
+    // Whether the proposal is one we sent for this instance in an earlier attempt. We only ever
+    // use our own ballots, and once we've sent a ballot for a slot we use it for nothing else there.
+    private boolean isOwn(Instance<V> instance, Proposal<V> proposal) {
+        long ballot = proposal.getProposalNumber();
+        return instance.firstAttempt != Ballot.NONE && Ballot.proposerId(ballot) == id
+                && ballot >= instance.firstAttempt;
+    }
+
+    private void onAcceptResponses(Instance<V> instance, long attempt, boolean chosen) {
+        if (outstanding.get(instance.slot) != instance) {
+            // Closed while the accepts were in flight.
+            return;
+        } else if (chosen) {
+            instance.chosen = true;
+            backoff.reset();
+            deliverInOrder();
+            return;
+        }
+
+        // If the rejection was of our current proposal number, another proposer has pre-empted
+        // us. Otherwise we've already re-prepared since this attempt was sent, and need only resend.
+        if (attempt == proposalNumber) {
+            isLeader = false;
+            proposalNumber = Ballot.after(proposalNumber, id);
+            backoff.pause();
+        }
+        send(instance);
+    }
+
+    private void deliverInOrder() {
+        while (!outstanding.isEmpty() && outstanding.firstEntry().getValue().chosen) {
+            Instance<V> instance = outstanding.pollFirstEntry().getValue();
+            if (instance.result != null) {
+                window.release();
+                instance.result.complete(instance.slot);
+            }
+        }
+    }
+
+    // Blocks the pipeline until a quorum has promised a fresh proposal number for every slot from
+    // fromSlot onwards, returning true, or until we are closed, returning false.
+    private boolean phase1(long fromSlot) {
+        while (!closing.isDone()) {
+            Proposal<V> prepare = new Proposal<>(proposalNumber, null);
+            List<CompletableFuture<PrepareResult<MultiPromise<V>>>> responses = acceptors.stream()
+                    .map(acceptor -> acceptor.prepareFrom(fromSlot, prepare)).collect(Collectors.toList());
+            CompletableFuture<Quorums.Round<PrepareResult<MultiPromise<V>>>> collected =
+                    Quorums.collect(responses, result -> result.isPromised(), quorums::isPrepareQuorum);
+            CompletableFuture.anyOf(collected, closing).join();
+            if (!collected.isDone()) {
+                // Closed while waiting; this cancels the outstanding prepares.
+                collected.cancel(false);
+                return false;
+            }
+
+            Quorums.Round<PrepareResult<MultiPromise<V>>> round = collected.join();
+            List<PrepareResult<MultiPromise<V>>> results = round.responses;
+
+            if (quorums.isPrepareQuorum(round.successes)) {
+                // For each slot, we are bound by the highest-numbered proposal any acceptor accepted,
+                // or by whichever value might have been chosen if that was in a fast ballot.
+                boundProposals.clear();
+                Quorums.bindProposals(round, quorums, boundProposals);
+
+                isLeader = true;
+                return true;
+            }
+
+            // Jump straight past the highest ballot any acceptor told us it had promised.
+            for (PrepareResult<MultiPromise<V>> result : results) {
+                proposalNumber = Math.max(proposalNumber, result.getPromisedBallot());
+            }
+            proposalNumber = Ballot.after(proposalNumber, id);
+            backoff.pause();
+        }
+        return false;
+    }
+
+    // One slot of the log that we are trying to fill. result is null for slots we are filling
+    // with someone else's value.
+    private static class Instance<V> {
+        private long slot;
+        private V value;
+        private CompletableFuture<Long> result;
+        private boolean chosen = false;
+
+        // The ballot we first sent this slot's accepts in, or NONE if we haven't yet.
+        private long firstAttempt = Ballot.NONE;
+
+        private Instance(V value, CompletableFuture<Long> result) {
+            this.value = value;
+            this.result = result;
+        }
+    }
+}
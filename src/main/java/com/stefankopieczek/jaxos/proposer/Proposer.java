@@ -1,5 +1,11 @@
 package com.stefankopieczek.jaxos.proposer;
 
+import com.stefankopieczek.jaxos.core.Slots;
+
 public interface Proposer<V> {
-    void propose(V valueHint);
+    default void propose(V valueHint) {
+        propose(Slots.SINGLE_DECREE, valueHint);
+    }
+
+    void propose(long slot, V valueHint);
 }
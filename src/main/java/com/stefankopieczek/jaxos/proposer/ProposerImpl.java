@@ -1,87 +1,228 @@
 package com.stefankopieczek.jaxos.proposer;
 
 import com.stefankopieczek.jaxos.acceptor.Acceptor;
-import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import com.stefankopieczek.jaxos.core.PrepareResult;
 import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import com.stefankopieczek.jaxos.jfr.AcceptRoundEvent;
+import com.stefankopieczek.jaxos.jfr.PrepareRoundEvent;
+import com.stefankopieczek.jaxos.metrics.Counter;
+import com.stefankopieczek.jaxos.metrics.Distribution;
+import com.stefankopieczek.jaxos.metrics.MetricsSink;
+import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.Optional;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
 
-public class ProposerImpl<V> implements Proposer<V> {
-    private static final int INITIAL_PROPOSAL_NUMBER = 1;
+// In thrifty mode, each phase asks only as many acceptors as it needs for a quorum, choosing those
+// that have lately answered fastest, and asks them all at once. It turns to the rest only if one
+// of them refuses or throws, or they haven't all answered within the fallback timeout. When all is
+// well that's a majority of the messages of asking everyone. The requests run on threads of the
+// given ExecutionMode, which close() releases.
+// Quorums are majorities unless we are given some other QuorumSystem.
+public class ProposerImpl<V> implements Proposer<V>, Closeable {
+    private static final int INITIAL_ROUND = 0;
     private final int id;
-    private final Collection<Acceptor<V>> acceptors;
+    private final List<Acceptor<V>> acceptors;
+    private final QuorumSystem quorums;
+    private final Backoff backoff;
+    private final MetricsSink metrics;
+    private final AcceptorRanking ranking;
+    private final ExecutorService requests;
+    private final long fallbackNanos;
+    private final AtomicLong retries = new AtomicLong();
+    private final Lock lock = new ReentrantLock();
     private Proposal<V> proposal;
 
     public ProposerImpl(int id, Collection<Acceptor<V>> acceptors) {
+        this(id, acceptors, Backoff.none());
+    }
+
+    public ProposerImpl(int id, Collection<Acceptor<V>> acceptors, Backoff backoff) {
+        this(id, acceptors, backoff, MetricsSink.none());
+    }
+
+    public ProposerImpl(int id, Collection<Acceptor<V>> acceptors, Backoff backoff, MetricsSink metrics) {
+        this(id, acceptors, backoff, metrics, false);
+    }
+
+    public ProposerImpl(int id, Collection<Acceptor<V>> acceptors, Backoff backoff, MetricsSink metrics,
+                        boolean thrifty) {
+        this(id, acceptors, backoff, metrics, thrifty, QuorumSystem.majority(acceptors.size()));
+    }
+
+    public ProposerImpl(int id, Collection<Acceptor<V>> acceptors, Backoff backoff, MetricsSink metrics,
+                        boolean thrifty, QuorumSystem quorums) {
+        this(id, acceptors, backoff, metrics, thrifty, quorums, Quorums.DEFAULT_FALLBACK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public ProposerImpl(int id, Collection<Acceptor<V>> acceptors, Backoff backoff, MetricsSink metrics,
+                        boolean thrifty, QuorumSystem quorums, long fallbackAfter, TimeUnit unit) {
+        this(id, acceptors, backoff, metrics, thrifty, quorums, fallbackAfter, unit, ExecutionMode.PLATFORM);
+    }
+
+    public ProposerImpl(int id, Collection<Acceptor<V>> acceptors, Backoff backoff, MetricsSink metrics,
+                        boolean thrifty, QuorumSystem quorums, long fallbackAfter, TimeUnit unit,
+                        ExecutionMode mode) {
+        if (quorums.getAcceptorCount() != acceptors.size()) {
+            throw new IllegalArgumentException("Quorum system is for " + quorums.getAcceptorCount()
+                    + " acceptors, not " + acceptors.size());
+        }
+
         this.id = id;
-        this.acceptors = acceptors;
+        this.acceptors = new ArrayList<>(acceptors);
+        this.quorums = quorums;
+        this.backoff = backoff;
+        this.metrics = metrics;
+        this.ranking = thrifty ? new AcceptorRanking(acceptors.size()) : null;
+        this.requests = thrifty ? mode.newExecutor("jaxos-proposer-requests") : null;
+        this.fallbackNanos = unit.toNanos(fallbackAfter);
         this.proposal = null;
     }
 
     @Override
-    public synchronized void propose(V valueHint) {
-        if (proposal == null) {
-            proposal = new Proposal<>(INITIAL_PROPOSAL_NUMBER, valueHint);
+    public void propose(long slot, V valueHint) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            long retriesBefore = retries.get();
+            // Carry our proposal number over from any previous slot, as acceptors will already have
+            // rejected everything below it.
+            long proposalNumber = (proposal == null) ? Ballot.of(INITIAL_ROUND, id) : proposal.getProposalNumber();
+            proposal = new Proposal<>(proposalNumber, valueHint);
+
+            boolean success = false;
+            while (!success) {
+                phase1(slot);
+                success = phase2(slot);
+                if (!success) {
+                    retry();
+                }
+            }
+            backoff.reset();
+
+            metrics.increment(Counter.PROPOSALS);
+            metrics.record(Distribution.RETRIES_PER_PROPOSAL, retries.get() - retriesBefore);
+            metrics.record(Distribution.PROPOSAL_LATENCY, System.nanoTime() - start);
+        } finally {
+            lock.unlock();
         }
+    }
+
+    // The number of times a phase has had to be rerun because acceptors rejected it.
+    public long getRetryCount() {
+        return retries.get();
+    }
 
-        boolean success = false;
-        while (!success) {
-            phase1();
-            success = phase2();
+    // Stops the threads that thrifty mode sends requests on. No more proposals may be made after.
+    @Override
+    public void close() {
+        if (requests != null) {
+            requests.shutdown();
         }
     }
 
-    private void phase1() {
+    private void phase1(long slot) {
         while (true) {
-            List<Optional<Promise<V>>> prepareResults = acceptors.stream()
-                    .map(acceptor -> acceptor.prepare(proposal)).collect(Collectors.toList());
+            long sent = System.nanoTime();
+            PrepareRoundEvent event = new PrepareRoundEvent();
+            event.begin();
+            final Proposal<V> prepare = proposal;
+            Quorums.Round<PrepareResult<Promise<V>>> round =
+                    ask(acceptor -> acceptor.prepare(slot, prepare), PrepareResult::isPromised, quorums::isPrepareQuorum);
+            List<PrepareResult<Promise<V>>> prepareResults = round.responses;
+            boolean quorum = quorums.isPrepareQuorum(round.successes);
+            recordPrepareRound(event, sent, slot, proposal.getProposalNumber(), prepareResults, quorum);
 
-            if (hasPrepareQuorum(prepareResults)) {
+            if (quorum) {
                 // We received a quorum of promises back from the acceptors, so phase 1 is complete.
                 // If any promises contained already-accepted proposals, replace our proposal with the highest of them.
-                Optional<Proposal<V>> bestExistingAcceptedProposal = getMaximalProposal(prepareResults);
+                Optional<Proposal<V>> bestExistingAcceptedProposal = Quorums.boundProposal(round, quorums);
                 proposal = bestExistingAcceptedProposal
                         .map(p -> new Proposal<>(proposal.getProposalNumber(), p.getValue()))
                         .orElse(proposal);
                 break;
             } else {
-                // We failed to receive a quorum of responses. Increment our proposal number and try again.
-                proposal = new Proposal<>(proposal.getProposalNumber() + 1, proposal.getValue());
+                // We failed to receive a quorum of responses. Rejections tell us the highest ballot
+                // that's been promised, so jump straight past it and try again.
+                long highestPromised = prepareResults.stream()
+                        .mapToLong(result -> result.getPromisedBallot()).max().orElse(Ballot.NONE);
+                long proposalNumber = Ballot.after(Math.max(highestPromised, proposal.getProposalNumber()), id);
+                proposal = new Proposal<>(proposalNumber, proposal.getValue());
+                retry();
             }
         }
     }
 
-    private boolean phase2() {
-        List<Boolean> acceptResults = acceptors.stream().map(acceptor -> acceptor.accept(proposal))
-                    .collect(Collectors.toList());
+    private boolean phase2(long slot) {
+        long sent = System.nanoTime();
+        AcceptRoundEvent event = new AcceptRoundEvent();
+        event.begin();
+        final Proposal<V> accept = proposal;
+        Quorums.Round<Boolean> round =
+                ask(acceptor -> acceptor.accept(slot, accept), isAccepted -> isAccepted, quorums::isAcceptQuorum);
+        boolean quorum = quorums.isAcceptQuorum(round.successes);
+        recordAcceptRound(event, sent, slot, proposal.getProposalNumber(), round.responses, quorum);
 
-        return hasAcceptQuorum(acceptResults);
+        return quorum;
     }
 
-    private boolean hasPrepareQuorum(Collection<Optional<Promise<V>>> prepareResults) {
-        long numPromises = prepareResults.stream().filter(opt -> opt.isPresent()).count();
-        return (numPromises >= (prepareResults.size() / 2) + 1);
+    private <R> Quorums.Round<R> ask(Function<Acceptor<V>, R> request, Predicate<R> isSuccess, LongPredicate isQuorum) {
+        if (ranking == null) {
+            return Quorums.askAll(acceptors, request, isSuccess);
+        }
+        return Quorums.askQuorumFirst(acceptors, ranking, requests, request, isSuccess, isQuorum, fallbackNanos);
     }
 
-    private boolean hasAcceptQuorum(Collection<Boolean> acceptResults) {
-        long numAccepted = acceptResults.stream().filter(isAccepted -> isAccepted).count();
-        return (numAccepted >= (acceptResults.size() / 2) + 1);
+    private void recordPrepareRound(PrepareRoundEvent event, long sent, long slot, long ballot,
+                                    List<PrepareResult<Promise<V>>> prepareResults, boolean quorum) {
+        int promises = Quorums.countSuccesses(prepareResults, PrepareResult::isPromised);
+        metrics.record(Distribution.PREPARE_ROUND_LATENCY, System.nanoTime() - sent);
+        metrics.increment(Counter.PREPARE_ROUNDS);
+        metrics.increment(Counter.PREPARES_REJECTED, prepareResults.size() - promises);
+        if (event.shouldCommit()) {
+            event.proposerId = id;
+            event.slot = slot;
+            event.ballot = ballot;
+            event.acceptors = prepareResults.size();
+            event.promises = promises;
+            event.quorum = quorum;
+            event.commit();
+        }
+    }
+
+    private void recordAcceptRound(AcceptRoundEvent event, long sent, long slot, long ballot,
+                                   List<Boolean> acceptResults, boolean quorum) {
+        int accepts = Quorums.countSuccesses(acceptResults, isAccepted -> isAccepted);
+        metrics.record(Distribution.ACCEPT_ROUND_LATENCY, System.nanoTime() - sent);
+        metrics.increment(Counter.ACCEPT_ROUNDS);
+        metrics.increment(Counter.ACCEPTS_REJECTED, acceptResults.size() - accepts);
+        if (event.shouldCommit()) {
+            event.proposerId = id;
+            event.slot = slot;
+            event.ballot = ballot;
+            event.acceptors = acceptResults.size();
+            event.accepts = accepts;
+            event.quorum = quorum;
+            event.commit();
+        }
     }
 
-    private Optional<Proposal<V>> getMaximalProposal(Collection<Optional<Promise<V>>> prepareResults) {
-        return prepareResults.stream()
-            .filter(opt -> opt.isPresent())            // Ignore non-responses.
-            .map(opt -> opt.get())                     // Extract the promises from the responses.
-            .filter(promise -> promise.hasProposal())  // Ignore promises without a previously-accepted proposal.
-            .map(promise -> promise.getProposal())     // Extract the proposals.
-            .max(new Comparator<Proposal<V>>() {       // Choose the proposal with the highest proposal number.
-                @Override
-                public int compare(Proposal<V> p1, Proposal<V> p2) {
-                    return p1.getProposalNumber() - p2.getProposalNumber();
-                };
-            });
+    private void retry() {
+        retries.incrementAndGet();
+        metrics.increment(Counter.RETRIES);
+        backoff.pause();
     }
 }
@@ -0,0 +1,290 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+// Helpers for sending a phase's requests to acceptors and gathering the responses. Acceptors are
+// known by their position in the proposer's list, which is how a QuorumSystem numbers them; isQuorum
+// is the system's test for whichever phase is being run.
+final class Quorums {
+    // How long a thrifty proposer waits on the acceptors it asked first before asking the rest,
+    // unless it is told otherwise.
+    static final long DEFAULT_FALLBACK_MILLIS = 100;
+
+    private Quorums() {}
+
+    // Returns a future which completes as soon as the acceptors that have responded successfully
+    // make a quorum, or as soon as enough have failed that a quorum is no longer possible. It
+    // completes with every response received by then, successful or not, so that callers can learn
+    // from the rejections. Either way, any responses still outstanding at that point are cancelled.
+    // The i-th response is from the i-th acceptor.
+    static <T> CompletableFuture<Round<T>> collect(List<CompletableFuture<T>> responses,
+                                                   Predicate<? super T> isSuccess,
+                                                   LongPredicate isQuorum) {
+        int[] acceptors = new int[responses.size()];
+        for (int i = 0; i < acceptors.length; i++) {
+            acceptors[i] = i;
+        }
+        return collect(responses, acceptors, isSuccess, isQuorum);
+    }
+
+    // As above, but the i-th response is from acceptors[i].
+    static <T> CompletableFuture<Round<T>> collect(List<CompletableFuture<T>> responses, int[] acceptors,
+                                                   Predicate<? super T> isSuccess,
+                                                   LongPredicate isQuorum) {
+        long pending = 0;
+        for (int i = 0; i < responses.size(); i++) {
+            pending |= 1L << acceptors[i];
+        }
+
+        Collector<T> collector = new Collector<>(pending, isSuccess, isQuorum);
+        for (int i = 0; i < responses.size(); i++) {
+            int acceptor = acceptors[i];
+            responses.get(i).whenComplete((response, error) -> collector.onResponse(acceptor, response, error));
+        }
+
+        collector.result.whenComplete((received, error) -> responses.forEach(response -> response.cancel(false)));
+        return collector.result;
+    }
+
+    // Sends a request to every acceptor in turn and returns all their responses.
+    static <A, T> Round<T> askAll(List<A> acceptors, Function<? super A, T> request, Predicate<? super T> isSuccess) {
+        List<T> received = new ArrayList<>(acceptors.size());
+        int[] from = new int[acceptors.size()];
+        long successes = 0;
+        for (int i = 0; i < acceptors.size(); i++) {
+            T response = request.apply(acceptors.get(i));
+            from[i] = i;
+            received.add(response);
+            if (isSuccess.test(response)) {
+                successes |= 1L << i;
+            }
+        }
+        return new Round<>(received, from, successes);
+    }
+
+    // Sends a request at once to the best-ranked acceptors that would make a quorum if they all
+    // said yes, and returns as soon as they have. Only if one of them refuses or fails, or they
+    // haven't all answered within fallbackNanos, is it sent to the rest as well. If everyone says
+    // yes promptly this asks no more than a quorum.
+    static <A, T> Round<T> askQuorumFirst(List<A> acceptors, AcceptorRanking ranking,
+                                          Function<? super A, CompletableFuture<T>> request,
+                                          Predicate<? super T> isSuccess, LongPredicate isQuorum,
+                                          long fallbackNanos) {
+        int[] order = ranking.order();
+        int firstWave = 0;
+        long asked = 0;
+        List<CompletableFuture<T>> responses = new ArrayList<>(order.length);
+        while (firstWave < order.length && !isQuorum.test(asked)) {
+            asked |= 1L << order[firstWave];
+            responses.add(send(acceptors, order[firstWave], ranking, request));
+            firstWave++;
+        }
+
+        // Wait on copies, so that giving up on the first wave doesn't cancel the requests in it;
+        // any of them may yet answer in time to count towards the second.
+        List<CompletableFuture<T>> copies = new ArrayList<>(responses.size());
+        for (CompletableFuture<T> response : responses) {
+            copies.add(response.copy());
+        }
+        Round<T> round = collect(copies, order, isSuccess, isQuorum)
+                .completeOnTimeout(null, fallbackNanos, TimeUnit.NANOSECONDS).join();
+        if (round != null && isQuorum.test(round.successes)) {
+            return round;
+        }
+
+        for (int i = firstWave; i < order.length; i++) {
+            responses.add(send(acceptors, order[i], ranking, request));
+        }
+        return collect(responses, order, isSuccess, isQuorum).join();
+    }
+
+    // As above, for acceptors that block: each request runs on the given executor.
+    static <A, T> Round<T> askQuorumFirst(List<A> acceptors, AcceptorRanking ranking, Executor executor,
+                                          Function<? super A, T> request, Predicate<? super T> isSuccess,
+                                          LongPredicate isQuorum, long fallbackNanos) {
+        return askQuorumFirst(acceptors, ranking,
+                acceptor -> CompletableFuture.supplyAsync(() -> request.apply(acceptor), executor),
+                isSuccess, isQuorum, fallbackNanos);
+    }
+
+    private static <A, T> CompletableFuture<T> send(List<A> acceptors, int acceptor, AcceptorRanking ranking,
+                                                    Function<? super A, CompletableFuture<T>> request) {
+        long sent = System.nanoTime();
+        CompletableFuture<T> response = request.apply(acceptors.get(acceptor));
+        response.whenComplete((result, error) -> {
+            if (error == null || error instanceof CancellationException) {
+                // If we stopped waiting, the acceptor took at least this long.
+                ranking.answered(acceptor, System.nanoTime() - sent);
+            } else {
+                ranking.failed(acceptor);
+            }
+        });
+        return response;
+    }
+
+    // Of the proposals reported in a round of single-slot promises, the one a proposer is bound to
+    // propose again, if any.
+    static <V> Optional<Proposal<V>> boundProposal(Round<PrepareResult<Promise<V>>> round, QuorumSystem quorums) {
+        List<Proposal<V>> accepted = new ArrayList<>(round.responses.size());
+        for (PrepareResult<Promise<V>> result : round.responses) {
+            boolean reported = result.isPromised() && result.getPromise().hasProposal();
+            accepted.add(reported ? result.getPromise().getProposal() : null);
+        }
+        return Optional.ofNullable(bound(accepted, round.from, round.successes, quorums));
+    }
+
+    // Puts the proposal a proposer is bound to propose again in each slot reported in a round of
+    // multi-slot promises into the given map, by slot.
+    static <V> void bindProposals(Round<PrepareResult<MultiPromise<V>>> round, QuorumSystem quorums,
+                                  Map<Long, Proposal<V>> bound) {
+        NavigableSet<Long> slots = new TreeSet<>();
+        for (PrepareResult<MultiPromise<V>> result : round.responses) {
+            if (result.isPromised()) {
+                slots.addAll(result.getPromise().getAcceptedProposals().keySet());
+            }
+        }
+
+        List<Proposal<V>> accepted = new ArrayList<>(round.responses.size());
+        for (long slot : slots) {
+            accepted.clear();
+            for (PrepareResult<MultiPromise<V>> result : round.responses) {
+                accepted.add(result.isPromised() ? result.getPromise().getAcceptedProposals().get(slot) : null);
+            }
+            Proposal<V> proposal = bound(accepted, round.from, round.successes, quorums);
+            if (proposal != null) {
+                bound.put(slot, proposal);
+            }
+        }
+    }
+
+    // accepted.get(i) is what acceptor from[i] reported accepting in some slot, or null if nothing;
+    // promised is the set of acceptors that answered. Normally we are bound to the highest-numbered
+    // proposal. If that was in a fast ballot, though, acceptors may have accepted different values
+    // in it, and the one that might have been chosen is whichever would make a fast quorum if every
+    // acceptor we didn't hear from had accepted it too. At most one value can pass that test; if
+    // none does, nothing was chosen in that ballot and we are free to propose our own.
+    private static <V> Proposal<V> bound(List<Proposal<V>> accepted, int[] from, long promised,
+                                         QuorumSystem quorums) {
+        Proposal<V> highest = null;
+        for (Proposal<V> proposal : accepted) {
+            if (proposal != null && (highest == null || proposal.getProposalNumber() > highest.getProposalNumber())) {
+                highest = proposal;
+            }
+        }
+        if (highest == null || !Ballot.isFast(highest.getProposalNumber())) {
+            return highest;
+        }
+
+        long ballot = highest.getProposalNumber();
+        long unheard = (-1L >>> (Long.SIZE - quorums.getAcceptorCount())) & ~promised;
+        for (Proposal<V> candidate : accepted) {
+            if (candidate == null || candidate.getProposalNumber() != ballot) {
+                continue;
+            }
+
+            long voters = unheard;
+            for (int i = 0; i < accepted.size(); i++) {
+                Proposal<V> other = accepted.get(i);
+                if (other != null && other.getProposalNumber() == ballot
+                        && Objects.equals(other.getValue(), candidate.getValue())) {
+                    voters |= 1L << from[i];
+                }
+            }
+            if (quorums.isFastQuorum(voters)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    static <T> int countSuccesses(List<T> responses, Predicate<? super T> isSuccess) {
+        int count = 0;
+        for (T response : responses) {
+            if (isSuccess.test(response)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The responses to one phase, successful or not, and which acceptors they came from: the i-th
+    // response is from acceptor from[i], and successes is the set that responded successfully.
+    static final class Round<T> {
+        final List<T> responses;
+        final int[] from;
+        final long successes;
+
+        Round(List<T> responses, int[] from, long successes) {
+            this.responses = responses;
+            this.from = from;
+            this.successes = successes;
+        }
+    }
+
+    private static class Collector<T> {
+        private final CompletableFuture<Round<T>> result = new CompletableFuture<>();
+        private final List<T> received = new ArrayList<>();
+        private final int[] from;
+        private final Predicate<? super T> isSuccess;
+        private final LongPredicate isQuorum;
+        private long pending;
+        private long successes = 0;
+        private final Lock lock = new ReentrantLock();
+
+        private Collector(long pending, Predicate<? super T> isSuccess, LongPredicate isQuorum) {
+            this.isSuccess = isSuccess;
+            this.isQuorum = isQuorum;
+            this.pending = pending;
+            this.from = new int[Long.bitCount(pending)];
+            if (!isQuorum.test(pending)) {
+                result.complete(new Round<>(received, from, 0));
+            }
+        }
+
+        private void onResponse(int acceptor, T response, Throwable error) {
+            lock.lock();
+            try {
+                if (result.isDone()) {
+                    // A straggler; we've already made our decision.
+                    return;
+                }
+
+                pending &= ~(1L << acceptor);
+                if (error == null) {
+                    from[received.size()] = acceptor;
+                    received.add(response);
+                    if (isSuccess.test(response)) {
+                        successes |= 1L << acceptor;
+                    }
+                }
+
+                if (isQuorum.test(successes) || !isQuorum.test(successes | pending)) {
+                    result.complete(new Round<>(new ArrayList<>(received), from.clone(), successes));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
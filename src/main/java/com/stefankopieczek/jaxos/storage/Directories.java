@@ -0,0 +1,19 @@
+package com.stefankopieczek.jaxos.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+final class Directories {
+    private Directories() {
+    }
+
+    // Forcing a file only makes its contents durable. Creating, renaming or deleting it changes the
+    // directory, and a crash can undo that change unless the directory is forced as well.
+    static void force(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.stefankopieczek.jaxos.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+// A single checksummed blob which is replaced atomically: the new contents are written and
+// forced to a temporary file, which is then renamed over the old one. A crash at any point leaves
+// either the old snapshot or the new one, never a mixture. The rename is itself forced to disk
+// before write() returns, so callers may then delete whatever the new snapshot replaces.
+public class SnapshotFile {
+    private final Path file;
+    private final Path tempFile;
+
+    public SnapshotFile(Path file) {
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    public Optional<ByteBuffer> read() throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (contents.remaining() < Integer.BYTES) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+
+            int checksum = contents.getInt();
+            ByteBuffer payload = contents.slice();
+            if (checksum(payload) != checksum) {
+                throw new IOException("Snapshot " + file + " is corrupt");
+            }
+            return Optional.of(payload);
+        }
+    }
+
+    public void write(ByteBuffer payload) throws IOException {
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            header.putInt(0, checksum(payload));
+            ByteBuffer[] buffers = {header, payload.duplicate()};
+            while (buffers[1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(true);
+        }
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Directories.force(file.toAbsolutePath().getParent());
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,319 @@
+package com.stefankopieczek.jaxos.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// An append-only log of records which survives crashes.
+// Each record is stored as [int length][int crc32][payload]. A record whose checksum doesn't match
+// (or which is cut short) can only be the product of a crash mid-write, so it and anything after
+// it is discarded on recovery.
+//
+// The log is split across segment files in a single directory, each named after the log offset
+// at which it starts. Once a segment passes the configured size we roll over to a new one, and
+// segments wholly before a given offset can be deleted once a snapshot has made them redundant.
+// Segments are memory-mapped for replay, so records are handed out without being copied.
+//
+// Appending is split into two steps so that callers can append while holding their own locks but
+// wait for the disk outside of them. Waiters use group commit: whichever arrives when no sync is
+// in progress writes and forces everything appended so far in one go, while the rest wait for it,
+// so one fsync covers every record that arrived during the previous one.
+public class WriteAheadLog implements Closeable {
+    public static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final Lock lock = new ReentrantLock();
+    private final Condition syncComplete = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+
+    // Only touched by the thread performing a sync, or before the log is in use.
+    private FileChannel segment;
+    private long segmentStart;
+
+    // The following are guarded by lock.
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long appendedOffset;
+    private long appendedSequence = 0;
+    private long durableSequence = 0;
+    private long syncCount = 0;
+    private boolean syncInProgress = false;
+    private IOException failure = null;
+
+    public WriteAheadLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public WriteAheadLog(Path directory, long segmentSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+
+        List<Long> segments = listSegments();
+        this.segmentStart = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        this.segment = openSegment(segmentStart);
+        this.appendedOffset = segmentStart + segment.size();
+    }
+
+    // Passes every intact record from the given offset onwards to the handler, in order, then
+    // discards any torn record at the end of the log. Must be called before the first append.
+    // The buffers passed to the handler are only valid for the duration of the call.
+    public void replay(long fromOffset, Consumer<ByteBuffer> handler) throws IOException {
+        List<Long> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            long start = segments.get(i);
+            boolean isLast = (i == segments.size() - 1);
+            long end = isLast ? Long.MAX_VALUE : segments.get(i + 1);
+            if (end <= fromOffset) {
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(segmentPath(start), StandardOpenOption.READ)) {
+                long size = channel.size();
+                long validEnd = 0;
+                if (size > 0) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    validEnd = replaySegment(mapped, Math.max(0, fromOffset - start), handler);
+                }
+
+                if (validEnd < size) {
+                    if (!isLast) {
+                        throw new IOException("Log segment " + segmentPath(start) + " is corrupt at " + validEnd);
+                    }
+
+                    segment.truncate(validEnd);
+                    segment.position(validEnd);
+                    appendedOffset = start + validEnd;
+                }
+            }
+        }
+    }
+
+    // Buffers the record in memory, returning a sequence number to pass to awaitDurable().
+    // The record is copied, so the caller may reuse its buffer straight away.
+    public long append(ByteBuffer record) {
+        lock.lock();
+        try {
+            int length = record.remaining();
+            ensureCapacity(HEADER_SIZE + length);
+            pending.putInt(length);
+            pending.putInt(checksum(record));
+            pending.put(record);
+            appendedOffset += HEADER_SIZE + length;
+            appendedSequence += 1;
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The sequence number of the most recent append, which may not yet be durable.
+    public long lastAppended() {
+        lock.lock();
+        try {
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The log offset just past the most recent append. Replaying from here will return only
+    // records appended after this call.
+    public long appendedOffset() {
+        lock.lock();
+        try {
+            return appendedOffset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until the given record, and every record appended before it, is on disk.
+    public void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log has failed", failure);
+                } else if (syncInProgress) {
+                    syncComplete.awaitUninterruptibly();
+                } else {
+                    sync();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Deletes every segment which lies entirely before the given offset.
+    // The segment currently being written to is never deleted.
+    public void deleteBefore(long offset) throws IOException {
+        List<Long> segments = listSegments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (segments.get(i + 1) <= offset) {
+                Files.deleteIfExists(segmentPath(segments.get(i)));
+            }
+        }
+    }
+
+    // The number of times we have forced the log to disk.
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentCount() throws IOException {
+        return listSegments().size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        segment.close();
+    }
+
+    private long replaySegment(ByteBuffer buffer, long startPosition, Consumer<ByteBuffer> handler) {
+        int position = (int) startPosition;
+        while (buffer.limit() - position >= HEADER_SIZE) {
+            int length = buffer.getInt(position);
+            int checksum = buffer.getInt(position + Integer.BYTES);
+            if (length < 0 || length > buffer.limit() - position - HEADER_SIZE) {
+                break;
+            }
+
+            ByteBuffer record = buffer.duplicate();
+            record.limit(position + HEADER_SIZE + length);
+            record.position(position + HEADER_SIZE);
+            if (checksum(record) != checksum) {
+                break;
+            }
+
+            handler.accept(record.slice());
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    // Called with the lock held. Releases it while writing, so that other threads can keep
+    // appending records for the next sync.
+    private void sync() {
+        ByteBuffer batch = pending;
+        long batchSequence = appendedSequence;
+        pending = spare;
+        syncInProgress = true;
+        lock.unlock();
+
+        IOException error = null;
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                segment.write(batch);
+            }
+            segment.force(false);
+
+            if (segment.size() >= segmentSize) {
+                rollSegment();
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            batch.clear();
+            lock.lock();
+        }
+
+        spare = batch;
+        syncInProgress = false;
+        syncCount += 1;
+        if (error != null) {
+            failure = error;
+        } else {
+            durableSequence = batchSequence;
+        }
+        syncComplete.signalAll();
+    }
+
+    private void rollSegment() throws IOException {
+        long nextStart = segmentStart + segment.size();
+        FileChannel next = openSegment(nextStart);
+        segment.close();
+        segment = next;
+        segmentStart = nextStart;
+    }
+
+    // A new segment is forced into the directory before we write to it, as otherwise a crash could
+    // lose the whole file along with records we had reported durable.
+    private FileChannel openSegment(long start) throws IOException {
+        Path path = segmentPath(start);
+        boolean isNew = !Files.exists(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                               StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (isNew) {
+            try {
+                Directories.force(directory);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private Path segmentPath(long start) {
+        return directory.resolve(String.format("%020d%s", start, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours.
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (pending.remaining() < extra) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + extra));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+    }
+
+    private int checksum(ByteBuffer record) {
+        crc.reset();
+        crc.update(record.duplicate());
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,86 @@
+package com.stefankopieczek.jaxos.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+// Client end of a connection to a remote node.
+// Requests are tagged with an id and pipelined over the one socket; responses may come back in any
+// order and are matched up to their requests by that id.
+final class Connection<V> implements FramedChannel.Listener {
+    // Request id reserved for one-way messages, to which the server sends no response.
+    static final long ONE_WAY = 0;
+
+    private final MessageCodec<V> codec;
+    private final FramedChannel channel;
+    private final Map<Long, CompletableFuture<ByteBuffer>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextRequestId = new AtomicLong(ONE_WAY);
+
+    Connection(SocketChannel socket, EventLoop loop, MessageCodec<V> codec) {
+        this.codec = codec;
+        this.channel = new FramedChannel(socket, loop, this);
+        loop.execute(() -> {
+            try {
+                channel.register();
+            } catch (IOException e) {
+                onClose(channel, e);
+            }
+        });
+    }
+
+    CompletableFuture<ByteBuffer> request(LongFunction<ByteBuffer> encoder) {
+        long requestId = nextRequestId.incrementAndGet();
+        CompletableFuture<ByteBuffer> response = new CompletableFuture<>();
+        pending.put(requestId, response);
+        response.whenComplete((result, error) -> pending.remove(requestId));
+
+        // Check this after registering the request, so that we can't miss a concurrent close.
+        if (!channel.isOpen()) {
+            response.completeExceptionally(new IOException("Connection is closed"));
+        } else {
+            channel.send(encoder.apply(requestId));
+        }
+        return response;
+    }
+
+    void send(LongFunction<ByteBuffer> encoder) {
+        channel.send(encoder.apply(ONE_WAY));
+    }
+
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    void close() {
+        channel.close();
+    }
+
+    @Override
+    public void onFrame(FramedChannel channel, ByteBuffer frame) {
+        byte type = frame.get();
+        long requestId = codec.readRequestId(frame);
+        CompletableFuture<ByteBuffer> response = pending.remove(requestId);
+        if (response == null) {
+            // The request has already timed out or been cancelled.
+            return;
+        }
+
+        if (type == MessageCodec.ERROR) {
+            response.completeExceptionally(new IOException("Remote error: " + codec.readError(frame)));
+        } else {
+            response.complete(frame);
+        }
+    }
+
+    @Override
+    public void onClose(FramedChannel channel, IOException cause) {
+        for (CompletableFuture<ByteBuffer> response : pending.values()) {
+            response.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.stefankopieczek.jaxos.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// A single selector thread which services every channel registered with it.
+// Channels may only be touched from the loop's own thread, so other threads hand work over
+// through execute().
+final class EventLoop implements Closeable {
+    interface Handler {
+        void onReady(SelectionKey key);
+    }
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    EventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    // Must be called on the loop thread.
+    SelectionKey register(SelectableChannel channel, int ops, Handler handler) throws ClosedChannelException {
+        return channel.register(selector, ops, handler);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (key.isValid()) {
+                        try {
+                            ((Handler) key.attachment()).onReady(key);
+                        } catch (RuntimeException e) {
+                            // Handlers should clean up after themselves, but if one doesn't, only
+                            // its own channel goes down rather than every channel on the loop.
+                            key.cancel();
+                            closeQuietly(key.channel());
+                        }
+                    }
+                }
+
+                // Run tasks after the handlers, so that any they hand over don't wait for the next
+                // wakeup.
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // As above, one failed task mustn't stop the loop.
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // The selector itself has failed; there's nothing more we can do except shut down.
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+        }
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Already closing; nothing useful to do with the error.
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.stefankopieczek.jaxos.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// A socket carrying length-prefixed frames in both directions.
+// Any thread may send; frames queued while a write is pending are flushed together in a single
+// gathering write, so that many pipelined messages share each system call.
+// Input from the peer isn't trusted: a frame longer than MAX_FRAME_SIZE, or one the listener fails
+// to make sense of, closes this channel and no other.
+final class FramedChannel {
+    interface Listener {
+        // The frame starts at its type byte, with the length prefix already stripped.
+        void onFrame(FramedChannel channel, ByteBuffer frame);
+        void onClose(FramedChannel channel, IOException cause);
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_GATHER = 64;
+    static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private final Listener listener;
+    private final Queue<ByteBuffer> sendQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    // The following are only accessed from the loop thread.
+    private final ArrayDeque<ByteBuffer> outgoing = new ArrayDeque<>();
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private SelectionKey key;
+
+    FramedChannel(SocketChannel channel, EventLoop loop, Listener listener) {
+        this.channel = channel;
+        this.loop = loop;
+        this.listener = listener;
+    }
+
+    // Must be called on the loop thread.
+    void register() throws IOException {
+        channel.configureBlocking(false);
+        key = loop.register(channel, SelectionKey.OP_READ, this::onReady);
+    }
+
+    void send(ByteBuffer frame) {
+        if (closed.get()) {
+            return;
+        }
+
+        sendQueue.add(frame);
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(this::flush);
+        }
+    }
+
+    void close() {
+        loop.execute(() -> close(new EOFException("Channel closed locally")));
+    }
+
+    boolean isOpen() {
+        return !closed.get();
+    }
+
+    private void onReady(SelectionKey key) {
+        try {
+            if (key.isReadable()) {
+                read();
+            }
+
+            if (key.isValid() && key.isWritable()) {
+                write();
+            }
+        } catch (IOException e) {
+            close(e);
+        } catch (RuntimeException e) {
+            close(new IOException("Malformed frame", e));
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        try {
+            write();
+        } catch (IOException e) {
+            close(e);
+        } catch (RuntimeException e) {
+            close(new IOException("Failed to write", e));
+        }
+    }
+
+    private void write() throws IOException {
+        if (closed.get()) {
+            return;
+        }
+
+        ByteBuffer frame;
+        while ((frame = sendQueue.poll()) != null) {
+            outgoing.add(frame);
+        }
+
+        while (!outgoing.isEmpty()) {
+            ByteBuffer[] batch = outgoing.stream().limit(MAX_GATHER).toArray(ByteBuffer[]::new);
+            channel.write(batch);
+            while (!outgoing.isEmpty() && !outgoing.peek().hasRemaining()) {
+                outgoing.poll();
+            }
+
+            if (batch[batch.length - 1].hasRemaining()) {
+                // The socket buffer is full; wait until it drains.
+                break;
+            }
+        }
+
+        if (outgoing.isEmpty()) {
+            key.interestOps(SelectionKey.OP_READ);
+        } else {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new EOFException("Connection closed by peer");
+        }
+
+        readBuffer.flip();
+        while (readBuffer.remaining() >= Integer.BYTES) {
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length < 0 || length > MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame length " + length);
+            } else if (readBuffer.remaining() < Integer.BYTES + length) {
+                if (Integer.BYTES + length > readBuffer.capacity()) {
+                    growReadBuffer(Integer.BYTES + length);
+                    return;
+                }
+                break;
+            }
+
+            readBuffer.position(readBuffer.position() + Integer.BYTES);
+            ByteBuffer frame = ByteBuffer.allocate(length);
+            int limit = readBuffer.limit();
+            readBuffer.limit(readBuffer.position() + length);
+            frame.put(readBuffer);
+            readBuffer.limit(limit);
+            frame.flip();
+            listener.onFrame(this, frame);
+        }
+        readBuffer.compact();
+    }
+
+    // Leaves the buffer in write mode, ready for the next read.
+    private void growReadBuffer(int minCapacity) {
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(minCapacity, readBuffer.capacity() * 2));
+        bigger.put(readBuffer);
+        readBuffer = bigger;
+    }
+
+    private void close(IOException cause) {
+        if (closed.compareAndSet(false, true)) {
+            if (key != null) {
+                key.cancel();
+            }
+            EventLoop.closeQuietly(channel);
+            listener.onClose(this, cause);
+        }
+    }
+}
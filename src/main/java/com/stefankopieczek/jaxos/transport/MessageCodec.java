@@ -0,0 +1,176 @@
+package com.stefankopieczek.jaxos.transport;
+
+import com.stefankopieczek.jaxos.codec.ProposalCodec;
+import com.stefankopieczek.jaxos.codec.StringCodec;
+import com.stefankopieczek.jaxos.codec.ValueCodec;
+import com.stefankopieczek.jaxos.codec.VarInts;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.nio.ByteBuffer;
+
+// Encodes and decodes the messages exchanged between nodes.
+// Each frame is laid out as: [int length][byte type][varint requestId][body], where the length
+// covers everything after itself and may be at most FramedChannel.MAX_FRAME_SIZE. Responses echo
+// the requestId of the request they answer.
+// Frames are encoded straight into a buffer of exactly the right size.
+final class MessageCodec<V> {
+    static final byte PREPARE_FROM = 1;
+    static final byte ACCEPT = 2;
+    static final byte TEACH = 3;
+    static final byte GET_VALUE = 4;
+    static final byte HEARTBEAT = 5;
+    static final byte CHOSEN = 6;
+    static final byte RESPONSE = 64;
+    static final byte ERROR = 65;
+
+    private static final StringCodec ERROR_CODEC = new StringCodec();
+
+    private final ProposalCodec<V> proposals;
+
+    MessageCodec(ValueCodec<V> valueCodec) {
+        this.proposals = new ProposalCodec<>(valueCodec);
+    }
+
+    ByteBuffer prepareFromRequest(long requestId, long firstSlot, Proposal<V> proposal) {
+        ByteBuffer out = frame(PREPARE_FROM, requestId, VarInts.sizeOf(firstSlot) + proposals.sizeOf(proposal));
+        VarInts.write(firstSlot, out);
+        proposals.encode(proposal, out);
+        return finish(out);
+    }
+
+    ByteBuffer acceptRequest(long requestId, long slot, Proposal<V> proposal) {
+        ByteBuffer out = frame(ACCEPT, requestId, VarInts.sizeOf(slot) + proposals.sizeOf(proposal));
+        VarInts.write(slot, out);
+        proposals.encode(proposal, out);
+        return finish(out);
+    }
+
+    ByteBuffer teachRequest(long requestId, int acceptorId, long slot, Proposal<V> proposal) {
+        ByteBuffer out = frame(TEACH, requestId,
+                VarInts.sizeOf(acceptorId) + VarInts.sizeOf(slot) + proposals.sizeOf(proposal));
+        VarInts.write(acceptorId, out);
+        VarInts.write(slot, out);
+        proposals.encode(proposal, out);
+        return finish(out);
+    }
+
+    ByteBuffer chosenRequest(long requestId, long slot, V value) {
+        ByteBuffer out = frame(CHOSEN, requestId, VarInts.sizeOf(slot) + proposals.sizeOfValue(value));
+        VarInts.write(slot, out);
+        proposals.encodeValue(value, out);
+        return finish(out);
+    }
+
+    ByteBuffer getValueRequest(long requestId, long slot) {
+        ByteBuffer out = frame(GET_VALUE, requestId, VarInts.sizeOf(slot));
+        VarInts.write(slot, out);
+        return finish(out);
+    }
+
+    ByteBuffer heartbeatRequest(long requestId, int nodeId) {
+        ByteBuffer out = frame(HEARTBEAT, requestId, VarInts.sizeOf(nodeId));
+        VarInts.write(nodeId, out);
+        return finish(out);
+    }
+
+    // A flag byte, then the promise if one was made or the ballot already promised if not.
+    ByteBuffer promiseResponse(long requestId, PrepareResult<MultiPromise<V>> result) {
+        if (result.isPromised()) {
+            ByteBuffer out = frame(RESPONSE, requestId, 1 + proposals.sizeOf(result.getPromise()));
+            out.put((byte) 1);
+            proposals.encode(result.getPromise(), out);
+            return finish(out);
+        } else {
+            ByteBuffer out = frame(RESPONSE, requestId, 1 + proposals.sizeOfBallot(result.getPromisedBallot()));
+            out.put((byte) 0);
+            proposals.encodeBallot(result.getPromisedBallot(), out);
+            return finish(out);
+        }
+    }
+
+    ByteBuffer booleanResponse(long requestId, boolean result) {
+        ByteBuffer out = frame(RESPONSE, requestId, 1);
+        out.put(result ? (byte) 1 : (byte) 0);
+        return finish(out);
+    }
+
+    ByteBuffer valueResponse(long requestId, V value) {
+        ByteBuffer out = frame(RESPONSE, requestId, proposals.sizeOfValue(value));
+        proposals.encodeValue(value, out);
+        return finish(out);
+    }
+
+    ByteBuffer emptyResponse(long requestId) {
+        return finish(frame(RESPONSE, requestId, 0));
+    }
+
+    ByteBuffer errorResponse(long requestId, String message) {
+        String text = String.valueOf(message);
+        int size = ERROR_CODEC.sizeOf(text);
+        ByteBuffer out = frame(ERROR, requestId, VarInts.sizeOf(size) + size);
+        VarInts.write(size, out);
+        ERROR_CODEC.encode(text, out);
+        return finish(out);
+    }
+
+    long readRequestId(ByteBuffer in) {
+        return VarInts.read(in);
+    }
+
+    long readSlot(ByteBuffer in) {
+        return VarInts.read(in);
+    }
+
+    int readAcceptorId(ByteBuffer in) {
+        return VarInts.readInt(in);
+    }
+
+    int readNodeId(ByteBuffer in) {
+        return VarInts.readInt(in);
+    }
+
+    PrepareResult<MultiPromise<V>> readPromise(ByteBuffer in) {
+        if (in.get() == 0) {
+            return PrepareResult.rejected(proposals.decodeBallot(in));
+        }
+        return PrepareResult.promised(proposals.decodeMultiPromise(in));
+    }
+
+    boolean readBoolean(ByteBuffer in) {
+        return in.get() != 0;
+    }
+
+    String readError(ByteBuffer in) {
+        int size = VarInts.readInt(in);
+        int limit = in.limit();
+        in.limit(in.position() + size);
+        try {
+            return ERROR_CODEC.decode(in);
+        } finally {
+            in.limit(limit);
+        }
+    }
+
+    Proposal<V> readProposal(ByteBuffer in) {
+        return proposals.decodeProposal(in);
+    }
+
+    V readValue(ByteBuffer in) {
+        return proposals.decodeValue(in);
+    }
+
+    private ByteBuffer frame(byte type, long requestId, int bodySize) {
+        int length = 1 + VarInts.sizeOf(requestId) + bodySize;
+        ByteBuffer out = ByteBuffer.allocate(Integer.BYTES + length);
+        out.putInt(length);
+        out.put(type);
+        VarInts.write(requestId, out);
+        return out;
+    }
+
+    private ByteBuffer finish(ByteBuffer out) {
+        out.flip();
+        return out;
+    }
+}
@@ -0,0 +1,182 @@
+package com.stefankopieczek.jaxos.transport;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.codec.ValueCodec;
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import com.stefankopieczek.jaxos.election.HeartbeatListener;
+import com.stefankopieczek.jaxos.learner.Learner;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+// Serves a local acceptor, learner and/or election to remote nodes.
+// The selector thread only moves bytes; requests are handled on a separate pool, since calls such
+// as Acceptor.accept() may block on the disk. Requests for a learner's value are answered when its
+// future completes, so clients waiting on undecided slots don't hold a thread each.
+public final class PaxosServer<V> implements Closeable {
+    private final MessageCodec<V> codec;
+    private final ExecutorService executor;
+    private final EventLoop loop;
+    private final ServerSocketChannel serverChannel;
+    private volatile Optional<Acceptor<V>> acceptor = Optional.empty();
+    private volatile Optional<Learner<V>> learner = Optional.empty();
+    private volatile Optional<HeartbeatListener> election = Optional.empty();
+
+    public PaxosServer(InetSocketAddress address, ValueCodec<V> valueCodec) throws IOException {
+        this(address, valueCodec, ExecutionMode.PLATFORM);
+    }
+
+    public PaxosServer(InetSocketAddress address, ValueCodec<V> valueCodec, ExecutionMode mode) throws IOException {
+        this(address, valueCodec, mode.newExecutor("jaxos-server-handler"));
+    }
+
+    public PaxosServer(InetSocketAddress address, ValueCodec<V> valueCodec, ExecutorService executor)
+            throws IOException {
+        this.codec = new MessageCodec<>(valueCodec);
+        this.executor = executor;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(address);
+        this.serverChannel.configureBlocking(false);
+        int port = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        this.loop = new EventLoop("jaxos-server-" + port);
+        loop.execute(() -> {
+            try {
+                loop.register(serverChannel, SelectionKey.OP_ACCEPT, key -> acceptConnections());
+            } catch (IOException e) {
+                close();
+            }
+        });
+    }
+
+    public void serveAcceptor(Acceptor<V> acceptor) {
+        this.acceptor = Optional.of(acceptor);
+    }
+
+    public void serveLearner(Learner<V> learner) {
+        this.learner = Optional.of(learner);
+    }
+
+    public void serveElection(HeartbeatListener election) {
+        this.election = Optional.of(election);
+    }
+
+    // The address actually bound, which will differ from the one requested if that had port 0.
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) serverChannel.socket().getLocalSocketAddress();
+    }
+
+    @Override
+    public void close() {
+        loop.close();
+        EventLoop.closeQuietly(serverChannel);
+        executor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        try {
+            SocketChannel socket;
+            while ((socket = serverChannel.accept()) != null) {
+                socket.socket().setTcpNoDelay(true);
+                new FramedChannel(socket, loop, new RequestHandler()).register();
+            }
+        } catch (IOException e) {
+            // Failing to accept one connection shouldn't stop us from serving the others.
+        }
+    }
+
+    private class RequestHandler implements FramedChannel.Listener {
+        @Override
+        public void onFrame(FramedChannel channel, ByteBuffer frame) {
+            executor.execute(() -> {
+                byte type;
+                long requestId;
+                try {
+                    type = frame.get();
+                    requestId = codec.readRequestId(frame);
+                } catch (RuntimeException e) {
+                    // With no request id there's nobody to send an error to, and the peer is
+                    // clearly confused, so drop it; its pending requests fail when it sees the close.
+                    channel.close();
+                    return;
+                }
+
+                CompletableFuture<ByteBuffer> response;
+                try {
+                    response = handle(type, requestId, frame);
+                } catch (RuntimeException e) {
+                    response = CompletableFuture.completedFuture(codec.errorResponse(requestId, e.toString()));
+                }
+
+                if (requestId != Connection.ONE_WAY) {
+                    response.handle((result, error) -> (error == null) ? result : codec.errorResponse(requestId,
+                            (error instanceof CompletionException ? error.getCause() : error).toString()))
+                            .thenAccept(channel::send);
+                }
+            });
+        }
+
+        @Override
+        public void onClose(FramedChannel channel, IOException cause) {
+            // Nothing to clean up; any requests still running will find the channel closed.
+        }
+
+        private CompletableFuture<ByteBuffer> handle(byte type, long requestId, ByteBuffer request) {
+            if (type == MessageCodec.GET_VALUE) {
+                long slot = codec.readSlot(request);
+                return getLearner().valueFuture(slot).thenApply(value -> codec.valueResponse(requestId, value));
+            }
+            return CompletableFuture.completedFuture(handleNow(type, requestId, request));
+        }
+
+        private ByteBuffer handleNow(byte type, long requestId, ByteBuffer request) {
+            switch (type) {
+                case MessageCodec.PREPARE_FROM: {
+                    long firstSlot = codec.readSlot(request);
+                    return codec.promiseResponse(requestId,
+                            getAcceptor().prepareFrom(firstSlot, codec.readProposal(request)));
+                }
+                case MessageCodec.ACCEPT: {
+                    long slot = codec.readSlot(request);
+                    return codec.booleanResponse(requestId, getAcceptor().accept(slot, codec.readProposal(request)));
+                }
+                case MessageCodec.TEACH: {
+                    int acceptorId = codec.readAcceptorId(request);
+                    long slot = codec.readSlot(request);
+                    getLearner().teach(acceptorId, slot, codec.readProposal(request));
+                    return codec.emptyResponse(requestId);
+                }
+                case MessageCodec.CHOSEN: {
+                    long slot = codec.readSlot(request);
+                    getLearner().chosen(slot, codec.readValue(request));
+                    return codec.emptyResponse(requestId);
+                }
+                case MessageCodec.HEARTBEAT: {
+                    getElection().heartbeat(codec.readNodeId(request));
+                    return codec.emptyResponse(requestId);
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown message type " + type);
+            }
+        }
+
+        private Acceptor<V> getAcceptor() {
+            return acceptor.orElseThrow(() -> new IllegalStateException("No acceptor is served here"));
+        }
+
+        private Learner<V> getLearner() {
+            return learner.orElseThrow(() -> new IllegalStateException("No learner is served here"));
+        }
+
+        private HeartbeatListener getElection() {
+            return election.orElseThrow(() -> new IllegalStateException("No election is served here"));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.stefankopieczek.jaxos.transport;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AsyncAcceptor;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class RemoteAcceptor<V> implements Acceptor<V> {
+    private final TransportClient<V> client;
+    private final InetSocketAddress address;
+    private final AsyncAcceptor<V> async;
+
+    RemoteAcceptor(TransportClient<V> client, InetSocketAddress address) {
+        this.client = client;
+        this.address = address;
+        this.async = new AsyncView();
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    // A non-blocking view of the same remote acceptor, for use with AsyncProposerImpl.
+    public AsyncAcceptor<V> async() {
+        return async;
+    }
+
+    // If the remote acceptor can't be reached, we report it as having refused the request.
+    // As far as the proposer is concerned, a failed acceptor is no different to an uncooperative one.
+
+    @Override
+    public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> p) {
+        try {
+            return async.prepareFrom(firstSlot, p).join();
+        } catch (CompletionException | CancellationException e) {
+            return PrepareResult.rejected(Ballot.NONE);
+        }
+    }
+
+    @Override
+    public boolean accept(long slot, Proposal<V> p) {
+        try {
+            return async.accept(slot, p).join();
+        } catch (CompletionException | CancellationException e) {
+            return false;
+        }
+    }
+
+    private class AsyncView implements AsyncAcceptor<V> {
+        @Override
+        public CompletableFuture<PrepareResult<MultiPromise<V>>> prepareFrom(long firstSlot, Proposal<V> p) {
+            MessageCodec<V> codec = client.codec();
+            return client.request(address, requestId -> codec.prepareFromRequest(requestId, firstSlot, p))
+                    .thenApply(response -> codec.readPromise(response));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> accept(long slot, Proposal<V> p) {
+            MessageCodec<V> codec = client.codec();
+            return client.request(address, requestId -> codec.acceptRequest(requestId, slot, p))
+                    .thenApply(response -> codec.readBoolean(response));
+        }
+    }
+}
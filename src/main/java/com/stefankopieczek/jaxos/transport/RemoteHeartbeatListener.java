@@ -0,0 +1,25 @@
+package com.stefankopieczek.jaxos.transport;
+
+import com.stefankopieczek.jaxos.election.HeartbeatListener;
+import java.net.InetSocketAddress;
+
+public class RemoteHeartbeatListener<V> implements HeartbeatListener {
+    private final TransportClient<V> client;
+    private final InetSocketAddress address;
+
+    RemoteHeartbeatListener(TransportClient<V> client, InetSocketAddress address) {
+        this.client = client;
+        this.address = address;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public void heartbeat(int nodeId) {
+        // A lost heartbeat is no different from a late one, so there's no need for a reply.
+        MessageCodec<V> codec = client.codec();
+        client.send(address, requestId -> codec.heartbeatRequest(requestId, nodeId));
+    }
+}
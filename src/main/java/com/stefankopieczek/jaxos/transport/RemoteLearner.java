@@ -0,0 +1,56 @@
+package com.stefankopieczek.jaxos.transport;
+
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.learner.Learner;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class RemoteLearner<V> implements Learner<V> {
+    private final TransportClient<V> client;
+    private final InetSocketAddress address;
+
+    RemoteLearner(TransportClient<V> client, InetSocketAddress address) {
+        this.client = client;
+        this.address = address;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public V getValue(long slot) {
+        try {
+            return valueFuture(slot).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<V> valueFuture(long slot) {
+        // Consensus may take arbitrarily long, so unlike other requests this one has no timeout.
+        MessageCodec<V> codec = client.codec();
+        return client.requestWithoutTimeout(address, requestId -> codec.getValueRequest(requestId, slot))
+                .thenApply(response -> codec.readValue(response));
+    }
+
+    @Override
+    public void teach(int acceptorId, long slot, Proposal<V> proposal) {
+        // Fire and forget, so that acceptors aren't held up waiting on learners.
+        MessageCodec<V> codec = client.codec();
+        client.send(address, requestId -> codec.teachRequest(requestId, acceptorId, slot, proposal));
+    }
+
+    @Override
+    public void chosen(long slot, V value) {
+        MessageCodec<V> codec = client.codec();
+        client.send(address, requestId -> codec.chosenRequest(requestId, slot, value));
+    }
+}
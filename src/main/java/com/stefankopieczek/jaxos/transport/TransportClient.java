@@ -0,0 +1,204 @@
+package com.stefankopieczek.jaxos.transport;
+
+import com.stefankopieczek.jaxos.codec.ValueCodec;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongFunction;
+
+// Hands out stubs for remote acceptors, learners and elections.
+// All stubs for the same address share one connection, and all connections are serviced by a
+// single selector thread.
+public class TransportClient<V> implements Closeable {
+    private static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+    private final MessageCodec<V> codec;
+    private final EventLoop loop;
+    private final ScheduledExecutorService timer;
+    private final long timeoutMillis;
+    private final Map<InetSocketAddress, CompletableFuture<Connection<V>>> connections = new ConcurrentHashMap<>();
+
+    public TransportClient(ValueCodec<V> valueCodec) throws IOException {
+        this(valueCodec, DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public TransportClient(ValueCodec<V> valueCodec, long timeout, TimeUnit unit) throws IOException {
+        this.codec = new MessageCodec<>(valueCodec);
+        this.loop = new EventLoop("jaxos-client");
+        this.timeoutMillis = unit.toMillis(timeout);
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jaxos-client-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public RemoteAcceptor<V> acceptor(InetSocketAddress address) {
+        return new RemoteAcceptor<>(this, address);
+    }
+
+    public RemoteLearner<V> learner(InetSocketAddress address) {
+        return new RemoteLearner<>(this, address);
+    }
+
+    public RemoteHeartbeatListener<V> heartbeatListener(InetSocketAddress address) {
+        return new RemoteHeartbeatListener<>(this, address);
+    }
+
+    @Override
+    public void close() {
+        connections.values().forEach(connection -> connection.thenAccept(Connection::close));
+        loop.close();
+        timer.shutdownNow();
+    }
+
+    MessageCodec<V> codec() {
+        return codec;
+    }
+
+    CompletableFuture<ByteBuffer> request(InetSocketAddress address, LongFunction<ByteBuffer> encoder) {
+        CompletableFuture<ByteBuffer> response = requestWithoutTimeout(address, encoder);
+        ScheduledFuture<?> timeout = timer.schedule(
+                () -> response.completeExceptionally(new TimeoutException("No response from " + address)),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+        response.whenComplete((result, error) -> timeout.cancel(false));
+        return response;
+    }
+
+    CompletableFuture<ByteBuffer> requestWithoutTimeout(InetSocketAddress address, LongFunction<ByteBuffer> encoder) {
+        CompletableFuture<Connection<V>> connection = connect(address);
+        if (connection.isDone() && !connection.isCompletedExceptionally()) {
+            return connection.join().request(encoder);
+        }
+
+        // Still connecting; send the request once we can, and pass on any cancellation to it.
+        CompletableFuture<ByteBuffer> response = new CompletableFuture<>();
+        connection.whenComplete((connected, error) -> {
+            if (error != null) {
+                response.completeExceptionally(error);
+            } else {
+                CompletableFuture<ByteBuffer> request = connected.request(encoder);
+                request.whenComplete((result, requestError) -> {
+                    if (requestError != null) {
+                        response.completeExceptionally(requestError);
+                    } else {
+                        response.complete(result);
+                    }
+                });
+                response.whenComplete((result, responseError) -> request.cancel(false));
+            }
+        });
+        return response;
+    }
+
+    void send(InetSocketAddress address, LongFunction<ByteBuffer> encoder) {
+        // One-way messages are best-effort, so if we can't connect it's just as if they had been lost
+        // on the wire.
+        connect(address).thenAccept(connection -> connection.send(encoder));
+    }
+
+    // Returns the connection to the given address, connecting first if there's none open. Connecting
+    // happens on the loop thread, so callers never wait for it, and an unreachable node only holds
+    // up requests to itself.
+    private CompletableFuture<Connection<V>> connect(InetSocketAddress address) {
+        CompletableFuture<Connection<V>> connection = connections.get(address);
+        if (connection != null && isUsable(connection)) {
+            return connection;
+        }
+
+        CompletableFuture<Connection<V>> attempt = new CompletableFuture<>();
+        connection = connections.compute(
+                address, (key, existing) -> (existing != null && isUsable(existing)) ? existing : attempt);
+        if (connection == attempt) {
+            new PendingConnect(address, attempt).start();
+        }
+        return connection;
+    }
+
+    // Whether the connection is still being made, or was made and has not since closed.
+    private static boolean isUsable(CompletableFuture<? extends Connection<?>> connection) {
+        return !connection.isDone() || (!connection.isCompletedExceptionally() && connection.join().isOpen());
+    }
+
+    private final class PendingConnect implements EventLoop.Handler {
+        private final InetSocketAddress address;
+        private final CompletableFuture<Connection<V>> attempt;
+
+        // Only accessed from the loop thread.
+        private SocketChannel socket;
+
+        PendingConnect(InetSocketAddress address, CompletableFuture<Connection<V>> attempt) {
+            this.address = address;
+            this.attempt = attempt;
+        }
+
+        void start() {
+            ScheduledFuture<?> timeout = timer.schedule(
+                    () -> attempt.completeExceptionally(new ConnectException("Timed out connecting to " + address)),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            attempt.whenComplete((connection, error) -> {
+                timeout.cancel(false);
+                if (error != null) {
+                    connections.remove(address, attempt);
+                    loop.execute(this::abandon);
+                }
+            });
+            loop.execute(this::begin);
+        }
+
+        private void begin() {
+            try {
+                socket = SocketChannel.open();
+                socket.configureBlocking(false);
+                socket.socket().setTcpNoDelay(true);
+                if (socket.connect(address)) {
+                    connected();
+                } else {
+                    loop.register(socket, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException | UnresolvedAddressException e) {
+                attempt.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onReady(SelectionKey key) {
+            try {
+                if (socket.finishConnect()) {
+                    key.interestOps(0);
+                    connected();
+                }
+            } catch (IOException e) {
+                attempt.completeExceptionally(e);
+            }
+        }
+
+        private void connected() {
+            if (attempt.isDone()) {
+                // We timed out just as we connected.
+                EventLoop.closeQuietly(socket);
+            } else {
+                attempt.complete(new Connection<>(socket, loop, codec));
+            }
+        }
+
+        private void abandon() {
+            if (socket != null) {
+                EventLoop.closeQuietly(socket);
+            }
+        }
+    }
+}
@@ -6,9 +6,13 @@ import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
-import java.util.Optional;
 
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
 import com.stefankopieczek.jaxos.core.Proposal;
 import com.stefankopieczek.jaxos.core.Promise;
 import com.stefankopieczek.jaxos.learner.Learner;
@@ -19,9 +23,9 @@ public class AcceptorTest {
     @Test
     public void initialProposal() {
         Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
-        Optional<Promise<String>> result = acceptor.prepare(p1);
-        assertTrue(result.isPresent());
-        Promise<String> promise = result.get();
+        PrepareResult<Promise<String>> result = acceptor.prepare(p1);
+        assertTrue(result.isPromised());
+        Promise<String> promise = result.getPromise();
         assertFalse(promise.hasProposal());
     }
 
@@ -29,9 +33,9 @@ public class AcceptorTest {
     public void greaterProposalBeforeAccept() {
         Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
         acceptor.prepare(p1);
-        Optional<Promise<String>> result = acceptor.prepare(p2);
-        assertTrue(result.isPresent());
-        Promise<String> promise = result.get();
+        PrepareResult<Promise<String>> result = acceptor.prepare(p2);
+        assertTrue(result.isPromised());
+        Promise<String> promise = result.getPromise();
         assertFalse(promise.hasProposal());
     }
 
@@ -39,8 +43,16 @@ public class AcceptorTest {
     public void lesserProposalBeforeAccept() {
         Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
         acceptor.prepare(p2);
-        Optional<Promise<String>> result = acceptor.prepare(p1);
-        assertFalse(result.isPresent());
+        PrepareResult<Promise<String>> result = acceptor.prepare(p1);
+        assertFalse(result.isPromised());
+    }
+
+    @Test
+    public void rejectionCarriesPromisedBallot() {
+        Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
+        acceptor.prepare(p2);
+        assertEquals(p2.getProposalNumber(), acceptor.prepare(p1).getPromisedBallot());
+        assertEquals(Ballot.NONE, acceptor.prepare(p2).getPromisedBallot());
     }
 
     @Test
@@ -63,9 +75,9 @@ public class AcceptorTest {
         Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
         acceptor.prepare(p1);
         acceptor.accept(p1);
-        Optional<Promise<String>> result = acceptor.prepare(p2);
-        assertTrue(result.isPresent());
-        Promise<String> promise = result.get();
+        PrepareResult<Promise<String>> result = acceptor.prepare(p2);
+        assertTrue(result.isPromised());
+        Promise<String> promise = result.getPromise();
         assertTrue(promise.hasProposal());
         assertEquals(p1, promise.getProposal());
     }
@@ -75,8 +87,8 @@ public class AcceptorTest {
         Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
         acceptor.prepare(p2);
         acceptor.accept(p2);
-        Optional<Promise<String>> result = acceptor.prepare(p1);
-        assertFalse(result.isPresent());
+        PrepareResult<Promise<String>> result = acceptor.prepare(p1);
+        assertFalse(result.isPromised());
     }
 
     @Test
@@ -112,22 +124,123 @@ public class AcceptorTest {
         assertEquals(p2, learner.proposal);
     }
 
+    @Test
+    public void fastBallotAcceptsOnlyFirstValue() {
+        Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
+        long ballot = Ballot.fast(1, 1);
+        acceptor.prepare(new Proposal<>(ballot, null));
+        assertTrue(acceptor.accept(new Proposal<>(ballot, "foo")));
+        assertFalse(acceptor.accept(new Proposal<>(ballot, "bar")));
+        assertTrue(acceptor.accept(new Proposal<>(ballot, "foo")));
+        assertEquals("foo", acceptor.prepare(new Proposal<>(Ballot.of(2, 1), null)).getPromise().getProposal().getValue());
+    }
+
+    @Test
+    public void acceptInDistinctSlots() {
+        DummyLearner<String> learner = new DummyLearner<>();
+        Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.singletonList(learner));
+        acceptor.prepareFrom(0, p1);
+        assertTrue(acceptor.accept(3, p1));
+        assertEquals(3, learner.slot);
+        assertTrue(acceptor.accept(4, p1));
+        assertEquals(4, learner.slot);
+    }
+
+    @Test
+    public void prepareFromReportsLaterSlots() {
+        Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
+        acceptor.prepareFrom(0, p1);
+        acceptor.accept(0, p1);
+        acceptor.accept(5, p1);
+        PrepareResult<MultiPromise<String>> result = acceptor.prepareFrom(1, p2);
+        assertTrue(result.isPromised());
+        MultiPromise<String> promise = result.getPromise();
+        assertEquals(1, promise.getAcceptedProposals().size());
+        assertEquals(p1, promise.getAcceptedProposals().get(5L));
+        assertFalse(promise.getPromise(1).hasProposal());
+        assertTrue(promise.getPromise(5).hasProposal());
+    }
+
+    @Test
+    public void prepareFromCoversAllLaterSlots() {
+        Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
+        acceptor.prepareFrom(0, p2);
+        assertFalse(acceptor.accept(100, p1));
+        assertFalse(acceptor.prepare(42, p1).isPromised());
+    }
+
+    @Test(timeout = 5000)
+    public void slowLearnerDoesNotBlockPrepare() throws InterruptedException {
+        CountDownLatch teaching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Learner<String> slowLearner = new DummyLearner<String>() {
+            @Override
+            public void teach(int acceptorId, long slot, Proposal<String> proposal) {
+                teaching.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.singletonList(slowLearner));
+        Thread accepter = new Thread(() -> acceptor.accept(0, p1));
+        accepter.start();
+        teaching.await();
+        assertTrue(acceptor.prepareFrom(0, p2).isPromised());
+        release.countDown();
+        accepter.join();
+    }
+
+    // Every accept that succeeds must be reported by a higher prepare, however the two interleave.
+    @Test(timeout = 10000)
+    public void acceptsRacingPrepareAreReported() throws Exception {
+        int slots = 10000;
+        Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.emptyList());
+        boolean[] accepted = new boolean[slots];
+        Thread accepter = new Thread(() -> {
+            for (int slot = 0; slot < slots; slot++) {
+                accepted[slot] = acceptor.accept(slot, p1);
+            }
+        });
+
+        accepter.start();
+        PrepareResult<MultiPromise<String>> result = acceptor.prepareFrom(0, p2);
+        accepter.join();
+
+        assertTrue(result.isPromised());
+        for (int slot = 0; slot < slots; slot++) {
+            if (accepted[slot]) {
+                assertEquals(p1, result.getPromise().getAcceptedProposals().get((long) slot));
+            }
+        }
+    }
+
     private static class DummyLearner<V> implements Learner<V> {
         public int teacherId = -1;
+        public long slot = -1;
         public Proposal<V> proposal = null;
         public boolean hasLearnt = false;
 
         @Override
-        public V getValue() {
+        public CompletableFuture<V> valueFuture(long slot) {
             // Unused
             return null;
         }
 
         @Override
-        public void teach(int acceptorId, Proposal<V> proposal) {
+        public void teach(int acceptorId, long slot, Proposal<V> proposal) {
             hasLearnt = true;
             teacherId = acceptorId;
+            this.slot = slot;
             this.proposal = proposal;
         }
+
+        @Override
+        public void chosen(long slot, V value) {
+            // Unused
+        }
     }
 }
@@ -0,0 +1,213 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.stefankopieczek.jaxos.codec.StringCodec;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+import com.stefankopieczek.jaxos.proposer.LeaderProposer;
+
+public class DurableAcceptorTest {
+    private static final Proposal<String> p1 = new Proposal<>(1, "foo");
+    private static final Proposal<String> p2 = new Proposal<>(2, "bar");
+    private static final Proposal<String> p3 = new Proposal<>(3, "baz");
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void behavesLikeAnAcceptor() throws IOException {
+        Learner<String> learner = new LearnerImpl<>(1);
+        try (DurableAcceptor<String> acceptor = open(learner)) {
+            assertTrue(acceptor.prepare(p2).isPromised());
+            assertFalse(acceptor.prepare(p1).isPromised());
+            assertFalse(acceptor.accept(p1));
+            assertTrue(acceptor.accept(p2));
+            assertEquals("bar", learner.getValue());
+        }
+    }
+
+    @Test
+    public void promiseSurvivesRestart() throws IOException {
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            acceptor.prepare(p2);
+        }
+
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            assertFalse(acceptor.prepare(p1).isPromised());
+            assertFalse(acceptor.accept(p1));
+            assertTrue(acceptor.prepare(p3).isPromised());
+        }
+    }
+
+    @Test
+    public void acceptedProposalsSurviveRestart() throws IOException {
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            acceptor.prepareFrom(0, p1);
+            acceptor.accept(0, p1);
+            acceptor.accept(7, p1);
+            acceptor.prepareFrom(0, p2);
+            acceptor.accept(7, p2);
+        }
+
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            PrepareResult<MultiPromise<String>> result = acceptor.prepareFrom(0, p3);
+            assertTrue(result.isPromised());
+            assertEquals(2, result.getPromise().getAcceptedProposals().size());
+            assertEquals("foo", result.getPromise().getAcceptedProposals().get(0L).getValue());
+            assertEquals(p2.getProposalNumber(), result.getPromise().getAcceptedProposals().get(7L).getProposalNumber());
+            assertEquals("bar", result.getPromise().getAcceptedProposals().get(7L).getValue());
+        }
+    }
+
+    @Test
+    public void fastAcceptsSurviveRestart() throws IOException {
+        Proposal<String> fast = new Proposal<>(Ballot.fast(1, 1), "foo");
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            acceptor.prepareFrom(0, new Proposal<>(fast.getProposalNumber(), null));
+            assertTrue(acceptor.accept(0, fast));
+        }
+
+        // Were the ballot replayed as classic, a second value could be accepted under it.
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            assertFalse(acceptor.accept(0, new Proposal<>(fast.getProposalNumber(), "bar")));
+            Proposal<String> recovered = acceptor.prepareFrom(0, new Proposal<>(Ballot.of(2, 1), null))
+                    .getPromise().getAcceptedProposals().get(0L);
+            assertEquals(fast.getProposalNumber(), recovered.getProposalNumber());
+            assertEquals("foo", recovered.getValue());
+        }
+    }
+
+    @Test
+    public void fastAcceptsSurviveCompaction() throws IOException {
+        long fast = Ballot.fast(1, 1);
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            acceptor.prepareFrom(0, new Proposal<>(fast, null));
+            for (long slot = 0; slot < 100; slot++) {
+                acceptor.accept(slot, new Proposal<>(fast, "value" + slot));
+            }
+            acceptor.compact(90);
+        }
+
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            assertFalse(acceptor.accept(95, new Proposal<>(fast, "other")));
+            assertFalse(acceptor.prepareFrom(90, new Proposal<>(Ballot.of(1, 1), null)).isPromised());
+        }
+    }
+
+    @Test
+    public void acceptRaisesRecoveredPromise() throws IOException {
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            acceptor.accept(0, p2);
+        }
+
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            assertFalse(acceptor.prepare(p1).isPromised());
+        }
+    }
+
+    @Test
+    public void compactionDropsDecidedSlots() throws IOException {
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            acceptor.prepareFrom(0, p1);
+            for (long slot = 0; slot < 100; slot++) {
+                acceptor.accept(slot, new Proposal<>(1, "value" + slot));
+            }
+            assertTrue(acceptor.getSegmentCount() > 1);
+
+            acceptor.compact(90);
+            assertEquals(1, acceptor.getSegmentCount());
+            MultiPromise<String> promise = acceptor.prepareFrom(90, p1).getPromise();
+            assertEquals(10, promise.getAcceptedProposals().size());
+            assertFalse(acceptor.accept(50, p2));
+        }
+    }
+
+    @Test
+    public void recoversFromSnapshotAndLog() throws IOException {
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            acceptor.prepareFrom(0, p1);
+            for (long slot = 0; slot < 100; slot++) {
+                acceptor.accept(slot, new Proposal<>(1, "value" + slot));
+            }
+            acceptor.compact(90);
+            acceptor.prepareFrom(90, p2);
+            acceptor.accept(100, new Proposal<>(2, "value100"));
+        }
+
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            assertFalse(acceptor.prepareFrom(90, p1).isPromised());
+            MultiPromise<String> promise = acceptor.prepareFrom(90, p3).getPromise();
+            assertEquals(11, promise.getAcceptedProposals().size());
+            assertEquals("value95", promise.getAcceptedProposals().get(95L).getValue());
+            assertEquals("value100", promise.getAcceptedProposals().get(100L).getValue());
+        }
+    }
+
+    @Test
+    public void repeatedCompaction() throws IOException {
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            acceptor.prepareFrom(0, p1);
+            for (long slot = 0; slot < 10; slot++) {
+                acceptor.accept(slot, new Proposal<>(1, "value" + slot));
+            }
+            acceptor.compact(5);
+            acceptor.compact(8);
+        }
+
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            assertEquals(2, acceptor.prepareFrom(8, p2).getPromise().getAcceptedProposals().size());
+        }
+    }
+
+    @Test
+    public void cannotPrepareCompactedSlots() throws IOException {
+        try (DurableAcceptor<String> acceptor = open(null)) {
+            acceptor.compact(10);
+            PrepareResult<MultiPromise<String>> result = acceptor.prepareFrom(5, p2);
+            assertFalse(result.isPromised());
+            assertEquals(Ballot.NONE, result.getPromisedBallot());
+
+            // The refused prepare made no promise.
+            assertTrue(acceptor.prepareFrom(10, p1).isPromised());
+        }
+    }
+
+    @Test
+    public void laggingProposerIsRefusedCompactedSlots() throws IOException {
+        Learner<String> learner = new LearnerImpl<>(3);
+        try (DurableAcceptor<String> acceptor = open(learner)) {
+            acceptor.compact(10);
+            List<Acceptor<String>> acceptors = Arrays.asList(acceptor,
+                    new AcceptorImpl<>(2, Collections.singletonList(learner)),
+                    new AcceptorImpl<>(3, Collections.singletonList(learner)));
+            new LeaderProposer<>(1, acceptors, 5).append("foo");
+            assertEquals("foo", learner.getValue(5));
+        }
+    }
+
+    private DurableAcceptor<String> open(Learner<String> learner) throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("acceptor");
+        return new DurableAcceptor<>(1,
+                learner == null ? Collections.emptyList() : Collections.singletonList(learner),
+                directory, new StringCodec(), 256);
+    }
+}
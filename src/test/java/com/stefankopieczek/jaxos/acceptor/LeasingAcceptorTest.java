@@ -0,0 +1,68 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+
+public class LeasingAcceptorTest {
+    private static final Proposal<String> leader1 = new Proposal<>(Ballot.of(1, 1), "foo");
+    private static final Proposal<String> leader2 = new Proposal<>(Ballot.of(2, 1), "foo");
+    private static final Proposal<String> rival = new Proposal<>(Ballot.of(5, 2), "bar");
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Test
+    public void holderKeepsItsLease() {
+        Acceptor<String> acceptor = leasing(new AcceptorImpl<>(1, Collections.emptyList()), 60000);
+        assertTrue(acceptor.prepareFrom(0, leader1).isPromised());
+        assertTrue(acceptor.accept(0, leader1));
+        assertTrue(acceptor.prepareFrom(1, leader2).isPromised());
+        assertTrue(acceptor.accept(1, leader2));
+    }
+
+    @Test
+    public void otherProposersAreRefusedDuringLease() {
+        Acceptor<String> acceptor = leasing(new AcceptorImpl<>(1, Collections.emptyList()), 60000);
+        acceptor.accept(0, leader1);
+
+        PrepareResult<MultiPromise<String>> result = acceptor.prepareFrom(0, rival);
+        assertFalse(result.isPromised());
+        assertEquals(leader1.getProposalNumber(), result.getPromisedBallot());
+        assertFalse(acceptor.accept(0, rival));
+    }
+
+    @Test
+    public void otherProposersMayPrepareOnceLeaseExpires() throws InterruptedException {
+        Acceptor<String> acceptor = leasing(new AcceptorImpl<>(1, Collections.emptyList()), 50);
+        acceptor.prepareFrom(0, leader1);
+        Thread.sleep(100);
+        assertTrue(acceptor.prepareFrom(0, rival).isPromised());
+        assertFalse(acceptor.accept(0, leader2));
+    }
+
+    @Test
+    public void failedRequestsGrantNoLease() {
+        Acceptor<String> inner = new AcceptorImpl<>(1, Collections.emptyList());
+        inner.prepareFrom(0, new Proposal<>(Ballot.of(3, 3), "baz"));
+        Acceptor<String> acceptor = leasing(inner, 60000);
+
+        assertFalse(acceptor.prepareFrom(0, leader1).isPromised());
+        assertFalse(acceptor.accept(0, leader2));
+        assertTrue(acceptor.prepareFrom(0, rival).isPromised());
+    }
+
+    private static Acceptor<String> leasing(Acceptor<String> acceptor, long leaseMillis) {
+        return new LeasingAcceptor<>(acceptor, leaseMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,200 @@
+package com.stefankopieczek.jaxos.acceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+import com.stefankopieczek.jaxos.proposer.ProposerImpl;
+
+public class MultiGroupAcceptorTest {
+    private static final Proposal<String> p1 = new Proposal<>(1, "foo");
+    private static final Proposal<String> p2 = new Proposal<>(2, "bar");
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Test
+    public void groupsPromiseIndependently() {
+        MultiGroupAcceptor<String> acceptor = new MultiGroupAcceptor<>(1, group -> Collections.emptyList());
+        assertTrue(acceptor.prepareFrom(1, 0, p2).isPromised());
+
+        PrepareResult<MultiPromise<String>> rejected = acceptor.prepareFrom(1, 0, p1);
+        assertFalse(rejected.isPromised());
+        assertEquals(p2.getProposalNumber(), rejected.getPromisedBallot());
+
+        assertTrue(acceptor.prepareFrom(2, 0, p1).isPromised());
+        assertTrue(acceptor.accept(2, 0, p1));
+        assertFalse(acceptor.accept(1, 0, p1));
+    }
+
+    @Test
+    public void promiseReportsOnlyItsOwnGroup() {
+        MultiGroupAcceptor<String> acceptor = new MultiGroupAcceptor<>(1, group -> Collections.emptyList());
+        acceptor.accept(1, 5, p1);
+        acceptor.accept(2, 6, p1);
+
+        MultiPromise<String> promise = acceptor.prepareFrom(1, 0, p2).getPromise();
+        assertEquals(Collections.singleton(5L), promise.getAcceptedProposals().keySet());
+        assertEquals(p1, promise.getPromise(5).getProposal());
+        assertFalse(promise.getPromise(6).hasProposal());
+    }
+
+    @Test
+    public void slotsAcceptedOutOfOrderAreReportedFromFirstSlot() {
+        MultiGroupAcceptor<String> acceptor = new MultiGroupAcceptor<>(1, group -> Collections.emptyList());
+        for (long slot : new long[] {7, 2, 9, 4, 0}) {
+            acceptor.accept(3, slot, new Proposal<>(1, "v" + slot));
+        }
+        acceptor.accept(3, 4, p2);
+
+        MultiPromise<String> promise = acceptor.prepareFrom(3, 3, p2).getPromise();
+        assertEquals(Arrays.asList(4L, 7L, 9L), new ArrayList<>(promise.getAcceptedProposals().keySet()));
+        assertEquals(p2, promise.getPromise(4).getProposal());
+        assertEquals("v9", promise.getPromise(9).getProposal().getValue());
+    }
+
+    @Test
+    public void rejectedPrepareDoesNotCreateGroup() {
+        MultiGroupAcceptor<String> acceptor = new MultiGroupAcceptor<>(1, group -> Collections.emptyList(), 1);
+        acceptor.prepareFrom(1, 0, p2);
+        acceptor.prepareFrom(1, 0, p1);
+        assertEquals(1, acceptor.getGroupCount());
+    }
+
+    @Test
+    public void fastBallotAcceptsOnlyOneValuePerSlot() {
+        MultiGroupAcceptor<String> acceptor = new MultiGroupAcceptor<>(1, group -> Collections.emptyList());
+        long fastBallot = Ballot.fast(1, 1);
+        assertTrue(acceptor.accept(1, 0, new Proposal<>(fastBallot, "foo")));
+        assertTrue(acceptor.accept(1, 0, new Proposal<>(fastBallot, "foo")));
+        assertFalse(acceptor.accept(1, 0, new Proposal<>(fastBallot, "bar")));
+        assertTrue(acceptor.accept(1, 1, new Proposal<>(fastBallot, "bar")));
+        assertTrue(acceptor.accept(2, 0, new Proposal<>(fastBallot, "bar")));
+
+        MultiPromise<String> promise = acceptor.prepareFrom(1, 0, new Proposal<>(Ballot.of(2, 1), null)).getPromise();
+        assertEquals("foo", promise.getPromise(0).getProposal().getValue());
+    }
+
+    @Test
+    public void hostsManyGroups() {
+        MultiGroupAcceptor<String> acceptor = new MultiGroupAcceptor<>(1, group -> Collections.emptyList());
+        int groups = 100000;
+        for (int group = 0; group < groups; group++) {
+            acceptor.accept(group, 0, new Proposal<>(group, "v" + group));
+        }
+
+        assertEquals(groups, acceptor.getGroupCount());
+        for (int group = 0; group < groups; group++) {
+            Promise<String> promise = acceptor.group(group).prepare(0, new Proposal<>(group, "x"))
+                    .getPromise();
+            assertEquals("v" + group, promise.getProposal().getValue());
+        }
+    }
+
+    @Test
+    public void acceptsTeachGroupLearners() {
+        List<Integer> taughtGroups = new CopyOnWriteArrayList<>();
+        MultiGroupAcceptor<String> acceptor = new MultiGroupAcceptor<>(4, group ->
+                Collections.singletonList(new RecordingLearner(group, taughtGroups)));
+        acceptor.accept(10, 0, p1);
+        acceptor.accept(-3, 0, p1);
+        assertFalse(acceptor.accept(10, 1, new Proposal<>(0, "stale")));
+        assertEquals(Arrays.asList(10, -3), taughtGroups);
+    }
+
+    @Test
+    public void proposersAgreeWithinEachGroup() {
+        List<MultiGroupAcceptor<String>> nodes = new ArrayList<>();
+        List<LearnerImpl<String>> learners = new ArrayList<>();
+        int groups = 50;
+        for (int group = 0; group < groups; group++) {
+            learners.add(new LearnerImpl<>(3));
+        }
+        for (int id = 0; id < 3; id++) {
+            nodes.add(new MultiGroupAcceptor<>(id, group -> Collections.singletonList(learners.get(group)), 4));
+        }
+
+        for (int group = 0; group < groups; group++) {
+            List<Acceptor<String>> acceptors = new ArrayList<>();
+            for (MultiGroupAcceptor<String> node : nodes) {
+                acceptors.add(node.group(group));
+            }
+            new ProposerImpl<>(1, acceptors).propose(0, "first" + group);
+            new ProposerImpl<>(2, acceptors).propose(0, "second" + group);
+        }
+
+        for (int group = 0; group < groups; group++) {
+            assertEquals("first" + group, learners.get(group).getValue(0));
+        }
+    }
+
+    @Test
+    public void concurrentGroupsDoNotInterfere() throws Exception {
+        MultiGroupAcceptor<String> acceptor = new MultiGroupAcceptor<>(1, group -> Collections.emptyList(), 8);
+        int threads = 4;
+        int groupsPerThread = 5000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * groupsPerThread;
+            Thread worker = new Thread(() -> {
+                for (int group = base; group < base + groupsPerThread; group++) {
+                    acceptor.accept(group, group, new Proposal<>(1, "v" + group));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * groupsPerThread, acceptor.getGroupCount());
+        for (int group = 0; group < threads * groupsPerThread; group++) {
+            MultiPromise<String> promise = acceptor.prepareFrom(group, 0, p2).getPromise();
+            assertEquals(Collections.singleton((long) group), promise.getAcceptedProposals().keySet());
+        }
+    }
+
+    private static class RecordingLearner implements Learner<String> {
+        private final int group;
+        private final List<Integer> taughtGroups;
+
+        private RecordingLearner(int group, List<Integer> taughtGroups) {
+            this.group = group;
+            this.taughtGroups = taughtGroups;
+        }
+
+        @Override
+        public CompletableFuture<String> valueFuture(long slot) {
+            // Unused
+            return null;
+        }
+
+        @Override
+        public void teach(int acceptorId, long slot, Proposal<String> proposal) {
+            assertEquals(4, acceptorId);
+            taughtGroups.add(group);
+        }
+
+        @Override
+        public void chosen(long slot, String value) {
+            // Unused
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.stefankopieczek.jaxos.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BatchCodecTest {
+    private final BatchCodec<String> codec = new BatchCodec<>(new StringCodec());
+
+    @Test
+    public void batchRoundTrip() {
+        List<String> batch = Arrays.asList("foo", "", null, "bar");
+        assertEquals(batch, roundTrip(batch));
+    }
+
+    @Test
+    public void emptyBatchRoundTrip() {
+        assertEquals(Collections.emptyList(), roundTrip(Collections.<String>emptyList()));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void rejectsImpossibleCount() {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        VarInts.write(1000, buffer);
+        buffer.flip();
+        codec.decode(buffer);
+    }
+
+    private List<String> roundTrip(List<String> batch) {
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(batch));
+        codec.encode(batch, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+
+        List<String> decoded = codec.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        return decoded;
+    }
+}
@@ -0,0 +1,168 @@
+package com.stefankopieczek.jaxos.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.Proposal;
+
+public class ProposalCodecTest {
+    private final ProposalCodec<String> codec = new ProposalCodec<>(new StringCodec());
+
+    @Test
+    public void proposalRoundTrip() {
+        Proposal<String> proposal = new Proposal<>(13, "foo");
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(proposal));
+        codec.encode(proposal, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+
+        Proposal<String> decoded = codec.decodeProposal(buffer);
+        assertEquals(13, decoded.getProposalNumber());
+        assertEquals("foo", decoded.getValue());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void proposalIsCompact() {
+        // One byte each of round and proposer id, one of length, and three of value.
+        assertEquals(6, codec.sizeOf(new Proposal<>(Ballot.of(1, 13), "foo")));
+    }
+
+    @Test
+    public void largeBallotRoundTrip() {
+        Proposal<String> proposal = new Proposal<>(Ballot.of(Integer.MAX_VALUE, Integer.MAX_VALUE), "foo");
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(proposal));
+        codec.encode(proposal, buffer);
+        buffer.flip();
+        assertEquals(proposal.getProposalNumber(), codec.decodeProposal(buffer).getProposalNumber());
+    }
+
+    @Test
+    public void everyBallotRoundTrips() {
+        long[] ballots = {Ballot.NONE, 0, Ballot.of(1, 13), Ballot.fast(0, 1), Ballot.fast(1, 13),
+                Ballot.fast(Integer.MAX_VALUE, Integer.MAX_VALUE), Ballot.of(-1, -1)};
+        for (long ballot : ballots) {
+            ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOfBallot(ballot));
+            codec.encodeBallot(ballot, buffer);
+            assertFalse(buffer.hasRemaining());
+            buffer.flip();
+            assertEquals(ballot, codec.decodeBallot(buffer));
+        }
+    }
+
+    @Test
+    public void fastProposalRoundTrip() {
+        Proposal<String> proposal = new Proposal<>(Ballot.fast(1, 1), "foo");
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(proposal));
+        codec.encode(proposal, buffer);
+        buffer.flip();
+
+        Proposal<String> decoded = codec.decodeProposal(buffer);
+        assertEquals(proposal.getProposalNumber(), decoded.getProposalNumber());
+        assertTrue(Ballot.isFast(decoded.getProposalNumber()));
+    }
+
+    @Test
+    public void nullValue() {
+        Proposal<String> proposal = new Proposal<>(2, null);
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(proposal));
+        codec.encode(proposal, buffer);
+        buffer.flip();
+        assertNull(codec.decodeProposal(buffer).getValue());
+    }
+
+    @Test
+    public void nonAsciiValues() {
+        String[] values = {"", "caf\u00e9", "\u65e5\u672c", "\ud83d\ude00", "\ud800 unpaired"};
+        for (String value : values) {
+            ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOfValue(value));
+            codec.encodeValue(value, buffer);
+            assertFalse(buffer.hasRemaining());
+            buffer.flip();
+            String decoded = codec.decodeValue(buffer);
+            if (value.contains("\ud800 ")) {
+                // Unpaired surrogates can't survive UTF-8, but they mustn't corrupt what follows.
+                assertTrue(decoded.endsWith(" unpaired"));
+            } else {
+                assertEquals(value, decoded);
+            }
+        }
+    }
+
+    @Test
+    public void decodeFromDirectBuffer() {
+        Proposal<String> proposal = new Proposal<>(300, "caf\u00e9");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(codec.sizeOf(proposal));
+        codec.encode(proposal, buffer);
+        buffer.flip();
+        assertEquals("caf\u00e9", codec.decodeProposal(buffer).getValue());
+    }
+
+    @Test
+    public void reusableBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        codec.encode(new Proposal<>(1, "foo"), buffer);
+        codec.encode(new Proposal<>(2, "barbaz"), buffer);
+        buffer.flip();
+        assertEquals("foo", codec.decodeProposal(buffer).getValue());
+        assertEquals("barbaz", codec.decodeProposal(buffer).getValue());
+    }
+
+    @Test
+    public void promiseRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        codec.encode(Promise.withoutProposal(), buffer);
+        codec.encode(Promise.withProposal(new Proposal<>(7, "bar")), buffer);
+        buffer.flip();
+        assertFalse(codec.decodePromise(buffer).hasProposal());
+        Promise<String> promise = codec.decodePromise(buffer);
+        assertTrue(promise.hasProposal());
+        assertEquals("bar", promise.getProposal().getValue());
+        assertEquals(7, promise.getProposal().getProposalNumber());
+    }
+
+    @Test
+    public void multiPromiseRoundTrip() {
+        Map<Long, Proposal<String>> accepted = new TreeMap<>();
+        accepted.put(1000L, new Proposal<>(3, "foo"));
+        accepted.put(1001L, new Proposal<>(4, "bar"));
+        accepted.put(5000L, new Proposal<>(4, "baz"));
+        MultiPromise<String> promise = new MultiPromise<>(999, accepted);
+        ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOf(promise));
+        codec.encode(promise, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+
+        MultiPromise<String> decoded = codec.decodeMultiPromise(buffer);
+        assertEquals(999, decoded.getFirstSlot());
+        assertEquals(accepted.keySet(), decoded.getAcceptedProposals().keySet());
+        assertEquals("baz", decoded.getAcceptedProposals().get(5000L).getValue());
+    }
+
+    @Test
+    public void emptyMultiPromise() {
+        MultiPromise<String> promise = new MultiPromise<>(0, Collections.emptyMap());
+        assertEquals(2, codec.sizeOf(promise));
+    }
+
+    @Test
+    public void byteArrayValues() {
+        ProposalCodec<byte[]> bytesCodec = new ProposalCodec<>(new ByteArrayCodec());
+        byte[] value = {1, 2, 3, -4};
+        ByteBuffer buffer = ByteBuffer.allocate(bytesCodec.sizeOf(new Proposal<>(1, value)));
+        bytesCodec.encode(new Proposal<>(1, value), buffer);
+        buffer.flip();
+        assertArrayEquals(value, bytesCodec.decodeProposal(buffer).getValue());
+    }
+}
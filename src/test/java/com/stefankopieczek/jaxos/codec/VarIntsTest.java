@@ -0,0 +1,49 @@
+package com.stefankopieczek.jaxos.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+import java.nio.ByteBuffer;
+
+public class VarIntsTest {
+    @Test
+    public void smallValuesTakeOneByte() {
+        assertEquals(1, VarInts.sizeOf(0L));
+        assertEquals(1, VarInts.sizeOf(127L));
+        assertEquals(2, VarInts.sizeOf(128L));
+        assertEquals(10, VarInts.sizeOf(-1L));
+        assertEquals(5, VarInts.sizeOf(-1));
+    }
+
+    @Test
+    public void roundTrip() {
+        long[] values = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        for (long value : values) {
+            buffer.clear();
+            VarInts.write(value, buffer);
+            assertEquals(VarInts.sizeOf(value), buffer.position());
+            buffer.flip();
+            assertEquals(value, VarInts.read(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test
+    public void intRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        VarInts.write(Integer.MAX_VALUE, buffer);
+        VarInts.write(-1, buffer);
+        buffer.flip();
+        assertEquals(Integer.MAX_VALUE, VarInts.readInt(buffer));
+        assertEquals(-1, VarInts.readInt(buffer));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void oversizedInt() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        VarInts.write(1L << 40, buffer);
+        buffer.flip();
+        VarInts.readInt(buffer);
+    }
+}
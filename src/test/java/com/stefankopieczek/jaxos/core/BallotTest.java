@@ -0,0 +1,61 @@
+package com.stefankopieczek.jaxos.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class BallotTest {
+    @Test
+    public void returnsRoundAndProposerId() {
+        long ballot = Ballot.of(7, 3);
+        assertEquals(7, Ballot.round(ballot));
+        assertEquals(3, Ballot.proposerId(ballot));
+    }
+
+    @Test
+    public void roundOutranksProposerId() {
+        assertTrue(Ballot.of(2, 1) > Ballot.of(1, 100));
+        assertTrue(Ballot.of(1, 2) > Ballot.of(1, 1));
+    }
+
+    @Test
+    public void proposersNeverShareBallots() {
+        assertNotEquals(Ballot.of(1, 1), Ballot.of(1, 2));
+    }
+
+    @Test
+    public void everyBallotOutranksNone() {
+        assertTrue(Ballot.of(0, 0) > Ballot.NONE);
+    }
+
+    @Test
+    public void afterUsesSameRoundWhenPossible() {
+        assertEquals(Ballot.of(4, 5), Ballot.after(Ballot.of(4, 2), 5));
+    }
+
+    @Test
+    public void afterMovesToNextRoundWhenOutranked() {
+        assertEquals(Ballot.of(5, 2), Ballot.after(Ballot.of(4, 5), 2));
+        assertEquals(Ballot.of(5, 2), Ballot.after(Ballot.of(4, 2), 2));
+    }
+
+    @Test
+    public void afterNone() {
+        assertEquals(Ballot.of(0, 1), Ballot.after(Ballot.NONE, 1));
+    }
+
+    @Test
+    public void fastBallotOutranksClassicBallotsOfItsRound() {
+        long fast = Ballot.fast(3, 1);
+        assertTrue(Ballot.isFast(fast));
+        assertFalse(Ballot.isFast(Ballot.of(3, 1)));
+        assertFalse(Ballot.isFast(Ballot.NONE));
+        assertTrue(fast > Ballot.of(3, 100));
+        assertTrue(fast < Ballot.of(4, 0));
+        assertEquals(3, Ballot.round(fast));
+        assertEquals(1, Ballot.proposerId(fast));
+        assertEquals(Ballot.of(4, 2), Ballot.after(fast, 2));
+    }
+}
@@ -0,0 +1,25 @@
+package com.stefankopieczek.jaxos.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import java.util.Collections;
+
+public class MultiPromiseTest {
+    @Test
+    public void withAcceptedProposal() {
+        Proposal<String> proposal = new Proposal<>(99, "skidoo");
+        MultiPromise<String> promise = new MultiPromise<>(3, Collections.singletonMap(4L, proposal));
+        assertEquals(3, promise.getFirstSlot());
+        assertFalse(promise.getPromise(3).hasProposal());
+        assertTrue(promise.getPromise(4).hasProposal());
+        assertEquals(proposal, promise.getPromise(4).getProposal());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void slotBeforeFirstSlot() {
+        MultiPromise<String> promise = new MultiPromise<>(3, Collections.emptyMap());
+        promise.getPromise(2);
+    }
+}
@@ -0,0 +1,101 @@
+package com.stefankopieczek.jaxos.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class QuorumSystemTest {
+    @Test
+    public void majorityNeedsMoreThanHalf() {
+        QuorumSystem quorums = QuorumSystem.majority(5);
+        assertFalse(quorums.isPrepareQuorum(0b00011));
+        assertTrue(quorums.isPrepareQuorum(0b10101));
+        assertFalse(quorums.isAcceptQuorum(0b11000));
+        assertTrue(quorums.isAcceptQuorum(0b11001));
+    }
+
+    @Test
+    public void flexibleQuorumsDifferByPhase() {
+        QuorumSystem quorums = QuorumSystem.flexible(5, 4, 2);
+        assertFalse(quorums.isPrepareQuorum(0b00111));
+        assertTrue(quorums.isPrepareQuorum(0b01111));
+        assertTrue(quorums.isAcceptQuorum(0b10001));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void flexibleQuorumsMustOverlap() {
+        QuorumSystem.flexible(6, 3, 3);
+    }
+
+    @Test
+    public void weightedQuorumsCountVotes() {
+        QuorumSystem quorums = QuorumSystem.weighted(3, 1, 1, 1);
+        assertTrue(quorums.isAcceptQuorum(0b0011));
+        assertFalse(quorums.isAcceptQuorum(0b1110));
+        assertFalse(quorums.isPrepareQuorum(0b0001));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void weightedQuorumsMustOverlap() {
+        QuorumSystem.weighted(new int[] {1, 1, 1, 1}, 2, 2);
+    }
+
+    @Test
+    public void gridAcceptsWithARowAndPreparesWithOneFromEachRow() {
+        // 0 1 2
+        // 3 4 5
+        QuorumSystem quorums = QuorumSystem.grid(2, 3);
+        assertTrue(quorums.isAcceptQuorum(0b111000));
+        assertFalse(quorums.isAcceptQuorum(0b011011));
+        assertTrue(quorums.isPrepareQuorum(0b010001));
+        assertFalse(quorums.isPrepareQuorum(0b000111));
+    }
+
+    @Test
+    public void everyPrepareQuorumMeetsEveryAcceptQuorum() {
+        for (QuorumSystem quorums : new QuorumSystem[] {QuorumSystem.majority(5), QuorumSystem.flexible(5, 4, 2),
+                QuorumSystem.weighted(3, 1, 1, 1, 2), QuorumSystem.grid(2, 3)}) {
+            long all = (1L << quorums.getAcceptorCount()) - 1;
+            for (long prepare = 0; prepare <= all; prepare++) {
+                for (long accept = 0; accept <= all; accept++) {
+                    if (quorums.isPrepareQuorum(prepare) && quorums.isAcceptQuorum(accept)) {
+                        assertTrue((prepare & accept) != 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fastQuorumIsAboutThreeQuarters() {
+        assertFalse(QuorumSystem.majority(5).isFastQuorum(0b00111));
+        assertTrue(QuorumSystem.majority(5).isFastQuorum(0b01111));
+        assertFalse(QuorumSystem.majority(3).isFastQuorum(0b011));
+        assertTrue(QuorumSystem.majority(3).isFastQuorum(0b111));
+    }
+
+    @Test
+    public void anyTwoFastQuorumsMeetEveryPrepareQuorum() {
+        for (QuorumSystem quorums : new QuorumSystem[] {QuorumSystem.majority(5), QuorumSystem.flexible(5, 4, 2),
+                QuorumSystem.weighted(3, 1, 1, 1, 2), QuorumSystem.grid(2, 3)}) {
+            long all = (1L << quorums.getAcceptorCount()) - 1;
+            for (long fast1 = 0; fast1 <= all; fast1++) {
+                for (long fast2 = 0; fast2 <= all; fast2++) {
+                    if (!quorums.isFastQuorum(fast1) || !quorums.isFastQuorum(fast2)) {
+                        continue;
+                    }
+                    for (long prepare = 0; prepare <= all; prepare++) {
+                        if (quorums.isPrepareQuorum(prepare)) {
+                            assertTrue((fast1 & fast2 & prepare) != 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void atMostSixtyFourAcceptors() {
+        QuorumSystem.majority(65);
+    }
+}
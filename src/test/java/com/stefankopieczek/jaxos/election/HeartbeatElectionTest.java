@@ -0,0 +1,124 @@
+package com.stefankopieczek.jaxos.election;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+import com.stefankopieczek.jaxos.proposer.Backoff;
+import com.stefankopieczek.jaxos.proposer.Proposer;
+import com.stefankopieczek.jaxos.proposer.ProposerImpl;
+
+public class HeartbeatElectionTest {
+    private static final long INTERVAL_MILLIS = 10;
+    private static final long LEASE_MILLIS = 50;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    private final List<HeartbeatElection> elections = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        elections.forEach(election -> election.close());
+    }
+
+    @Test
+    public void lowestLiveIdLeads() {
+        List<HeartbeatElection> nodes = startNodes(3);
+        nodes.get(0).awaitLeadership();
+        assertTrue(nodes.get(0).isLeader());
+        assertFalse(nodes.get(1).isLeader());
+        assertFalse(nodes.get(2).isLeader());
+        assertEquals(1, nodes.get(2).getLeader());
+    }
+
+    @Test
+    public void leadershipPassesOnWhenLeaderDies() {
+        List<HeartbeatElection> nodes = startNodes(3);
+        nodes.get(0).awaitLeadership();
+        nodes.get(0).close();
+
+        nodes.get(1).awaitLeadership();
+        assertTrue(nodes.get(1).isLeader());
+        assertFalse(nodes.get(2).isLeader());
+    }
+
+    @Test
+    public void newNodeWaitsOutLease() {
+        HeartbeatElection election = start(1);
+        assertFalse(election.isLeader());
+        election.awaitLeadership();
+        assertTrue(election.isLeader());
+    }
+
+    @Test
+    public void electedProposersDontDuel() throws InterruptedException {
+        Learner<String> learner = new LearnerImpl<>(3);
+        List<Acceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acceptors.add(new AcceptorImpl<>(i + 1, Collections.singletonList(learner)));
+        }
+
+        List<HeartbeatElection> nodes = startNodes(2);
+        List<ProposerImpl<String>> proposers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ProposerImpl<String> proposer = new ProposerImpl<>(i + 1, acceptors,
+                    new Backoff(1, 10, TimeUnit.MILLISECONDS));
+            Proposer<String> elected = new ElectedProposer<>(proposer, nodes.get(i));
+            proposers.add(proposer);
+
+            // Only the leader's thread should get to propose; the other waits throughout.
+            Thread thread = new Thread(() -> {
+                for (int slot = 0; slot < 20; slot++) {
+                    elected.propose(slot, "value" + slot);
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        threads.get(0).join();
+        for (int slot = 0; slot < 20; slot++) {
+            assertEquals("value" + slot, learner.getValue(slot));
+        }
+        assertEquals(0, proposers.get(0).getRetryCount());
+        assertEquals(0, proposers.get(1).getRetryCount());
+        assertTrue(threads.get(1).isAlive());
+    }
+
+    private List<HeartbeatElection> startNodes(int count) {
+        List<HeartbeatElection> nodes = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            nodes.add(start(id));
+        }
+        for (HeartbeatElection node : nodes) {
+            for (HeartbeatElection peer : nodes) {
+                if (peer != node) {
+                    node.addPeer(peer);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private HeartbeatElection start(int id) {
+        HeartbeatElection election = new HeartbeatElection(id, Collections.emptyList(), INTERVAL_MILLIS,
+                                                           LEASE_MILLIS, TimeUnit.MILLISECONDS);
+        elections.add(election);
+        return election;
+    }
+}
@@ -0,0 +1,111 @@
+package com.stefankopieczek.jaxos.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+import com.stefankopieczek.jaxos.proposer.ProposerImpl;
+
+public class FlightRecorderEventsTest {
+    private static final String[] EVENTS =
+            {"jaxos.PrepareRound", "jaxos.AcceptRound", "jaxos.Promise", "jaxos.Accept", "jaxos.Quorum"};
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundsDecisionsAndQuorumsAreRecorded() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            Learner<String> learner = new LearnerImpl<>(3);
+            List<Acceptor<String>> acceptors = acceptors(3, learner);
+            acceptors.get(0).prepare(new Proposal<>(Ballot.of(1, 2), "rival"));
+            acceptors.get(1).prepare(new Proposal<>(Ballot.of(1, 2), "rival"));
+            new ProposerImpl<>(1, acceptors).propose("foo");
+            assertEquals("foo", learner.getValue());
+        });
+
+        // Two of the three acceptors reject the first prepare, so phase 1 runs twice. The rival's
+        // prepares were made while recording too.
+        assertEquals(2, count(events, "jaxos.PrepareRound"));
+        assertEquals(1, count(events, "jaxos.AcceptRound"));
+        assertEquals(8, count(events, "jaxos.Promise"));
+        assertEquals(3, count(events, "jaxos.Accept"));
+        assertEquals(1, count(events, "jaxos.Quorum"));
+
+        RecordedEvent rejection = events.stream()
+                .filter(event -> event.getEventType().getName().equals("jaxos.Promise"))
+                .filter(event -> !event.getBoolean("promised"))
+                .findFirst().get();
+        assertTrue(rejection.getInt("acceptorId") < 2);
+        assertEquals(Ballot.of(1, 2), rejection.getLong("promisedBallot"));
+
+        RecordedEvent quorum = events.stream()
+                .filter(event -> event.getEventType().getName().equals("jaxos.Quorum"))
+                .findFirst().get();
+        assertEquals(Ballot.after(Ballot.of(1, 2), 1), quorum.getLong("ballot"));
+        assertTrue(quorum.getLong("timeToLearn") >= 0);
+    }
+
+    @Test
+    public void nothingIsRecordedUnlessEnabled() throws Exception {
+        List<RecordedEvent> events = new ArrayList<>();
+        try (Recording recording = new Recording()) {
+            recording.start();
+            Learner<String> learner = new LearnerImpl<>(3);
+            new ProposerImpl<>(1, acceptors(3, learner)).propose("foo");
+            recording.stop();
+            Path file = folder.newFile("disabled.jfr").toPath();
+            recording.dump(file);
+            events.addAll(RecordingFile.readAllEvents(file));
+        }
+
+        assertFalse(events.stream().anyMatch(event -> event.getEventType().getName().startsWith("jaxos.")));
+    }
+
+    private List<RecordedEvent> record(Runnable work) throws Exception {
+        try (Recording recording = new Recording()) {
+            for (String event : EVENTS) {
+                recording.enable(event).withoutThreshold();
+            }
+            recording.start();
+            work.run();
+            recording.stop();
+
+            Path file = folder.newFile("events.jfr").toPath();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        }
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).count();
+    }
+
+    private static List<Acceptor<String>> acceptors(int count, Learner<String> learner) {
+        List<Acceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            acceptors.add(new AcceptorImpl<>(i, Collections.singletonList(learner)));
+        }
+        return acceptors;
+    }
+}
@@ -0,0 +1,123 @@
+package com.stefankopieczek.jaxos.learner;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.core.Proposal;
+
+public class AsyncLearnerTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Test
+    public void deliversToLearner() {
+        LearnerImpl<String> learner = new LearnerImpl<>(1);
+        try (AsyncLearner<String> async = new AsyncLearner<>(learner)) {
+            async.teach(1, 3, new Proposal<>(1, "foo"));
+            assertEquals("foo", async.getValue(3));
+        }
+    }
+
+    @Test
+    public void acceptDoesNotWaitForLearner() throws InterruptedException {
+        BlockingLearner<String> learner = new BlockingLearner<>();
+        try (AsyncLearner<String> async = new AsyncLearner<>(learner)) {
+            Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.singletonList(async));
+            acceptor.accept(0, new Proposal<>(1, "foo"));
+            learner.blocked.await();
+            acceptor.accept(1, new Proposal<>(1, "bar"));
+            learner.release.countDown();
+        }
+        assertEquals(2, learner.taught.size());
+    }
+
+    @Test
+    public void supersededProposalsAreCoalesced() throws InterruptedException {
+        BlockingLearner<String> learner = new BlockingLearner<>();
+        try (AsyncLearner<String> async = new AsyncLearner<>(learner)) {
+            async.teach(1, 0, new Proposal<>(1, "foo"));
+            learner.blocked.await();
+
+            // These queue up behind the first, so only the highest is worth delivering.
+            async.teach(1, 0, new Proposal<>(3, "baz"));
+            async.teach(1, 0, new Proposal<>(2, "bar"));
+            async.teach(2, 0, new Proposal<>(2, "bar"));
+            learner.release.countDown();
+        }
+
+        assertEquals(3, learner.taught.size());
+        assertEquals("foo", learner.taught.get(0).getValue());
+        assertEquals("baz", learner.taught.get(1).getValue());
+        assertEquals("bar", learner.taught.get(2).getValue());
+    }
+
+    @Test
+    public void manyProducersWrapSmallRing() throws InterruptedException {
+        int acceptors = 4;
+        int slots = 5000;
+        LearnerImpl<String> learner = new LearnerImpl<>(acceptors);
+        try (AsyncLearner<String> async = new AsyncLearner<>(learner, 8, Thread::new)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int id = 1; id <= acceptors; id++) {
+                int acceptorId = id;
+                threads.add(new Thread(() -> {
+                    for (int slot = 0; slot < slots; slot++) {
+                        async.teach(acceptorId, slot, new Proposal<>(1, "value" + slot));
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            for (int slot = 0; slot < slots; slot++) {
+                assertEquals("value" + slot, learner.getValue(slot));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void teachAfterCloseFails() {
+        AsyncLearner<String> async = new AsyncLearner<>(new LearnerImpl<>(1));
+        async.close();
+        async.teach(1, 0, new Proposal<>(1, "foo"));
+    }
+
+    // Blocks on its first lesson until released, recording everything it is taught.
+    private static class BlockingLearner<V> implements Learner<V> {
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<Proposal<V>> taught = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public CompletableFuture<V> valueFuture(long slot) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void teach(int acceptorId, long slot, Proposal<V> proposal) {
+            taught.add(proposal);
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void chosen(long slot, V value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
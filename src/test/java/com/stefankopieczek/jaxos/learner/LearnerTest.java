@@ -9,11 +9,25 @@ import org.junit.rules.Timeout;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import com.stefankopieczek.jaxos.core.Ballot;
 import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
 
 
 public class LearnerTest {
@@ -98,12 +112,14 @@ public class LearnerTest {
         learner.getValue();
     }
 
+    // Acceptors that accepted different proposal numbers haven't chosen anything, even though no
+    // two of them disagree about the value for any one number.
     @Test(expected=TimeoutException.class)
     public void noConsensus1() throws TimeoutException  {
         Learner<String> learner = new LearnerImpl<>(3);
         learner.teach(1, p1a);
-        learner.teach(2, p1b);
-        learner.teach(3, p1c);
+        learner.teach(2, p2b);
+        learner.teach(3, p3c);
         learner.getValue();
     }
 
@@ -121,41 +137,65 @@ public class LearnerTest {
     public void eventualConsensus1() throws TimeoutException  {
         Learner<String> learner = new LearnerImpl<>(3);
         learner.teach(1, p1a);
-        learner.teach(2, p1b);
-        learner.teach(3, p1c);
+        learner.teach(2, p2b);
+        learner.teach(3, p3c);
         learner.teach(1, p2b);
-        assertEquals(p1b.getValue(), learner.getValue());
+        assertEquals(p2b.getValue(), learner.getValue());
     }
 
     @Test
     public void eventualConsensus2() throws TimeoutException  {
         Learner<String> learner = new LearnerImpl<>(3);
         learner.teach(1, p1a);
-        learner.teach(2, p1b);
-        learner.teach(3, p1c);
-        learner.teach(1, p2c);
-        assertEquals(p1c.getValue(), learner.getValue());
+        learner.teach(2, p2b);
+        learner.teach(3, p3c);
+        learner.teach(1, p3c);
+        assertEquals(p3c.getValue(), learner.getValue());
     }
 
     @Test
     public void eventualConsensus3() throws TimeoutException  {
         Learner<String> learner = new LearnerImpl<>(3);
         learner.teach(1, p1a);
-        learner.teach(2, p1b);
-        learner.teach(3, p1c);
-        learner.teach(3, p2a);
-        assertEquals(p1a.getValue(), learner.getValue());
+        learner.teach(2, p2b);
+        learner.teach(3, p3c);
+        learner.teach(2, p3c);
+        assertEquals(p3c.getValue(), learner.getValue());
     }
 
     @Test
     public void eventualConsensus4() throws TimeoutException  {
+        Learner<String> learner = new LearnerImpl<>(5);
+        learner.teach(1, p1a);
+        learner.teach(2, p1a);
+        learner.teach(3, p2b);
+        learner.teach(4, p2b);
+        learner.teach(1, p2b);
+        assertEquals(p2b.getValue(), learner.getValue());
+    }
+
+    // Acceptor 1 moving on from proposal 1 must take its vote with it.
+    @Test(expected=TimeoutException.class)
+    public void supersededVotesAreNotCounted() throws TimeoutException  {
         Learner<String> learner = new LearnerImpl<>(3);
         learner.teach(1, p1a);
-        learner.teach(2, p1b);
-        learner.teach(3, p1c);
-        learner.teach(1, p2d);
-        learner.teach(1, p3b);
-        assertEquals(p1b.getValue(), learner.getValue());
+        learner.teach(1, p2a);
+        learner.teach(2, p1a);
+        learner.getValue();
+    }
+
+    // Every acceptor starts with a proposal of its own, then they converge on one.
+    @Test
+    public void scatteredVotesConverge() throws TimeoutException  {
+        Learner<String> learner = new LearnerImpl<>(5);
+        for (int acceptorId = 1; acceptorId <= 5; acceptorId++) {
+            learner.teach(acceptorId, 0, new Proposal<>(acceptorId, "value" + acceptorId));
+        }
+        learner.teach(2, 0, new Proposal<>(6, "last"));
+        learner.teach(4, 0, new Proposal<>(6, "last"));
+        assertFalse(learner.valueFuture(0).isDone());
+        learner.teach(1, 0, new Proposal<>(6, "last"));
+        assertEquals("last", learner.getValue());
     }
 
     @Test
@@ -171,6 +211,224 @@ public class LearnerTest {
         learner.getValue();
     }
 
+    @Test
+    public void learnDistinctSlots() throws TimeoutException {
+        Learner<String> learner = new LearnerImpl<>(1);
+        learner.teach(1, 0, p1a);
+        learner.teach(1, 1, p1b);
+        assertEquals(p1a.getValue(), learner.getValue(0));
+        assertEquals(p1b.getValue(), learner.getValue(1));
+    }
+
+    @Test(expected=TimeoutException.class)
+    public void slotsAreIndependent() throws TimeoutException {
+        Learner<String> learner = new LearnerImpl<>(3);
+        learner.teach(1, 0, p1a);
+        learner.teach(2, 1, p1a);
+        learner.getValue(0);
+    }
+
+    @Test
+    public void learnChosenValue() throws TimeoutException {
+        Learner<String> learner = new LearnerImpl<>(3);
+        learner.chosen(4, "foo");
+        assertEquals("foo", learner.getValue(4));
+    }
+
+    @Test
+    public void followersAreToldOnceQuorumIsReached() throws TimeoutException {
+        LearnerImpl<String> follower1 = new LearnerImpl<>(3);
+        LearnerImpl<String> follower2 = new LearnerImpl<>(3);
+        Learner<String> distinguished = new LearnerImpl<>(3, Arrays.asList(follower1, follower2));
+        distinguished.teach(1, 4, p1a);
+        distinguished.teach(2, 4, p1a);
+        assertEquals(p1a.getValue(), follower1.getValue(4));
+        assertEquals(p1a.getValue(), follower2.getValue(4));
+    }
+
+    @Test
+    public void followersAreToldEachValueOnce() {
+        List<String> told = new ArrayList<>();
+        Learner<String> follower = new LearnerImpl<String>(1) {
+            @Override
+            public void chosen(long slot, String value) {
+                told.add(value);
+            }
+        };
+        Learner<String> distinguished = new LearnerImpl<>(1, Collections.singletonList(follower));
+        distinguished.teach(1, p1a);
+        distinguished.teach(1, p2a);
+        distinguished.chosen(0, p1a.getValue());
+        assertEquals(Collections.singletonList(p1a.getValue()), told);
+    }
+
+    @Test
+    public void valueFutureCompletesOnQuorum() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        CompletableFuture<String> value = learner.valueFuture(2);
+        learner.teach(1, 2, p1a);
+        assertFalse(value.isDone());
+        learner.teach(2, 2, p1a);
+        assertEquals(p1a.getValue(), value.getNow(null));
+    }
+
+    @Test
+    public void flexibleQuorumLearnsFromSmallAcceptQuorum() {
+        Learner<String> learner = new LearnerImpl<>(QuorumSystem.flexible(5, 4, 2));
+        CompletableFuture<String> value = learner.valueFuture(0);
+        learner.teach(0, 0, p1a);
+        assertFalse(value.isDone());
+        learner.teach(3, 0, p1a);
+        assertEquals(p1a.getValue(), value.getNow(null));
+    }
+
+    @Test
+    public void fastBallotNeedsFastQuorumOfOneValue() {
+        Learner<String> learner = new LearnerImpl<>(5);
+        CompletableFuture<String> value = learner.valueFuture(0);
+        long ballot = Ballot.fast(1, 1);
+        learner.teach(1, 0, new Proposal<>(ballot, "foo"));
+        learner.teach(2, 0, new Proposal<>(ballot, "foo"));
+        learner.teach(3, 0, new Proposal<>(ballot, "bar"));
+        learner.teach(4, 0, new Proposal<>(ballot, "foo"));
+        assertFalse(value.isDone());
+        learner.teach(5, 0, new Proposal<>(ballot, "foo"));
+        assertEquals("foo", value.getNow(null));
+    }
+
+    @Test
+    public void gridLearnsOnlyFromAWholeRow() {
+        // 0 1
+        // 2 3
+        // 4 5
+        Learner<String> learner = new LearnerImpl<>(QuorumSystem.grid(3, 2));
+        CompletableFuture<String> value = learner.valueFuture(0);
+        learner.teach(0, 0, p1a);
+        learner.teach(2, 0, p1a);
+        learner.teach(4, 0, p1a);
+        assertFalse(value.isDone());
+        learner.teach(5, 0, p1a);
+        assertEquals(p1a.getValue(), value.getNow(null));
+    }
+
+    @Test
+    public void valueFutureCannotBeCompletedByCaller() {
+        Learner<String> learner = new LearnerImpl<>(1);
+        learner.valueFuture(0).complete("bogus");
+        learner.teach(1, p1a);
+        assertEquals(p1a.getValue(), learner.valueFuture().getNow(null));
+    }
+
+    @Test(expected=TimeoutException.class)
+    public void timedGetValueTimesOut() throws Exception {
+        Learner<String> learner = new LearnerImpl<>(3);
+        learner.teach(1, p1a);
+        learner.getValue(0, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void listenersHearOfDecisions() {
+        List<String> decided = new ArrayList<>();
+        LearnerImpl<String> learner = new LearnerImpl<>(1);
+        learner.addListener((slot, value) -> decided.add(slot + "=" + value));
+        learner.teach(1, 3, p1a);
+        learner.chosen(5, "bar");
+        assertEquals(Arrays.asList("3=foo", "5=bar"), decided);
+    }
+
+    @Test
+    public void publisherEmitsLogInOrderAsRequested() throws Exception {
+        LearnerImpl<String> learner = new LearnerImpl<>(1);
+        learner.teach(1, 1, p1a);
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+        new LogPublisher<>(learner, 1, Runnable::run).subscribe(new Flow.Subscriber<String>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription.set(s);
+                s.request(2);
+            }
+
+            @Override
+            public void onNext(String value) {
+                received.add(value);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                received.add("error");
+            }
+
+            @Override
+            public void onComplete() {
+                received.add("complete");
+            }
+        });
+
+        assertEquals(p1a.getValue(), received.poll());
+        assertTrue(received.isEmpty());
+
+        // Slot 3 is decided first, but can't be published until slot 2 is.
+        learner.teach(1, 3, p1c);
+        assertTrue(received.isEmpty());
+        learner.teach(1, 2, p1b);
+        assertEquals(p1b.getValue(), received.poll());
+        assertTrue(received.isEmpty());
+
+        subscription.get().request(1);
+        assertEquals(p1c.getValue(), received.poll());
+    }
+
+    @Test
+    public void publisherSignalsInvalidRequestAfterOnNextReturns() throws Exception {
+        LearnerImpl<String> learner = new LearnerImpl<>(1);
+        learner.teach(1, 1, p1a);
+        learner.teach(1, 2, p1b);
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        AtomicBoolean inOnNext = new AtomicBoolean();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            new LogPublisher<>(learner, 1, executor).subscribe(new Flow.Subscriber<String>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription s) {
+                    subscription = s;
+                    s.request(2);
+                }
+
+                @Override
+                public void onNext(String value) {
+                    inOnNext.set(true);
+                    subscription.request(0);
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    received.add(value);
+                    inOnNext.set(false);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    received.add(inOnNext.get() ? "overlapping error" : "error");
+                }
+
+                @Override
+                public void onComplete() {
+                    received.add("complete");
+                }
+            });
+
+            assertEquals(p1a.getValue(), received.poll(5, TimeUnit.SECONDS));
+            assertEquals("error", received.poll(5, TimeUnit.SECONDS));
+            assertEquals(null, received.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private <V> V timedGet(Future<V> future) throws TimeoutException {
         try {
             return future.get(FUTURE_TIMEOUT_SECS, TimeUnit.SECONDS);
@@ -0,0 +1,87 @@
+package com.stefankopieczek.jaxos.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HistogramTest {
+    @Test
+    public void emptyHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0.0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 10; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10, histogram.getCount());
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(10, histogram.getValueAtPercentile(100));
+        assertEquals(5.5, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void bucketsCoverEveryValueWithinSixPercent() {
+        long[] values = {16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            long highest = Histogram.highestValueIn(bucket);
+            assertTrue(value <= highest);
+            assertTrue(bucket == 0 || value > Histogram.highestValueIn(bucket - 1));
+            assertTrue((highest - value) <= value / 16);
+        }
+    }
+
+    @Test
+    public void percentilesOfLatencies() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 990; i++) {
+            histogram.record(1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000000);
+        }
+
+        assertEquals(1000, histogram.getValueAtPercentile(50), 1000 / 16);
+        assertEquals(1000, histogram.getValueAtPercentile(99), 1000 / 16);
+        assertEquals(1000000, histogram.getValueAtPercentile(99.9), 1000000 / 16);
+        assertEquals(1000000, histogram.getMax());
+    }
+
+    @Test
+    public void negativeValuesCountAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400000, histogram.getCount());
+        assertEquals(99999, histogram.getMax());
+        assertEquals(99999 / 2.0, histogram.getMean(), 0.001);
+    }
+}
@@ -0,0 +1,88 @@
+package com.stefankopieczek.jaxos.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+import com.stefankopieczek.jaxos.proposer.Backoff;
+import com.stefankopieczek.jaxos.proposer.ProposerImpl;
+
+public class PaxosMetricsTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Test
+    public void proposerRecordsRoundsAndRejections() {
+        PaxosMetrics metrics = new PaxosMetrics();
+        List<Acceptor<String>> acceptors = acceptors(3, Collections.emptyList());
+        acceptors.get(0).prepare(new Proposal<>(Ballot.of(5, 2), "rival"));
+        acceptors.get(1).prepare(new Proposal<>(Ballot.of(5, 2), "rival"));
+
+        ProposerImpl<String> proposer = new ProposerImpl<>(1, acceptors, Backoff.none(), metrics);
+        proposer.propose("foo");
+
+        assertEquals(1, metrics.getCount(Counter.PROPOSALS));
+        assertEquals(2, metrics.getCount(Counter.PREPARE_ROUNDS));
+        assertEquals(2, metrics.getCount(Counter.PREPARES_REJECTED));
+        assertEquals(1, metrics.getCount(Counter.ACCEPT_ROUNDS));
+        assertEquals(0, metrics.getCount(Counter.ACCEPTS_REJECTED));
+        assertEquals(1, metrics.getCount(Counter.RETRIES));
+        assertEquals(2, metrics.getHistogram(Distribution.PREPARE_ROUND_LATENCY).getCount());
+        assertEquals(1, metrics.getHistogram(Distribution.RETRIES_PER_PROPOSAL).getMax());
+        assertEquals(1, metrics.getHistogram(Distribution.PROPOSAL_LATENCY).getCount());
+    }
+
+    @Test
+    public void learnerRecordsTimeToLearn() {
+        PaxosMetrics metrics = new PaxosMetrics();
+        Learner<String> learner = new LearnerImpl<>(3, Collections.emptyList(), metrics);
+        learner.teach(1, 0, new Proposal<>(1, "foo"));
+        learner.teach(2, 0, new Proposal<>(1, "foo"));
+        learner.teach(3, 0, new Proposal<>(1, "foo"));
+        learner.chosen(1, "bar");
+
+        assertEquals(2, metrics.getCount(Counter.VALUES_LEARNT));
+        assertEquals(1, metrics.getHistogram(Distribution.ACCEPT_TO_LEARN_LATENCY).getCount());
+        assertEquals(3, metrics.getHistogram(Distribution.LEARNER_LOCK_WAIT).getCount());
+    }
+
+    @Test
+    public void metricsArePublishedOverJmx() throws Exception {
+        PaxosMetrics metrics = new PaxosMetrics();
+        metrics.increment(Counter.PREPARES_REJECTED, 3);
+        metrics.record(Distribution.PREPARE_ROUND_LATENCY, 12);
+
+        ObjectName name = metrics.registerMBean("com.stefankopieczek.jaxos:type=Metrics,test=jmx");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(3L, server.getAttribute(name, "PreparesRejected"));
+            assertEquals(1L, server.getAttribute(name, "PrepareRoundLatency.Count"));
+            assertEquals(12L, server.getAttribute(name, "PrepareRoundLatency.P99"));
+            assertTrue(server.getMBeanInfo(name).getAttributes().length > Counter.values().length);
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    private static List<Acceptor<String>> acceptors(int count, List<Learner<String>> learners) {
+        List<Acceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            acceptors.add(new AcceptorImpl<>(i, learners));
+        }
+        return acceptors;
+    }
+}
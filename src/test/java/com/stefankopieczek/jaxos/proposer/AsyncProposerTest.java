@@ -0,0 +1,153 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.acceptor.AsyncAcceptor;
+import com.stefankopieczek.jaxos.acceptor.AsyncAcceptorAdapter;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+
+public class AsyncProposerTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void proposeToAllAcceptors() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        Proposer<String> proposer = new AsyncProposerImpl<>(1, Arrays.asList(
+                adapt(new AcceptorImpl<>(1, Collections.singletonList(learner))),
+                adapt(new AcceptorImpl<>(2, Collections.singletonList(learner))),
+                adapt(new AcceptorImpl<>(3, Collections.singletonList(learner)))));
+        proposer.propose("foo");
+        assertEquals("foo", learner.getValue());
+    }
+
+    @Test
+    public void respectsPreviouslyAccepted() {
+        Learner<String> learner = new LearnerImpl<>(1);
+        AcceptorImpl<String> acceptor = new AcceptorImpl<>(1, Collections.singletonList(learner));
+        acceptor.prepare(3, new Proposal<>(20, "bar"));
+        acceptor.accept(3, new Proposal<>(20, "bar"));
+        Proposer<String> proposer = new AsyncProposerImpl<>(1, Collections.singletonList(adapt(acceptor)));
+        proposer.propose(3, "foo");
+        assertEquals("bar", learner.getValue(3));
+    }
+
+    @Test
+    public void completesWithoutUnresponsiveAcceptor() {
+        // The third acceptor never answers, but the other two make a quorum, so we should finish
+        // rather than wait on it forever.
+        Learner<String> learner = new LearnerImpl<>(3);
+        Proposer<String> proposer = new AsyncProposerImpl<>(1, Arrays.asList(
+                adapt(new AcceptorImpl<>(1, Collections.singletonList(learner))),
+                adapt(new AcceptorImpl<>(2, Collections.singletonList(learner))),
+                new SilentAcceptor<>()));
+        proposer.propose("foo");
+        assertEquals("foo", learner.getValue());
+    }
+
+    @Test
+    public void retriesWhenQuorumRejects() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        AcceptorImpl<String> acceptor1 = new AcceptorImpl<>(1, Collections.singletonList(learner));
+        AcceptorImpl<String> acceptor2 = new AcceptorImpl<>(2, Collections.singletonList(learner));
+        AcceptorImpl<String> acceptor3 = new AcceptorImpl<>(3, Collections.singletonList(learner));
+        acceptor1.prepare(new Proposal<>(10, "bar"));
+        acceptor2.prepare(new Proposal<>(10, "bar"));
+        Proposer<String> proposer = new AsyncProposerImpl<>(1, Arrays.asList(
+                adapt(acceptor1), adapt(acceptor2), adapt(acceptor3)));
+        proposer.propose("foo");
+        assertEquals("foo", learner.getValue());
+    }
+
+    @Test
+    public void weightedQuorumWaitsOnlyForHeavyAcceptor() {
+        // The first acceptor outvotes the other two together, so it alone is a quorum and the
+        // silent acceptors don't hold us up.
+        QuorumSystem quorums = QuorumSystem.weighted(3, 1, 1);
+        Learner<String> learner = new LearnerImpl<>(quorums);
+        Proposer<String> proposer = new AsyncProposerImpl<>(1, Arrays.asList(
+                adapt(new AcceptorImpl<>(0, Collections.singletonList(learner))),
+                new SilentAcceptor<>(),
+                new SilentAcceptor<>()), Backoff.none(), quorums);
+        proposer.propose("foo");
+        assertEquals("foo", learner.getValue());
+    }
+
+    @Test
+    public void stragglersAreCancelled() {
+        SilentAcceptor<String> silent = new SilentAcceptor<>();
+        Proposer<String> proposer = new AsyncProposerImpl<>(1, Arrays.asList(
+                adapt(new AcceptorImpl<>(1, Collections.emptyList())),
+                adapt(new AcceptorImpl<>(2, Collections.emptyList())),
+                silent));
+        proposer.propose("foo");
+        assertTrue(silent.lastResponse.isCancelled());
+    }
+
+    @Test
+    public void thriftyProposerFallsBackAfterTimeout() {
+        // The silent acceptor is asked first, as nothing is known about any of them yet. Once we
+        // give up waiting on it, we ask the third acceptor instead, and rank the silent one last.
+        Learner<String> learner = new LearnerImpl<>(3);
+        SilentAcceptor<String> silent = new SilentAcceptor<>();
+        Proposer<String> proposer = new AsyncProposerImpl<>(1, Arrays.asList(
+                silent,
+                adapt(new AcceptorImpl<>(2, Collections.singletonList(learner))),
+                adapt(new AcceptorImpl<>(3, Collections.singletonList(learner)))),
+                Backoff.none(), 50, TimeUnit.MILLISECONDS);
+        proposer.propose(0, "foo");
+        assertEquals("foo", learner.getValue(0));
+
+        CompletableFuture<?> lastResponse = silent.lastResponse;
+        proposer.propose(1, "bar");
+        assertEquals("bar", learner.getValue(1));
+        assertSame(lastResponse, silent.lastResponse);
+    }
+
+    private AsyncAcceptor<String> adapt(AcceptorImpl<String> acceptor) {
+        return new AsyncAcceptorAdapter<>(acceptor, executor);
+    }
+
+    private static class SilentAcceptor<V> implements AsyncAcceptor<V> {
+        public CompletableFuture<?> lastResponse = null;
+
+        @Override
+        public CompletableFuture<PrepareResult<MultiPromise<V>>> prepareFrom(long firstSlot, Proposal<V> p) {
+            CompletableFuture<PrepareResult<MultiPromise<V>>> response = new CompletableFuture<>();
+            lastResponse = response;
+            return response;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> accept(long slot, Proposal<V> p) {
+            CompletableFuture<Boolean> response = new CompletableFuture<>();
+            lastResponse = response;
+            return response;
+        }
+    }
+}
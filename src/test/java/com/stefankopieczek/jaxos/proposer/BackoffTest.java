@@ -0,0 +1,27 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import java.util.concurrent.TimeUnit;
+
+public class BackoffTest {
+    @Test(expected=IllegalArgumentException.class)
+    public void zeroInitialPauseCannotGrow() {
+        new Backoff(0, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void maximumMustNotBeBelowInitial() {
+        new Backoff(10, 1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void noBackoffHasNoPauseToGrow() {
+        Backoff backoff = Backoff.none();
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            backoff.pause();
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,185 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.learner.BatchUnpacker;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+
+public class BatchingProposerTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Test
+    public void fullBatchesAreProposedTogether() {
+        Learner<List<String>> learner = new LearnerImpl<>(3);
+        try (BatchingProposer<String> proposer = batchingProposer(learner, 10, 100)) {
+            List<CompletableFuture<Long>> slots = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                slots.add(proposer.submit("command" + i));
+            }
+
+            for (int i = 0; i < 25; i++) {
+                assertEquals(i / 10, slots.get(i).join().longValue());
+            }
+            assertEquals(10, learner.getValue(0).size());
+            assertEquals(10, learner.getValue(1).size());
+            assertEquals(5, learner.getValue(2).size());
+        }
+    }
+
+    @Test
+    public void unpackerReturnsCommandsInOrder() {
+        Learner<List<String>> learner = new LearnerImpl<>(3);
+        try (BatchingProposer<String> proposer = batchingProposer(learner, 4, 1)) {
+            for (int i = 0; i < 10; i++) {
+                proposer.submit("command" + i);
+            }
+
+            BatchUnpacker<String> unpacker = new BatchUnpacker<>(learner);
+            for (int i = 0; i < 10; i++) {
+                assertEquals("command" + i, unpacker.next());
+            }
+        }
+    }
+
+    @Test
+    public void concurrentSubmittersShareRounds() throws InterruptedException {
+        Learner<List<String>> learner = new LearnerImpl<>(3);
+        int numThreads = 8;
+        int commandsPerThread = 50;
+        List<CompletableFuture<Long>> slots = Collections.synchronizedList(new ArrayList<>());
+        try (BatchingProposer<String> proposer = batchingProposer(learner, 1000, 1)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final int threadId = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < commandsPerThread; i++) {
+                        slots.add(proposer.submit(threadId + ":" + i));
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            long lastSlot = 0;
+            for (CompletableFuture<Long> slot : slots) {
+                lastSlot = Math.max(lastSlot, slot.join());
+            }
+
+            // Every command should be decided exactly once, in fewer rounds than there were commands.
+            int numCommands = 0;
+            for (long slot = 0; slot <= lastSlot; slot++) {
+                numCommands += learner.getValue(slot).size();
+            }
+            assertEquals(numThreads * commandsPerThread, numCommands);
+            assertTrue(lastSlot + 1 < numCommands);
+        }
+    }
+
+    @Test(expected=CompletionException.class)
+    public void submitAfterCloseFails() {
+        Learner<List<String>> learner = new LearnerImpl<>(1);
+        BatchingProposer<String> proposer = batchingProposer(learner, 10, 1);
+        proposer.close();
+        proposer.submit("foo").join();
+    }
+
+    @Test
+    public void closeDoesNotWaitForeverOnAStuckRound() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Acceptor<List<String>>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acceptors.add(new StuckAcceptor(entered, release));
+        }
+
+        BatchingProposer<String> proposer =
+                BatchingProposer.start(new LeaderProposer<>(1, acceptors), 1, 0, TimeUnit.MILLISECONDS);
+        CompletableFuture<Long> stuck = proposer.submit("foo");
+        entered.await();
+        CompletableFuture<Long> queued = proposer.submit("bar");
+
+        proposer.close();
+        assertTrue(queued.isCompletedExceptionally());
+        release.countDown();
+        assertEquals(0, stuck.join().longValue());
+    }
+
+    private static BatchingProposer<String> batchingProposer(Learner<List<String>> learner, int maxBatchSize,
+                                                             long lingerMillis) {
+        List<Acceptor<List<String>>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acceptors.add(new AcceptorImpl<>(i + 1, Collections.singletonList(learner)));
+        }
+        return BatchingProposer.start(new LeaderProposer<>(1, acceptors), maxBatchSize, lingerMillis,
+                                      TimeUnit.MILLISECONDS);
+    }
+
+    // Blocks every request, ignoring interrupts, until released, then behaves as a normal acceptor
+    // so that the stuck round can finish.
+    private static class StuckAcceptor implements Acceptor<List<String>> {
+        private final Acceptor<List<String>> delegate = new AcceptorImpl<>(1, Collections.emptyList());
+        private final CountDownLatch entered;
+        private final CountDownLatch release;
+
+        StuckAcceptor(CountDownLatch entered, CountDownLatch release) {
+            this.entered = entered;
+            this.release = release;
+        }
+
+        @Override
+        public PrepareResult<MultiPromise<List<String>>> prepareFrom(long firstSlot, Proposal<List<String>> p) {
+            awaitRelease();
+            return delegate.prepareFrom(firstSlot, p);
+        }
+
+        @Override
+        public boolean accept(long slot, Proposal<List<String>> p) {
+            awaitRelease();
+            return delegate.accept(slot, p);
+        }
+
+        private void awaitRelease() {
+            entered.countDown();
+            boolean interrupted = false;
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+
+public class FastProposerTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Test
+    public void uncontendedProposalsGoStraightToAcceptors() {
+        Learner<String> learner = new LearnerImpl<>(5);
+        List<RecordingAcceptor<String>> acceptors = acceptors(5, learner);
+        FastProposer<String> proposer = new FastProposer<>(1, new ArrayList<>(acceptors));
+        for (int i = 0; i < 10; i++) {
+            proposer.propose(i, "value" + i);
+        }
+
+        for (RecordingAcceptor<String> acceptor : acceptors) {
+            assertEquals(1, acceptor.prepares);
+            assertEquals(10, acceptor.accepts);
+            assertTrue(Ballot.isFast(acceptor.lastAccept.getProposalNumber()));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value" + i, learner.getValue(i));
+        }
+        assertEquals(0, proposer.getRecoveryCount());
+    }
+
+    @Test
+    public void collisionFallsBackToClassicRound() {
+        Learner<String> learner = new LearnerImpl<>(5);
+        List<RecordingAcceptor<String>> acceptors = acceptors(5, learner);
+        FastProposer<String> proposer = new FastProposer<>(1, new ArrayList<>(acceptors));
+        proposer.propose(0, "foo");
+
+        // Another client gets its value to two acceptors first. Neither value can have been
+        // chosen, so we're free to get ours chosen instead.
+        long fastBallot = acceptors.get(0).lastAccept.getProposalNumber();
+        acceptors.get(0).accept(1, new Proposal<>(fastBallot, "bar"));
+        acceptors.get(1).accept(1, new Proposal<>(fastBallot, "bar"));
+        proposer.propose(1, "baz");
+
+        assertEquals("baz", learner.getValue(1));
+        assertEquals(1, proposer.getRecoveryCount());
+    }
+
+    @Test
+    public void recoveryKeepsValueThatMayHaveBeenChosen() {
+        // Three acceptors accepted another client's value in the fast ballot. Had the fifth, which
+        // we can't hear from, done so too, that value would have been chosen, so we must keep it.
+        Learner<String> learner = new LearnerImpl<>(5);
+        List<Acceptor<String>> acceptors = new ArrayList<>(acceptors(4, learner));
+        acceptors.add(new UnreachableAcceptor<>());
+        FastProposer<String> proposer = new FastProposer<>(1, acceptors);
+        proposer.propose(0, "foo");
+
+        long fastBallot = ((RecordingAcceptor<String>) acceptors.get(0)).lastAccept.getProposalNumber();
+        for (int i = 0; i < 3; i++) {
+            acceptors.get(i).accept(1, new Proposal<>(fastBallot, "bar"));
+        }
+        assertFalse(learner.valueFuture(1).isDone());
+        proposer.propose(1, "baz");
+
+        assertEquals("bar", learner.getValue(1));
+        assertEquals(1, proposer.getRecoveryCount());
+    }
+
+    @Test
+    public void leaderRecoversFastBallotLikeFastProposer() {
+        // The first acceptor accepted one client's value in the fast ballot and the next three
+        // another's. Had the fifth accepted the second value too, it would have been chosen, so a
+        // leader taking over must keep it, however the promises happen to be ordered.
+        Learner<String> learner = new LearnerImpl<>(5);
+        List<Acceptor<String>> acceptors = new ArrayList<>(acceptors(4, learner));
+        acceptors.add(new UnreachableAcceptor<>());
+        FastProposer<String> proposer = new FastProposer<>(1, acceptors);
+        proposer.propose(0, "foo");
+
+        long fastBallot = ((RecordingAcceptor<String>) acceptors.get(0)).lastAccept.getProposalNumber();
+        acceptors.get(0).accept(1, new Proposal<>(fastBallot, "bar"));
+        for (int i = 1; i < 4; i++) {
+            acceptors.get(i).accept(1, new Proposal<>(fastBallot, "baz"));
+        }
+        LeaderProposer<String> leader = new LeaderProposer<>(2, acceptors, 1);
+        leader.append("qux");
+
+        assertEquals("baz", learner.getValue(1));
+        assertEquals("qux", learner.getValue(2));
+    }
+
+    @Test
+    public void fastPathResumesAfterRecovery() {
+        Learner<String> learner = new LearnerImpl<>(4);
+        List<RecordingAcceptor<String>> acceptors = acceptors(4, learner);
+        FastProposer<String> proposer = new FastProposer<>(1, new ArrayList<>(acceptors));
+        proposer.propose(0, "foo");
+        long fastBallot = acceptors.get(0).lastAccept.getProposalNumber();
+        acceptors.get(0).accept(1, new Proposal<>(fastBallot, "bar"));
+        acceptors.get(1).accept(1, new Proposal<>(fastBallot, "bar"));
+        proposer.propose(1, "baz");
+        proposer.propose(2, "qux");
+
+        assertEquals("qux", learner.getValue(2));
+        assertEquals(1, proposer.getRecoveryCount());
+        assertTrue(Ballot.isFast(acceptors.get(2).lastAccept.getProposalNumber()));
+        assertTrue(acceptors.get(2).lastAccept.getProposalNumber() > fastBallot);
+    }
+
+    @Test
+    public void slotsWithAcceptedValuesAreProposedClassically() {
+        Learner<String> learner = new LearnerImpl<>(4);
+        List<RecordingAcceptor<String>> acceptors = acceptors(4, learner);
+        acceptors.get(0).accept(4, new Proposal<>(Ballot.of(0, 2), "bar"));
+        FastProposer<String> proposer = new FastProposer<>(1, new ArrayList<>(acceptors));
+        proposer.propose(4, "foo");
+
+        assertEquals("bar", learner.getValue(4));
+        assertFalse(Ballot.isFast(acceptors.get(1).lastAccept.getProposalNumber()));
+        assertEquals(0, proposer.getRecoveryCount());
+    }
+
+    @Test
+    public void fastPathTakesHalfTheMessagesOfClassicPaxos() {
+        List<RecordingAcceptor<String>> fastAcceptors = acceptors(4, new LearnerImpl<>(4));
+        FastProposer<String> fast = new FastProposer<>(1, new ArrayList<>(fastAcceptors));
+        List<RecordingAcceptor<String>> classicAcceptors = acceptors(4, new LearnerImpl<>(4));
+        ProposerImpl<String> classic = new ProposerImpl<>(1, new ArrayList<>(classicAcceptors));
+        for (int i = 0; i < 100; i++) {
+            fast.propose(i, "value" + i);
+            classic.propose(i, "value" + i);
+        }
+
+        // One round of prepares up front, then one message to each acceptor per value; classic
+        // Paxos sends a prepare and an accept to each acceptor per value.
+        assertEquals(4 + 400, fastAcceptors.stream().mapToInt(acceptor -> acceptor.prepares + acceptor.accepts).sum());
+        assertEquals(800, classicAcceptors.stream().mapToInt(acceptor -> acceptor.prepares + acceptor.accepts).sum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesFastQuorumOfEveryAcceptor() {
+        new FastProposer<>(1, new ArrayList<Acceptor<String>>(acceptors(3, new LearnerImpl<>(3))));
+    }
+
+    private static List<RecordingAcceptor<String>> acceptors(int count, Learner<String> learner) {
+        List<RecordingAcceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            acceptors.add(new RecordingAcceptor<>(new AcceptorImpl<>(i, Collections.singletonList(learner))));
+        }
+        return acceptors;
+    }
+
+    private static class RecordingAcceptor<V> implements Acceptor<V> {
+        private final Acceptor<V> delegate;
+        public int prepares = 0;
+        public int accepts = 0;
+        public Proposal<V> lastAccept = null;
+
+        public RecordingAcceptor(Acceptor<V> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> p) {
+            prepares++;
+            return delegate.prepareFrom(firstSlot, p);
+        }
+
+        @Override
+        public boolean accept(long slot, Proposal<V> p) {
+            accepts++;
+            lastAccept = p;
+            return delegate.accept(slot, p);
+        }
+    }
+
+    private static class UnreachableAcceptor<V> implements Acceptor<V> {
+        @Override
+        public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> p) {
+            return PrepareResult.rejected(Ballot.NONE);
+        }
+
+        @Override
+        public boolean accept(long slot, Proposal<V> p) {
+            return false;
+        }
+    }
+}
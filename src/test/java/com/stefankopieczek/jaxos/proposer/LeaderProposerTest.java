@@ -0,0 +1,279 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.acceptor.LeasingAcceptor;
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+import com.stefankopieczek.jaxos.metrics.MetricsSink;
+
+public class LeaderProposerTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Test
+    public void appendFillsConsecutiveSlots() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        List<Acceptor<String>> acceptors = acceptors(3, learner);
+        LeaderProposer<String> leader = new LeaderProposer<>(1, acceptors);
+        assertEquals(0, leader.append("foo"));
+        assertEquals(1, leader.append("bar"));
+        assertEquals(2, leader.append("baz"));
+        assertEquals("foo", learner.getValue(0));
+        assertEquals("bar", learner.getValue(1));
+        assertEquals("baz", learner.getValue(2));
+    }
+
+    @Test
+    public void manyVirtualThreadsAppendConcurrently() throws InterruptedException {
+        int clients = 10000;
+        LearnerImpl<String> learner = new LearnerImpl<>(3);
+        LeaderProposer<String> leader = new LeaderProposer<>(1, acceptors(3, learner));
+        ThreadFactory factory = ExecutionMode.VIRTUAL.threadFactory("client");
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            String value = "value" + i;
+            threads.add(factory.newThread(() -> leader.append(value)));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<String> chosen = new HashSet<>();
+        for (int slot = 0; slot < clients; slot++) {
+            chosen.add(learner.getValue(slot));
+        }
+        assertEquals(clients, chosen.size());
+    }
+
+    @Test
+    public void phase1RunsOnceForAllSlots() {
+        CountingAcceptor<String> acceptor1 = new CountingAcceptor<>(new AcceptorImpl<>(1, Collections.emptyList()));
+        CountingAcceptor<String> acceptor2 = new CountingAcceptor<>(new AcceptorImpl<>(2, Collections.emptyList()));
+        LeaderProposer<String> leader = new LeaderProposer<>(1, Arrays.asList(acceptor1, acceptor2));
+        for (int i = 0; i < 10; i++) {
+            leader.append("value" + i);
+        }
+
+        assertTrue(leader.isLeader());
+        assertEquals(1, acceptor1.prepares);
+        assertEquals(1, acceptor2.prepares);
+        assertEquals(10, acceptor1.accepts);
+        assertEquals(10, acceptor2.accepts);
+    }
+
+    @Test
+    public void thriftyLeaderSendsEachPhaseToAQuorum() {
+        Learner<String> learner = new LearnerImpl<>(5);
+        List<CountingAcceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            acceptors.add(new CountingAcceptor<>(new AcceptorImpl<>(i, Collections.singletonList(learner))));
+        }
+        LeaderProposer<String> leader = new LeaderProposer<>(1, new ArrayList<>(acceptors), 0, Backoff.none(),
+                0, TimeUnit.NANOSECONDS, MetricsSink.none(), true);
+        for (int i = 0; i < 10; i++) {
+            leader.append("value" + i);
+        }
+
+        assertEquals(3, acceptors.stream().mapToInt(acceptor -> acceptor.prepares).sum());
+        assertEquals(30, acceptors.stream().mapToInt(acceptor -> acceptor.accepts).sum());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value" + i, learner.getValue(i));
+        }
+    }
+
+    @Test
+    public void flexibleQuorumsTradeLargerPrepareForSmallerAccept() {
+        // Numbered from zero, so that the learner and the quorum system agree on who is who.
+        QuorumSystem quorums = QuorumSystem.flexible(5, 4, 2);
+        Learner<String> learner = new LearnerImpl<>(quorums);
+        List<CountingAcceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            acceptors.add(new CountingAcceptor<>(new AcceptorImpl<>(i, Collections.singletonList(learner))));
+        }
+        LeaderProposer<String> leader = new LeaderProposer<>(1, new ArrayList<>(acceptors), 0, Backoff.none(),
+                0, TimeUnit.NANOSECONDS, MetricsSink.none(), true, quorums);
+        for (int i = 0; i < 10; i++) {
+            leader.append("value" + i);
+        }
+
+        assertEquals(4, acceptors.stream().mapToInt(acceptor -> acceptor.prepares).sum());
+        assertEquals(20, acceptors.stream().mapToInt(acceptor -> acceptor.accepts).sum());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value" + i, learner.getValue(i));
+        }
+    }
+
+    @Test
+    public void appendSkipsSlotsBoundToEarlierValues() {
+        Learner<String> learner = new LearnerImpl<>(1);
+        Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.singletonList(learner));
+        acceptor.prepare(1, new Proposal<>(1, "old"));
+        acceptor.accept(1, new Proposal<>(1, "old"));
+
+        LeaderProposer<String> leader = new LeaderProposer<>(1, Collections.singletonList(acceptor));
+        assertEquals(0, leader.append("foo"));
+        assertEquals(2, leader.append("bar"));
+        assertEquals("foo", learner.getValue(0));
+        assertEquals("old", learner.getValue(1));
+        assertEquals("bar", learner.getValue(2));
+    }
+
+    @Test
+    public void preemptedLeaderRerunsPhase1() {
+        Learner<String> learner = new LearnerImpl<>(1);
+        CountingAcceptor<String> acceptor = new CountingAcceptor<>(new AcceptorImpl<>(1, Collections.singletonList(learner)));
+        LeaderProposer<String> leader = new LeaderProposer<>(1, Collections.singletonList(acceptor));
+        leader.append("foo");
+
+        // A rival proposer prepares a higher proposal number, deposing our leader.
+        acceptor.prepareFrom(1, new Proposal<>(5, "rival"));
+        int preparesBefore = acceptor.prepares;
+        assertEquals(1, leader.append("bar"));
+        assertEquals("bar", learner.getValue(1));
+        assertTrue(acceptor.prepares > preparesBefore);
+        assertTrue(leader.isLeader());
+    }
+
+    @Test
+    public void proposeInExplicitSlot() {
+        Learner<String> learner = new LearnerImpl<>(1);
+        Acceptor<String> acceptor = new AcceptorImpl<>(1, Collections.singletonList(learner));
+        LeaderProposer<String> leader = new LeaderProposer<>(1, Collections.singletonList(acceptor));
+        leader.propose(7, "foo");
+        assertEquals("foo", learner.getValue(7));
+        assertEquals(8, leader.append("bar"));
+    }
+
+    @Test
+    public void readIndexCoversEverySlotAppended() {
+        LeaderProposer<String> leader = new LeaderProposer<>(1, acceptors(3, new LearnerImpl<>(3)));
+        assertEquals(-1, leader.readIndex());
+        leader.append("foo");
+        leader.append("bar");
+        assertEquals(1, leader.readIndex());
+    }
+
+    @Test
+    public void readIndexChecksLeadershipWithoutAccepting() {
+        CountingAcceptor<String> acceptor = new CountingAcceptor<>(new AcceptorImpl<>(1, Collections.emptyList()));
+        LeaderProposer<String> leader = new LeaderProposer<>(1, Collections.singletonList(acceptor));
+        leader.append("foo");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, leader.readIndex());
+        }
+        assertEquals(4, acceptor.prepares);
+        assertEquals(1, acceptor.accepts);
+    }
+
+    @Test
+    public void readIndexIncludesSlotsChosenByRival() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        List<Acceptor<String>> acceptors = acceptors(3, learner);
+        LeaderProposer<String> leader = new LeaderProposer<>(1, acceptors);
+        leader.append("foo");
+
+        LeaderProposer<String> rival = new LeaderProposer<>(2, acceptors, 1);
+        assertEquals(1, rival.append("bar"));
+        assertEquals(2, rival.append("baz"));
+
+        assertEquals(2, leader.readIndex());
+        assertTrue(leader.isLeader());
+        assertEquals(3, leader.append("qux"));
+        assertEquals("baz", learner.getValue(2));
+    }
+
+    @Test
+    public void readIndexUnderLeaseSendsNothing() {
+        List<CountingAcceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Acceptor<String> leasing = new LeasingAcceptor<>(
+                    new AcceptorImpl<>(i, Collections.emptyList()), 60, TimeUnit.SECONDS);
+            acceptors.add(new CountingAcceptor<>(leasing));
+        }
+        LeaderProposer<String> leader = new LeaderProposer<>(1, new ArrayList<>(acceptors), 0, Backoff.none(),
+                30, TimeUnit.SECONDS);
+        leader.append("foo");
+        leader.append("bar");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, leader.readIndex());
+        }
+        for (CountingAcceptor<String> acceptor : acceptors) {
+            assertEquals(1, acceptor.prepares);
+            assertEquals(2, acceptor.accepts);
+        }
+    }
+
+    @Test
+    public void rivalWaitsOutLeaseBeforeTakingOver() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        List<Acceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acceptors.add(new LeasingAcceptor<>(
+                    new AcceptorImpl<>(i, Collections.singletonList(learner)), 200, TimeUnit.MILLISECONDS));
+        }
+        LeaderProposer<String> leader = new LeaderProposer<>(1, acceptors, 0, Backoff.none(),
+                100, TimeUnit.MILLISECONDS);
+        leader.append("foo");
+
+        long start = System.nanoTime();
+        LeaderProposer<String> rival = new LeaderProposer<>(2, acceptors, 1);
+        assertEquals(1, rival.append("bar"));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Our lease has run out, so the leader has to ask, and finds it has been deposed.
+        assertEquals(1, leader.readIndex());
+        assertEquals("bar", learner.getValue(1));
+    }
+
+    private static List<Acceptor<String>> acceptors(int count, Learner<String> learner) {
+        List<Acceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            acceptors.add(new AcceptorImpl<>(i + 1, Collections.singletonList(learner)));
+        }
+        return acceptors;
+    }
+
+    private static class CountingAcceptor<V> implements Acceptor<V> {
+        private final Acceptor<V> delegate;
+        public int prepares = 0;
+        public int accepts = 0;
+
+        public CountingAcceptor(Acceptor<V> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> p) {
+            prepares++;
+            return delegate.prepareFrom(firstSlot, p);
+        }
+
+        @Override
+        public boolean accept(long slot, Proposal<V> p) {
+            accepts++;
+            return delegate.accept(slot, p);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.stefankopieczek.jaxos.proposer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.acceptor.AsyncAcceptor;
+import com.stefankopieczek.jaxos.acceptor.AsyncAcceptorAdapter;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+
+public class PipelinedProposerTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void appendFillsConsecutiveSlots() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        try (PipelinedProposer<String> proposer = new PipelinedProposer<>(1, acceptors(3, learner), 4)) {
+            List<CompletableFuture<Long>> slots = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                slots.add(proposer.append("value" + i));
+            }
+
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i, slots.get(i).join().longValue());
+                assertEquals("value" + i, learner.getValue(i));
+            }
+        }
+    }
+
+    @Test
+    public void pipelineCanRunOnAVirtualThread() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        try (PipelinedProposer<String> proposer = new PipelinedProposer<>(1, acceptors(3, learner), 4, 0,
+                QuorumSystem.majority(3), ExecutionMode.VIRTUAL)) {
+            for (int i = 0; i < 10; i++) {
+                proposer.append("value" + i);
+            }
+            assertEquals(10, proposer.append("last").join().longValue());
+            assertEquals("value9", learner.getValue(9));
+        }
+    }
+
+    @Test
+    public void fullWindowBlocksAppends() throws InterruptedException {
+        Learner<String> learner = new LearnerImpl<>(1);
+        GatedAcceptor<String> acceptor = new GatedAcceptor<>(adapt(new AcceptorImpl<>(1, Collections.singletonList(learner))));
+        try (PipelinedProposer<String> proposer = new PipelinedProposer<>(1, Collections.singletonList(acceptor), 2)) {
+            acceptor.gate(0);
+            CompletableFuture<Long> first = proposer.append("foo");
+            CompletableFuture<Long> second = proposer.append("bar");
+
+            CompletableFuture<CompletableFuture<Long>> third = new CompletableFuture<>();
+            Thread appender = new Thread(() -> third.complete(proposer.append("baz")));
+            appender.start();
+            appender.join(200);
+            assertFalse(third.isDone());
+
+            acceptor.open(0);
+            assertEquals(0, first.join().longValue());
+            assertEquals(1, second.join().longValue());
+            assertEquals(2, third.join().join().longValue());
+            assertEquals("baz", learner.getValue(2));
+        }
+    }
+
+    @Test
+    public void slotsAreDeliveredInOrder() {
+        Learner<String> learner = new LearnerImpl<>(1);
+        GatedAcceptor<String> acceptor = new GatedAcceptor<>(adapt(new AcceptorImpl<>(1, Collections.singletonList(learner))));
+        try (PipelinedProposer<String> proposer = new PipelinedProposer<>(1, Collections.singletonList(acceptor), 4)) {
+            acceptor.gate(0);
+            CompletableFuture<Long> first = proposer.append("foo");
+            CompletableFuture<Long> second = proposer.append("bar");
+
+            // Slot 1 is chosen, but mustn't be reported until slot 0 has been too.
+            assertEquals("bar", learner.getValue(1));
+            assertFalse(second.isDone());
+
+            acceptor.open(0);
+            assertEquals(1, second.join().longValue());
+            assertTrue(first.isDone());
+        }
+    }
+
+    @Test
+    public void preemptedLeaderRecovers() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        List<AcceptorImpl<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acceptors.add(new AcceptorImpl<>(i + 1, Collections.singletonList(learner)));
+        }
+
+        List<AsyncAcceptor<String>> asyncAcceptors = new ArrayList<>();
+        acceptors.forEach(acceptor -> asyncAcceptors.add(adapt(acceptor)));
+        try (PipelinedProposer<String> proposer = new PipelinedProposer<>(1, asyncAcceptors, 4)) {
+            assertEquals(0, proposer.append("foo").join().longValue());
+
+            // A rival proposer prepares a higher proposal number and gets a value into slot 1.
+            Proposal<String> rival = new Proposal<>(10, "rival");
+            acceptors.forEach(acceptor -> acceptor.prepareFrom(1, rival));
+            acceptors.get(0).accept(1, rival);
+            acceptors.get(1).accept(1, rival);
+
+            assertEquals(2, proposer.append("bar").join().longValue());
+            assertEquals("rival", learner.getValue(1));
+            assertEquals("bar", learner.getValue(2));
+        }
+    }
+
+    @Test
+    public void preemptedLeaderBacksOff() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        List<AcceptorImpl<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acceptors.add(new AcceptorImpl<>(i + 1, Collections.singletonList(learner)));
+        }
+
+        List<AsyncAcceptor<String>> asyncAcceptors = new ArrayList<>();
+        acceptors.forEach(acceptor -> asyncAcceptors.add(adapt(acceptor)));
+        CountingBackoff backoff = new CountingBackoff();
+        try (PipelinedProposer<String> proposer = new PipelinedProposer<>(1, asyncAcceptors, 4, 0,
+                QuorumSystem.majority(3), ExecutionMode.PLATFORM, backoff)) {
+            assertEquals(0, proposer.append("foo").join().longValue());
+            assertEquals(0, backoff.pauses.get());
+
+            // A rival's prepare makes our next accept fail, and our first prepare after it too.
+            acceptors.forEach(acceptor -> acceptor.prepareFrom(1, new Proposal<>(Ballot.of(5, 2), null)));
+            assertEquals(1, proposer.append("bar").join().longValue());
+            assertEquals(2, backoff.pauses.get());
+            assertEquals(2, backoff.resets.get());
+        }
+    }
+
+    @Test
+    public void closeAbandonsStuckPhaseOne() {
+        // Acceptors that never answer a prepare.
+        List<AsyncAcceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acceptors.add(new AsyncAcceptor<String>() {
+                @Override
+                public CompletableFuture<PrepareResult<MultiPromise<String>>> prepareFrom(long firstSlot,
+                                                                                          Proposal<String> p) {
+                    return new CompletableFuture<>();
+                }
+
+                @Override
+                public CompletableFuture<Boolean> accept(long slot, Proposal<String> p) {
+                    return CompletableFuture.completedFuture(false);
+                }
+            });
+        }
+
+        PipelinedProposer<String> proposer = new PipelinedProposer<>(1, acceptors, 4);
+        CompletableFuture<Long> stuck = proposer.append("foo");
+        proposer.close();
+        assertTrue(stuck.isCompletedExceptionally());
+    }
+
+    @Test
+    public void rivalsIdenticalCommandIsNotTakenForOurs() {
+        Learner<String> learner = new LearnerImpl<>(3);
+        List<AcceptorImpl<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acceptors.add(new AcceptorImpl<>(i + 1, Collections.singletonList(learner)));
+        }
+
+        List<AsyncAcceptor<String>> asyncAcceptors = new ArrayList<>();
+        acceptors.forEach(acceptor -> asyncAcceptors.add(adapt(acceptor)));
+        try (PipelinedProposer<String> proposer = new PipelinedProposer<>(1, asyncAcceptors, 4)) {
+            assertEquals(0, proposer.append("foo").join().longValue());
+
+            // Another client submits the same command through a rival, which gets it into slot 1.
+            Proposal<String> rival = new Proposal<>(10, "bar");
+            acceptors.forEach(acceptor -> acceptor.prepareFrom(1, rival));
+            acceptors.get(0).accept(1, rival);
+            acceptors.get(1).accept(1, rival);
+
+            // Our copy of the command must get a slot of its own.
+            assertEquals(2, proposer.append("bar").join().longValue());
+            assertEquals("bar", learner.getValue(1));
+            assertEquals("bar", learner.getValue(2));
+        }
+    }
+
+    @Test
+    public void appendAfterCloseFails() {
+        Learner<String> learner = new LearnerImpl<>(1);
+        PipelinedProposer<String> proposer = new PipelinedProposer<>(1, acceptors(1, learner), 1);
+        proposer.close();
+        assertTrue(proposer.append("foo").isCompletedExceptionally());
+    }
+
+    private List<AsyncAcceptor<String>> acceptors(int count, Learner<String> learner) {
+        List<AsyncAcceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            acceptors.add(adapt(new AcceptorImpl<>(i + 1, Collections.singletonList(learner))));
+        }
+        return acceptors;
+    }
+
+    private AsyncAcceptor<String> adapt(AcceptorImpl<String> acceptor) {
+        return new AsyncAcceptorAdapter<>(acceptor, executor);
+    }
+
+    private static class CountingBackoff extends Backoff {
+        private final AtomicInteger pauses = new AtomicInteger();
+        private final AtomicInteger resets = new AtomicInteger();
+
+        private CountingBackoff() {
+            super(0, 0, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void pause() {
+            pauses.incrementAndGet();
+        }
+
+        @Override
+        public void reset() {
+            resets.incrementAndGet();
+        }
+    }
+
+    // Holds back accepts for chosen slots until the test lets them through.
+    private static class GatedAcceptor<V> implements AsyncAcceptor<V> {
+        private final AsyncAcceptor<V> delegate;
+        private final Map<Long, CompletableFuture<Void>> gates = new ConcurrentHashMap<>();
+
+        private GatedAcceptor(AsyncAcceptor<V> delegate) {
+            this.delegate = delegate;
+        }
+
+        private void gate(long slot) {
+            gates.put(slot, new CompletableFuture<>());
+        }
+
+        private void open(long slot) {
+            gates.get(slot).complete(null);
+        }
+
+        @Override
+        public CompletableFuture<PrepareResult<MultiPromise<V>>> prepareFrom(long firstSlot, Proposal<V> p) {
+            return delegate.prepareFrom(firstSlot, p);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> accept(long slot, Proposal<V> p) {
+            CompletableFuture<Void> gate = gates.getOrDefault(slot, CompletableFuture.completedFuture(null));
+            return gate.thenCompose(ignored -> delegate.accept(slot, p));
+        }
+    }
+}
@@ -6,13 +6,27 @@ import static org.junit.Assert.assertTrue;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
 import com.stefankopieczek.jaxos.core.Proposal;
-import com.stefankopieczek.jaxos.core.Promise;
+import com.stefankopieczek.jaxos.core.QuorumSystem;
+import com.stefankopieczek.jaxos.metrics.MetricsSink;
 
 public class ProposerTest {
     private static final Proposal<String> proposal1 = new Proposal<>(20, "bar");
@@ -41,11 +55,30 @@ public class ProposerTest {
         Proposer<String> proposer = new ProposerImpl<>(1, Collections.singletonList(acceptor));
         proposer.propose("foo");
         assertEquals("foo", acceptor.lastPrepare.getValue());
-        assertEquals(proposal1.getProposalNumber() + 1, acceptor.lastPrepare.getProposalNumber());
+        assertEquals(Ballot.after(proposal1.getProposalNumber(), 1), acceptor.lastPrepare.getProposalNumber());
     }
 
     @Test
-    public void phase1RetryStopsAtQuorum() {
+    public void phase1JumpsStraightPastRejectingBallot() {
+        DummyAcceptor<String> acceptor = new DummyAcceptor<>();
+        acceptor.prepare(new Proposal<>(Ballot.of(1000, 2), "bar"));
+        ProposerImpl<String> proposer = new ProposerImpl<>(1, Collections.singletonList(acceptor));
+        proposer.propose("foo");
+        assertEquals(Ballot.of(1001, 1), acceptor.lastPrepare.getProposalNumber());
+        assertEquals(1, proposer.getRetryCount());
+    }
+
+    @Test
+    public void retriesAreCounted() {
+        DummyAcceptor<String> acceptor = new DummyAcceptor<>();
+        acceptor.prepare(proposal1);
+        ProposerImpl<String> proposer = new ProposerImpl<>(1, Collections.singletonList(acceptor));
+        proposer.propose("foo");
+        assertEquals(1, proposer.getRetryCount());
+    }
+
+    @Test
+    public void phase1RetryJumpsPastHighestRejection() {
         DummyAcceptor<String> acceptor1 = new DummyAcceptor<>();
         DummyAcceptor<String> acceptor2 = new DummyAcceptor<>();
         DummyAcceptor<String> acceptor3 = new DummyAcceptor<>();
@@ -54,9 +87,9 @@ public class ProposerTest {
         acceptor3.prepare(proposal3);
         Proposer<String> proposer = new ProposerImpl<>(1, Arrays.asList(acceptor1, acceptor2, acceptor3));
         proposer.propose("foo");
-        assertEquals(proposal2.getProposalNumber() + 1, acceptor1.lastPrepare.getProposalNumber());
-        assertEquals(proposal2.getProposalNumber() + 1, acceptor2.lastPrepare.getProposalNumber());
-        assertEquals(proposal3.getProposalNumber(), acceptor3.lastPrepare.getProposalNumber());
+        assertEquals(Ballot.after(proposal3.getProposalNumber(), 1), acceptor1.lastPrepare.getProposalNumber());
+        assertEquals(Ballot.after(proposal3.getProposalNumber(), 1), acceptor2.lastPrepare.getProposalNumber());
+        assertEquals(Ballot.after(proposal3.getProposalNumber(), 1), acceptor3.lastPrepare.getProposalNumber());
     }
 
     @Test
@@ -79,7 +112,7 @@ public class ProposerTest {
         Proposer<String> proposer = new ProposerImpl<>(1, Collections.singletonList(acceptor));
         proposer.propose("foo");
         assertEquals(proposal1.getValue(), acceptor.lastAccept.getValue());
-        assertEquals(proposal1.getProposalNumber() + 1, acceptor.lastAccept.getProposalNumber());
+        assertEquals(Ballot.after(proposal1.getProposalNumber(), 1), acceptor.lastAccept.getProposalNumber());
     }
 
     @Test
@@ -106,15 +139,15 @@ public class ProposerTest {
         proposer.propose("foo");
 
         assertEquals(proposal3.getValue(), acceptor1.lastAccept.getValue());
-        assertEquals(proposal3.getProposalNumber() + 1, acceptor1.lastAccept.getProposalNumber());
+        assertEquals(Ballot.after(proposal3.getProposalNumber(), 1), acceptor1.lastAccept.getProposalNumber());
         assertEquals(proposal3.getValue(), acceptor2.lastAccept.getValue());
-        assertEquals(proposal3.getProposalNumber() + 1, acceptor2.lastAccept.getProposalNumber());
+        assertEquals(Ballot.after(proposal3.getProposalNumber(), 1), acceptor2.lastAccept.getProposalNumber());
         assertEquals(proposal3.getValue(), acceptor3.lastAccept.getValue());
-        assertEquals(proposal3.getProposalNumber() + 1, acceptor3.lastAccept.getProposalNumber());
+        assertEquals(Ballot.after(proposal3.getProposalNumber(), 1), acceptor3.lastAccept.getProposalNumber());
         assertEquals(proposal3.getValue(), acceptor4.lastAccept.getValue());
-        assertEquals(proposal3.getProposalNumber() + 1, acceptor4.lastAccept.getProposalNumber());
+        assertEquals(Ballot.after(proposal3.getProposalNumber(), 1), acceptor4.lastAccept.getProposalNumber());
         assertEquals(proposal3.getValue(), acceptor5.lastAccept.getValue());
-        assertEquals(proposal3.getProposalNumber() + 1, acceptor5.lastAccept.getProposalNumber());
+        assertEquals(Ballot.after(proposal3.getProposalNumber(), 1), acceptor5.lastAccept.getProposalNumber());
     }
 
     @Test
@@ -130,7 +163,7 @@ public class ProposerTest {
         // (5) Test Proposer sends accept request and is accepted.
         DummyAcceptor<String> acceptor = new DummyAcceptor<String>() {
             @Override
-            public boolean accept(Proposal<String> p) {
+            public boolean accept(long slot, Proposal<String> p) {
                 if (p.getProposalNumber() <= 20) {
                     lastPrepare = proposal1;
                     return false;
@@ -144,7 +177,7 @@ public class ProposerTest {
 
         Proposer<String> proposer = new ProposerImpl<>(1, Collections.singletonList(acceptor));
         proposer.propose("foo");
-        assertEquals(proposal1.getProposalNumber() + 1, acceptor.lastAccept.getProposalNumber());
+        assertEquals(Ballot.after(proposal1.getProposalNumber(), 1), acceptor.lastAccept.getProposalNumber());
         assertEquals("foo", acceptor.lastAccept.getValue());
     }
 
@@ -154,7 +187,7 @@ public class ProposerTest {
         DummyAcceptor<String> acceptor2 = new DummyAcceptor<>();
         DummyAcceptor<String> acceptor3 = new DummyAcceptor<String>() {
             @Override
-            public boolean accept(Proposal<String> p) {
+            public boolean accept(long slot, Proposal<String> p) {
                 // Accept nothing! Mwahahaha!
                 return false;
             }
@@ -170,28 +203,168 @@ public class ProposerTest {
         assertEquals("foo", acceptor2.lastAccept.getValue());
     }
 
+    @Test
+    public void thriftyProposerAsksOnlyAQuorum() {
+        List<DummyAcceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            acceptors.add(new DummyAcceptor<>());
+        }
+        Proposer<String> proposer = thrifty(acceptors);
+        proposer.propose("foo");
+        assertEquals(3, acceptors.stream().mapToInt(acceptor -> acceptor.prepares).sum());
+        assertEquals(3, acceptors.stream().mapToInt(acceptor -> acceptor.accepts).sum());
+    }
+
+    @Test
+    public void thriftyProposerFallsBackWhenQuorumRejects() {
+        // Nothing is known about the acceptors yet, so the first two are asked first.
+        DummyAcceptor<String> acceptor1 = new DummyAcceptor<>();
+        acceptor1.prepare(proposal1);
+        DummyAcceptor<String> acceptor2 = new DummyAcceptor<>();
+        DummyAcceptor<String> acceptor3 = new DummyAcceptor<>();
+        Proposer<String> proposer = thrifty(Arrays.asList(acceptor1, acceptor2, acceptor3));
+        proposer.propose("foo");
+        assertEquals(2, acceptor1.prepares);
+        assertEquals(1, acceptor2.prepares);
+        assertEquals(1, acceptor3.prepares);
+    }
+
+    @Test
+    public void thriftyProposerSkipsFailingAcceptor() {
+        DummyAcceptor<String> acceptor1 = new DummyAcceptor<String>() {
+            @Override
+            public PrepareResult<MultiPromise<String>> prepareFrom(long firstSlot, Proposal<String> p) {
+                prepares++;
+                throw new IllegalStateException("Unreachable");
+            }
+        };
+        DummyAcceptor<String> acceptor2 = new DummyAcceptor<>();
+        DummyAcceptor<String> acceptor3 = new DummyAcceptor<>();
+        Proposer<String> proposer = thrifty(Arrays.asList(acceptor1, acceptor2, acceptor3));
+        proposer.propose("foo");
+
+        // Having failed, the first acceptor drops to the back and isn't asked to accept.
+        assertEquals(1, acceptor1.prepares);
+        assertEquals(0, acceptor1.accepts);
+        assertEquals("foo", acceptor2.lastAccept.getValue());
+        assertEquals("foo", acceptor3.lastAccept.getValue());
+    }
+
+    @Test
+    public void thriftyProposerAsksFirstQuorumAtOnce() {
+        // The first two acceptors each wait for the other to be asked, so asking one at a time
+        // would stall until the fallback timeout.
+        CyclicBarrier bothAsked = new CyclicBarrier(2);
+        DummyAcceptor<String> acceptor1 = waitingFor(bothAsked);
+        DummyAcceptor<String> acceptor2 = waitingFor(bothAsked);
+        DummyAcceptor<String> acceptor3 = new DummyAcceptor<>();
+        Proposer<String> proposer = new ProposerImpl<>(1, Arrays.asList(acceptor1, acceptor2, acceptor3),
+                Backoff.none(), MetricsSink.none(), true, QuorumSystem.majority(3), 1, TimeUnit.MINUTES);
+        proposer.propose("foo");
+
+        assertEquals(1, acceptor1.prepares);
+        assertEquals(1, acceptor2.prepares);
+        assertEquals(0, acceptor3.prepares);
+    }
+
+    @Test
+    public void thriftyProposerFallsBackWhenAcceptorIsSlow() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        DummyAcceptor<String> acceptor1 = new DummyAcceptor<String>() {
+            @Override
+            public PrepareResult<MultiPromise<String>> prepareFrom(long firstSlot, Proposal<String> p) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.prepareFrom(firstSlot, p);
+            }
+        };
+        DummyAcceptor<String> acceptor2 = new DummyAcceptor<>();
+        DummyAcceptor<String> acceptor3 = new DummyAcceptor<>();
+        Proposer<String> proposer = new ProposerImpl<>(1, Arrays.asList(acceptor1, acceptor2, acceptor3),
+                Backoff.none(), MetricsSink.none(), true, QuorumSystem.majority(3), 50, TimeUnit.MILLISECONDS);
+        proposer.propose("foo");
+        release.countDown();
+
+        assertEquals("foo", acceptor2.lastAccept.getValue());
+        assertEquals("foo", acceptor3.lastAccept.getValue());
+    }
+
+    @Test
+    public void thriftyProposerSendsOnThreadsOfItsExecutionMode() {
+        List<Boolean> virtual = new CopyOnWriteArrayList<>();
+        List<DummyAcceptor<String>> acceptors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acceptors.add(new DummyAcceptor<String>() {
+                @Override
+                public boolean accept(long slot, Proposal<String> p) {
+                    virtual.add(Thread.currentThread().isVirtual());
+                    return super.accept(slot, p);
+                }
+            });
+        }
+
+        ProposerImpl<String> proposer = new ProposerImpl<>(1, new ArrayList<>(acceptors), Backoff.none(),
+                MetricsSink.none(), true, QuorumSystem.majority(3), 1, TimeUnit.MINUTES, ExecutionMode.VIRTUAL);
+        proposer.propose("foo");
+        proposer.close();
+        assertEquals(Arrays.asList(true, true), virtual);
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void closedThriftyProposerRefusesToPropose() {
+        ProposerImpl<String> proposer = new ProposerImpl<>(1, Arrays.asList(new DummyAcceptor<>(),
+                new DummyAcceptor<>(), new DummyAcceptor<>()), Backoff.none(), MetricsSink.none(), true);
+        proposer.close();
+        proposer.propose("foo");
+    }
+
+    private static DummyAcceptor<String> waitingFor(CyclicBarrier barrier) {
+        return new DummyAcceptor<String>() {
+            @Override
+            public PrepareResult<MultiPromise<String>> prepareFrom(long firstSlot, Proposal<String> p) {
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.prepareFrom(firstSlot, p);
+            }
+        };
+    }
+
+    private static Proposer<String> thrifty(List<? extends Acceptor<String>> acceptors) {
+        return new ProposerImpl<>(1, new ArrayList<>(acceptors), Backoff.none(), MetricsSink.none(), true);
+    }
+
     private static class DummyAcceptor<V> implements Acceptor<V> {
         public Proposal<V> lastPrepare = null;
         public Proposal<V> lastAccept = null;
+        public int prepares = 0;
+        public int accepts = 0;
 
         @Override
-        public Optional<Promise<V>> prepare(Proposal<V> proposal) {
+        public PrepareResult<MultiPromise<V>> prepareFrom(long firstSlot, Proposal<V> proposal) {
+            prepares++;
             if (lastPrepare == null || proposal.getProposalNumber() > lastPrepare.getProposalNumber()) {
                 lastPrepare = proposal;
-                Promise<V> promise;
+                Map<Long, Proposal<V>> accepted;
                 if (lastAccept != null) {
-                    promise = Promise.withProposal(lastAccept);
+                    accepted = Collections.singletonMap(firstSlot, lastAccept);
                 } else {
-                    promise = Promise.withoutProposal();
+                    accepted = Collections.emptyMap();
                 }
-                return Optional.of(promise);
+                return PrepareResult.promised(new MultiPromise<>(firstSlot, accepted));
             } else {
-                return Optional.empty();
+                return PrepareResult.rejected(lastPrepare.getProposalNumber());
             }
         }
 
         @Override
-        public boolean accept(Proposal<V> p) {
+        public boolean accept(long slot, Proposal<V> p) {
+            accepts++;
             lastAccept = p;
             return true;
         }
@@ -0,0 +1,241 @@
+package com.stefankopieczek.jaxos.storage;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class WriteAheadLogTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysRecordsInOrder() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("log");
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> {});
+            log.append(bytes("foo"));
+            log.awaitDurable(log.append(bytes("bar")));
+        }
+
+        assertEquals(listOf("foo", "bar"), replay(file));
+    }
+
+    @Test
+    public void appendsAfterReplay() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("log");
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> {});
+            log.awaitDurable(log.append(bytes("foo")));
+        }
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> {});
+            log.awaitDurable(log.append(bytes("bar")));
+        }
+
+        assertEquals(listOf("foo", "bar"), replay(file));
+    }
+
+    @Test
+    public void largeRecords() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("log");
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 300000; i++) {
+            large.append((char) ('a' + (i % 26)));
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> {});
+            for (int i = 0; i < 10; i++) {
+                log.append(bytes(large.toString()));
+            }
+            log.awaitDurable(log.append(bytes("end")));
+        }
+
+        List<String> records = replay(file);
+        assertEquals(11, records.size());
+        assertEquals(large.toString(), records.get(9));
+        assertEquals("end", records.get(10));
+    }
+
+    @Test
+    public void discardsTornTail() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("log");
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> {});
+            log.awaitDurable(log.append(bytes("foo")));
+            log.awaitDurable(log.append(bytes("bar")));
+        }
+
+        // Corrupt the final byte of the last record, as if we crashed part way through writing it.
+        try (FileChannel channel = FileChannel.open(onlySegment(file), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), channel.size() - 1);
+        }
+
+        assertEquals(listOf("foo"), replay(file));
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> {});
+            log.awaitDurable(log.append(bytes("baz")));
+        }
+        assertEquals(listOf("foo", "baz"), replay(file));
+    }
+
+    @Test
+    public void discardsTruncatedTail() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("log");
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> {});
+            log.awaitDurable(log.append(bytes("foo")));
+            log.awaitDurable(log.append(bytes("bar")));
+        }
+
+        try (FileChannel channel = FileChannel.open(onlySegment(file), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2);
+        }
+
+        assertEquals(listOf("foo"), replay(file));
+    }
+
+    @Test
+    public void oneSyncCoversEarlierAppends() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("log");
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> {});
+            long first = log.append(bytes("foo"));
+            long second = log.append(bytes("bar"));
+            long third = log.append(bytes("baz"));
+            log.awaitDurable(third);
+            log.awaitDurable(first);
+            log.awaitDurable(second);
+            assertEquals(1, log.getSyncCount());
+        }
+    }
+
+    @Test
+    public void concurrentAppends() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("log");
+        int numThreads = 8;
+        int recordsPerThread = 50;
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> {});
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final int threadId = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < recordsPerThread; i++) {
+                        log.awaitDurable(log.append(bytes(threadId + ":" + i)));
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+        }
+
+        assertEquals(numThreads * recordsPerThread, replay(file).size());
+    }
+
+    @Test
+    public void rollsSegments() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("log");
+        try (WriteAheadLog log = new WriteAheadLog(directory, 8)) {
+            log.replay(0, record -> {});
+            for (int i = 0; i < 5; i++) {
+                log.awaitDurable(log.append(bytes("record" + i)));
+            }
+            assertEquals(6, log.getSegmentCount());
+        }
+
+        assertEquals(listOf("record0", "record1", "record2", "record3", "record4"), replay(directory));
+    }
+
+    @Test
+    public void replayFromOffset() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("log");
+        long offset;
+        try (WriteAheadLog log = new WriteAheadLog(directory, 8)) {
+            log.replay(0, record -> {});
+            log.awaitDurable(log.append(bytes("foo")));
+            log.awaitDurable(log.append(bytes("bar")));
+            offset = log.appendedOffset();
+            log.awaitDurable(log.append(bytes("baz")));
+        }
+
+        List<String> records = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(directory, 8)) {
+            log.replay(offset, record -> records.add(StandardCharsets.UTF_8.decode(record).toString()));
+        }
+        assertEquals(listOf("baz"), records);
+    }
+
+    @Test
+    public void deleteBeforeOffset() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("log");
+        try (WriteAheadLog log = new WriteAheadLog(directory, 8)) {
+            log.replay(0, record -> {});
+            log.awaitDurable(log.append(bytes("foo")));
+            log.awaitDurable(log.append(bytes("bar")));
+            long offset = log.appendedOffset();
+            log.awaitDurable(log.append(bytes("baz")));
+            assertEquals(4, log.getSegmentCount());
+
+            log.deleteBefore(offset);
+            assertEquals(2, log.getSegmentCount());
+        }
+    }
+
+    private static Path onlySegment(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.collect(Collectors.toList());
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    private static List<String> replay(Path file) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.replay(0, record -> records.add(StandardCharsets.UTF_8.decode(record).toString()));
+        }
+        return records;
+    }
+
+    private static ByteBuffer bytes(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
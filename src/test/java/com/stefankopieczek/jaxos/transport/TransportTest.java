@@ -0,0 +1,349 @@
+package com.stefankopieczek.jaxos.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import com.stefankopieczek.jaxos.codec.StringCodec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.stefankopieczek.jaxos.acceptor.Acceptor;
+import com.stefankopieczek.jaxos.acceptor.AcceptorImpl;
+import com.stefankopieczek.jaxos.acceptor.AsyncAcceptor;
+import com.stefankopieczek.jaxos.core.Ballot;
+import com.stefankopieczek.jaxos.core.ExecutionMode;
+import com.stefankopieczek.jaxos.core.MultiPromise;
+import com.stefankopieczek.jaxos.core.PrepareResult;
+import com.stefankopieczek.jaxos.core.Proposal;
+import com.stefankopieczek.jaxos.election.HeartbeatElection;
+import com.stefankopieczek.jaxos.learner.Learner;
+import com.stefankopieczek.jaxos.learner.LearnerImpl;
+import com.stefankopieczek.jaxos.proposer.AsyncProposerImpl;
+import com.stefankopieczek.jaxos.proposer.LeaderProposer;
+import com.stefankopieczek.jaxos.proposer.Proposer;
+import com.stefankopieczek.jaxos.proposer.ProposerImpl;
+
+public class TransportTest {
+    private static final int NUM_ACCEPTORS = 3;
+
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    private final List<PaxosServer<String>> servers = new ArrayList<>();
+    private TransportClient<String> client;
+    private LearnerImpl<String> learner;
+    private PaxosServer<String> learnerServer;
+    private List<InetSocketAddress> acceptorAddresses;
+
+    @Before
+    public void setUp() throws IOException {
+        client = new TransportClient<>(new StringCodec(), 2, TimeUnit.SECONDS);
+        learner = new LearnerImpl<>(NUM_ACCEPTORS);
+        learnerServer = startServer();
+        learnerServer.serveLearner(learner);
+
+        acceptorAddresses = new ArrayList<>();
+        for (int i = 1; i <= NUM_ACCEPTORS; i++) {
+            PaxosServer<String> server = startServer();
+            Learner<String> remoteLearner = client.learner(learnerServer.getAddress());
+            server.serveAcceptor(new AcceptorImpl<>(i, Collections.singletonList(remoteLearner)));
+            acceptorAddresses.add(server.getAddress());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        servers.forEach(server -> server.close());
+    }
+
+    @Test
+    public void singleDecreeOverNetwork() {
+        Proposer<String> proposer = new ProposerImpl<>(1, remoteAcceptors());
+        proposer.propose("foo");
+        assertEquals("foo", learner.getValue());
+        assertEquals("foo", client.learner(learnerServer.getAddress()).getValue());
+    }
+
+    @Test
+    public void distinguishedLearnerBroadcastsChosenValues() throws IOException {
+        LearnerImpl<String> follower = new LearnerImpl<>(NUM_ACCEPTORS);
+        PaxosServer<String> followerServer = startServer();
+        followerServer.serveLearner(follower);
+
+        // Acceptors already report to learnerServer, so have its learner pass on what it learns.
+        learner = new LearnerImpl<>(NUM_ACCEPTORS,
+                Collections.singletonList(client.learner(followerServer.getAddress())));
+        learnerServer.serveLearner(learner);
+
+        new ProposerImpl<>(1, remoteAcceptors()).propose(3, "foo");
+        assertEquals("foo", follower.getValue(3));
+    }
+
+    @Test
+    public void virtualThreadServerAnswersManyWaitingClients() throws Exception {
+        PaxosServer<String> server = new PaxosServer<>(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new StringCodec(), ExecutionMode.VIRTUAL);
+        servers.add(server);
+        server.serveLearner(learner);
+
+        List<CompletableFuture<String>> waiting = new ArrayList<>();
+        for (int slot = 0; slot < 1000; slot++) {
+            waiting.add(client.learner(server.getAddress()).valueFuture(slot));
+        }
+
+        LeaderProposer<String> leader = new LeaderProposer<>(1, remoteAcceptors());
+        for (int slot = 0; slot < 1000; slot++) {
+            leader.append("value" + slot);
+        }
+        for (int slot = 0; slot < 1000; slot++) {
+            assertEquals("value" + slot, waiting.get(slot).join());
+        }
+    }
+
+    @Test
+    public void fastBallotsCrossTheNetworkIntact() {
+        RemoteAcceptor<String> acceptor = client.acceptor(acceptorAddresses.get(0));
+        long fast = Ballot.fast(1, 1);
+        assertTrue(acceptor.prepareFrom(0, new Proposal<>(fast, null)).isPromised());
+        assertTrue(acceptor.accept(0, new Proposal<>(fast, "foo")));
+        assertFalse(acceptor.accept(0, new Proposal<>(fast, "bar")));
+
+        // A fast ballot outranks the classic ballots of its round.
+        PrepareResult<MultiPromise<String>> rejected = acceptor.prepareFrom(0, new Proposal<>(Ballot.of(1, 2), null));
+        assertFalse(rejected.isPromised());
+        assertEquals(fast, rejected.getPromisedBallot());
+
+        Proposal<String> reported = acceptor.prepareFrom(0, new Proposal<>(Ballot.of(2, 2), null))
+                .getPromise().getAcceptedProposals().get(0L);
+        assertEquals(fast, reported.getProposalNumber());
+        assertEquals("foo", reported.getValue());
+    }
+
+    @Test
+    public void replicatedLogOverNetwork() {
+        LeaderProposer<String> leader = new LeaderProposer<>(1, remoteAcceptors());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, leader.append("value" + i));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("value" + i, learner.getValue(i));
+        }
+    }
+
+    @Test
+    public void asyncProposerOverNetwork() {
+        List<AsyncAcceptor<String>> acceptors = new ArrayList<>();
+        for (InetSocketAddress address : acceptorAddresses) {
+            acceptors.add(client.acceptor(address).async());
+        }
+
+        new AsyncProposerImpl<>(1, acceptors).propose(4, "bar");
+        assertEquals("bar", learner.getValue(4));
+    }
+
+    @Test
+    public void heartbeatsOverNetwork() {
+        HeartbeatElection follower = new HeartbeatElection(2, Collections.emptyList(), 10, 50, TimeUnit.MILLISECONDS);
+        learnerServer.serveElection(follower);
+        HeartbeatElection leader = new HeartbeatElection(1,
+                Collections.singletonList(client.heartbeatListener(learnerServer.getAddress())),
+                10, 50, TimeUnit.MILLISECONDS);
+        try {
+            leader.awaitLeadership();
+            assertEquals(1, follower.getLeader());
+            assertFalse(follower.isLeader());
+        } finally {
+            leader.close();
+            follower.close();
+        }
+    }
+
+    @Test
+    public void pipelinedRequestsShareConnection() {
+        AsyncAcceptor<String> acceptor = client.acceptor(acceptorAddresses.get(0)).async();
+        acceptor.prepareFrom(0, new Proposal<>(1, "foo")).join();
+
+        List<CompletableFuture<Boolean>> responses = new ArrayList<>();
+        for (int slot = 0; slot < 1000; slot++) {
+            responses.add(acceptor.accept(slot, new Proposal<>(1, "value" + slot)));
+        }
+        for (CompletableFuture<Boolean> response : responses) {
+            assertTrue(response.join());
+        }
+
+        PrepareResult<MultiPromise<String>> promise = acceptor.prepareFrom(0, new Proposal<>(2, "foo")).join();
+        assertTrue(promise.isPromised());
+        assertEquals(1000, promise.getPromise().getAcceptedProposals().size());
+        assertEquals("value999", promise.getPromise().getAcceptedProposals().get(999L).getValue());
+    }
+
+    @Test
+    public void rejectionsAreReported() {
+        Acceptor<String> acceptor = client.acceptor(acceptorAddresses.get(0));
+        assertTrue(acceptor.prepare(new Proposal<>(5, "foo")).isPromised());
+        PrepareResult<?> rejection = acceptor.prepare(new Proposal<>(4, "foo"));
+        assertFalse(rejection.isPromised());
+        assertEquals(5, rejection.getPromisedBallot());
+        assertFalse(acceptor.accept(new Proposal<>(4, "foo")));
+    }
+
+    @Test
+    public void unreachableAcceptorDoesNotPreventConsensus() throws IOException {
+        PaxosServer<String> doomed = startServer();
+        InetSocketAddress doomedAddress = doomed.getAddress();
+        doomed.close();
+
+        List<Acceptor<String>> acceptors = remoteAcceptors();
+        acceptors.remove(2);
+        acceptors.add(client.acceptor(doomedAddress));
+        learner = new LearnerImpl<>(NUM_ACCEPTORS);
+        learnerServer.serveLearner(learner);
+
+        new ProposerImpl<>(1, acceptors).propose("foo");
+        assertEquals("foo", learner.getValue());
+        assertFalse(client.acceptor(doomedAddress).prepare(new Proposal<>(1, "foo")).isPromised());
+    }
+
+    @Test
+    public void silentNodeDoesNotHoldUpOtherNodes() throws IOException {
+        // A listener that never accepts, with its backlog filled, so that connecting to it stalls.
+        try (ServerSocketChannel silent = ServerSocketChannel.open()) {
+            silent.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+            List<SocketChannel> backlog = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                SocketChannel socket = SocketChannel.open();
+                socket.configureBlocking(false);
+                socket.connect(silent.getLocalAddress());
+                backlog.add(socket);
+            }
+
+            long start = System.nanoTime();
+            CompletableFuture<Boolean> stalled = client.acceptor((InetSocketAddress) silent.getLocalAddress())
+                    .async().accept(0, new Proposal<>(1, "foo"));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            assertTrue(client.acceptor(acceptorAddresses.get(0)).accept(0, new Proposal<>(1, "bar")));
+            assertFalse(stalled.isDone());
+            assertTrue(stalled.handle((result, error) -> error != null).join());
+
+            for (SocketChannel socket : backlog) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void oversizedFrameClosesOnlyThatConnection() throws IOException {
+        try (SocketChannel socket = SocketChannel.open(acceptorAddresses.get(0))) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 1);
+            header.putInt(Integer.MAX_VALUE).put(MessageCodec.ACCEPT).flip();
+            socket.write(header);
+            assertEquals(-1, socket.read(ByteBuffer.allocate(1)));
+        }
+        assertTrue(client.acceptor(acceptorAddresses.get(0)).accept(0, new Proposal<>(1, "foo")));
+    }
+
+    @Test
+    public void malformedRequestGetsErrorReply() throws IOException {
+        try (SocketChannel socket = SocketChannel.open(acceptorAddresses.get(0))) {
+            // An accept for slot 0 whose proposal is cut short.
+            ByteBuffer request = ByteBuffer.allocate(Integer.BYTES + 3);
+            request.putInt(3).put(MessageCodec.ACCEPT).put((byte) 7).put((byte) 0).flip();
+            socket.write(request);
+
+            ByteBuffer response = readFrame(socket);
+            assertEquals(MessageCodec.ERROR, response.get());
+            assertEquals(7, response.get());
+        }
+        assertTrue(client.acceptor(acceptorAddresses.get(0)).accept(0, new Proposal<>(1, "foo")));
+    }
+
+    @Test
+    public void requestWithoutHeaderClosesConnection() throws IOException {
+        try (SocketChannel socket = SocketChannel.open(acceptorAddresses.get(0))) {
+            ByteBuffer request = ByteBuffer.allocate(Integer.BYTES);
+            request.putInt(0).flip();
+            socket.write(request);
+            assertEquals(-1, socket.read(ByteBuffer.allocate(1)));
+        }
+    }
+
+    @Test
+    public void malformedResponseFailsOnlyThatConnection() throws IOException {
+        try (ServerSocketChannel garbled = ServerSocketChannel.open()) {
+            garbled.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            CompletableFuture<Boolean> response = client.acceptor((InetSocketAddress) garbled.getLocalAddress())
+                    .async().accept(0, new Proposal<>(1, "foo"));
+
+            // A response with a type but no request id.
+            try (SocketChannel socket = garbled.accept()) {
+                readFrame(socket);
+                ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + 1);
+                frame.putInt(1).put(MessageCodec.RESPONSE).flip();
+                socket.write(frame);
+
+                // The request fails as soon as the connection drops, not when it times out.
+                Throwable error = response.handle((result, e) -> e).join();
+                assertTrue(error.getCause() instanceof IOException);
+            }
+        }
+        assertTrue(client.acceptor(acceptorAddresses.get(0)).accept(0, new Proposal<>(1, "foo")));
+    }
+
+    @Test
+    public void errorsArePropagated() {
+        // This server hosts no acceptor, so it should refuse acceptor requests.
+        RemoteAcceptor<String> acceptor = client.acceptor(learnerServer.getAddress());
+        assertFalse(acceptor.prepare(new Proposal<>(1, "foo")).isPromised());
+        CompletableFuture<Boolean> response = acceptor.async().accept(0, new Proposal<>(1, "foo"));
+        assertTrue(response.handle((result, error) -> error != null).join());
+    }
+
+    private static ByteBuffer readFrame(SocketChannel socket) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        readFully(socket, header);
+        ByteBuffer frame = ByteBuffer.allocate(header.getInt(0));
+        readFully(socket, frame);
+        frame.flip();
+        return frame;
+    }
+
+    private static void readFully(SocketChannel socket, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (socket.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private List<Acceptor<String>> remoteAcceptors() {
+        List<Acceptor<String>> acceptors = new ArrayList<>();
+        for (InetSocketAddress address : acceptorAddresses) {
+            acceptors.add(client.acceptor(address));
+        }
+        return acceptors;
+    }
+
+    private PaxosServer<String> startServer() throws IOException {
+        PaxosServer<String> server = new PaxosServer<>(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new StringCodec());
+        servers.add(server);
+        return server;
+    }
+}